@@ -0,0 +1,40 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks the decision logic of {@link ArmSubsystem#operateArm} without the motor writes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArmSubsystemBenchmark {
+  @Param({"-1", "0", "180"})
+  public double m_pov;
+
+  private final ArmInputs m_inputs = new ArmInputs();
+  private final ArmOutputs m_outputs = new ArmOutputs();
+
+  @Setup
+  public void setup() {
+    m_inputs.raisePosition = -6000;
+    m_inputs.extensionPosition = 1200;
+  }
+
+  @Benchmark
+  public ArmOutputs computeTeleopOutputs() {
+    ArmSubsystem.computeTeleopOutputs(m_inputs, -0.7, true, false, m_pov, m_outputs);
+    return m_outputs;
+  }
+}
@@ -0,0 +1,78 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.util.can.SparkMaxConfigurator;
+
+/**
+ * Drives a {@link SwerveModule} through the calls it gets every cycle, against simulated Spark Maxes.
+ * Every module benchmark should report a gc.alloc.rate.norm of 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveModuleBenchmark {
+  private static final double kAngularOffset = Math.PI / 2;
+
+  private final SwerveModuleState m_desiredState = new SwerveModuleState(2.0, Rotation2d.fromDegrees(135));
+  private final Rotation2d m_currentAngle = Rotation2d.fromDegrees(10);
+
+  private SwerveModule m_module;
+  private double m_desiredAngle = Math.toRadians(135);
+
+  @Setup
+  public void setup() {
+    // The Spark Maxes need the HAL, which runs in simulation on the desktop
+    HAL.initialize(500, 0);
+
+    m_module = new SwerveModule(DriveConstants.kFrontLeftDriveMotorId,
+      DriveConstants.kFrontLeftTurnMotorId,
+      DriveConstants.kFrontLeftAngularOffset,
+      DriveConstants.kFrontLeftDriveMotorInverted,
+      new SparkMaxConfigurator());
+  }
+
+  /** Baseline: the object-based optimization the module used to run every cycle. */
+  @Benchmark
+  public SwerveModuleState optimizeStateObjects() {
+    SwerveModuleState correctedDesiredState = new SwerveModuleState(
+      m_desiredState.speedMetersPerSecond,
+      m_desiredState.angle.plus(Rotation2d.fromRadians(kAngularOffset)));
+    return SwerveModuleState.optimize(correctedDesiredState, m_currentAngle);
+  }
+
+  @Benchmark
+  public SwerveModule setDesiredState() {
+    // Alternate sides so the module both turns and reverses, and every reference is sent
+    m_desiredAngle = -m_desiredAngle;
+    m_module.setDesiredState(2.0, m_desiredAngle, m_desiredAngle);
+    return m_module;
+  }
+
+  @Benchmark
+  public SwerveModuleState getState() {
+    return m_module.getState();
+  }
+
+  @Benchmark
+  public SwerveModulePosition getPosition() {
+    return m_module.getPosition();
+  }
+}
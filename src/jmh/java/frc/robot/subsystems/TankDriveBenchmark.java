@@ -0,0 +1,78 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.MathShared;
+import edu.wpi.first.math.MathSharedStore;
+import edu.wpi.first.math.MathUsageId;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.filter.SlewRateLimiter;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive.WheelSpeeds;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * Benchmarks the output math of {@link TankDriveSubsystem#drive} and
+ * {@link TankDriveSubsystem#trackVisionTarget} without the Spark Max writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TankDriveBenchmark {
+  private SlewRateLimiter m_magLimiter;
+  private SlewRateLimiter m_rotLimiter;
+  private PIDController m_visionPIDController;
+  private final TankDriveInputs m_inputs = new TankDriveInputs();
+
+  @Setup
+  public void setup() {
+    // Stub out the HAL so the slew rate limiters' timestamps do not need JNI
+    MathSharedStore.setMathShared(new MathShared() {
+      @Override
+      public void reportError(String error, StackTraceElement[] stackTrace) {}
+
+      @Override
+      public void reportUsage(MathUsageId id, int count) {}
+
+      @Override
+      public double getTimestamp() {
+        return System.nanoTime() / 1e9;
+      }
+    });
+
+    m_magLimiter = new SlewRateLimiter(DriveConstants.kMagnitudeSlewRate);
+    m_rotLimiter = new SlewRateLimiter(DriveConstants.kRotationalSlewRate);
+    m_visionPIDController = new PIDController(
+      AutoConstants.kVisionP,
+      AutoConstants.kVisionI,
+      AutoConstants.kVisionD);
+    m_visionPIDController.enableContinuousInput(-180, 180);
+
+    m_inputs.gyroYaw = Math.toRadians(4.5);
+    m_inputs.hasTarget = true;
+    m_inputs.targetHeading = Math.toRadians(170);
+  }
+
+  @Benchmark
+  public WheelSpeeds rateLimitedArcadeDrive() {
+    return TankDriveSubsystem.computeTeleopOutputs(0.6, -0.3, true, m_magLimiter, m_rotLimiter);
+  }
+
+  @Benchmark
+  public WheelSpeeds visionTracking() {
+    m_inputs.gyroYaw = -m_inputs.gyroYaw;
+    return TankDriveSubsystem.computeVisionOutputs(m_inputs, m_visionPIDController);
+  }
+}
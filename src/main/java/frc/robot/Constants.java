@@ -6,10 +6,14 @@ package frc.robot;
 
 import com.revrobotics.CANSparkMax.IdleMode;
 
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.CounterBase.EncodingType;
+import frc.robot.util.telemetry.TelemetryVerbosity;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
@@ -25,6 +29,11 @@ public final class Constants {
     public static final double kTrackWidth = Units.inchesToMeters(24.25);
     public static final double kWheelBase = Units.inchesToMeters(25.25);
 
+    public static final Translation2d kFrontLeftLocation = new Translation2d(kWheelBase / 2, kTrackWidth / 2);
+    public static final Translation2d kFrontRightLocation = new Translation2d(kWheelBase / 2, -kTrackWidth / 2);
+    public static final Translation2d kRearLeftLocation = new Translation2d(-kWheelBase / 2, kTrackWidth / 2);
+    public static final Translation2d kRearRightLocation = new Translation2d(-kWheelBase / 2, -kTrackWidth / 2);
+
     public static final SwerveDriveKinematics kDriveKinematics = new SwerveDriveKinematics(
       new Translation2d(kWheelBase / 2, -kTrackWidth / 2),
       new Translation2d(kWheelBase / 2, kTrackWidth / 2),
@@ -67,6 +76,7 @@ public final class Constants {
     public static final double kPowerPercent = 1;
     public static final double kAngularPowerPercent = 1;
     public static final double kSwervePowerPercent = 1;
+    public static final double kArcadeDeadband = 0.02; // DifferentialDrive's default
 
     // PID values
     // TODO: Tune PID values (Specifically the P and D terms)
@@ -75,6 +85,13 @@ public final class Constants {
     public static final double kD = 0.2; // Larger value dampens more and will try to slow down more aggressively
     public static final double kFF = 0;
 
+    // Wheel speed feedforward and feedback for the tank drive
+    // TODO: Characterize the drivetrain with the SysId Drive auto, these are estimated from the NEO free speed
+    public static final double kDriveS = 0.15; // Volts
+    public static final double kDriveV = 2.9; // Volts per meter per second
+    public static final double kDriveA = 0.4; // Volts per meter per second squared
+    public static final double kDriveVelocityP = 1.0; // Volts per meter per second of error
+
     // Slew rate values
     public static final double kMagnitudeSlewRate = 0.9;
     public static final double kRotationalSlewRate = 0.9;
@@ -93,6 +110,8 @@ public final class Constants {
     public static final boolean kDriveMotorInverted = false;
     public static final boolean kTurnMotorInverted = false;
 
+    public static final int kTurnEncoderCountsPerRev = 4096;
+
     public static final double kDriveEncoderPositionFactor = (kWheelDiameterMeters * Math.PI)
         / kDriveMotorRatio; // Meters
     public static final double kDriveEncoderVelocityFactor = ((kWheelDiameterMeters * Math.PI)
@@ -105,7 +124,8 @@ public final class Constants {
     public static final double kDriveP = 0.5;
     public static final double kDriveI = 0;
     public static final double kDriveD = 0;
-    public static final double kDriveFF = 1 / kDriveWheelFreeSpeed;
+    public static final double kDriveFF = 1 / kDriveWheelFreeSpeed; // Until the Swerve Drive SysId gains are deployed
+    public static final double kNominalVoltage = 12;
     public static final double kDriveMinOutput = -1;
     public static final double kDriveMaxOutput = 1;
 
@@ -141,8 +161,11 @@ public final class Constants {
     public static final boolean kRaiseEncoderInverted = false;
     public static final boolean kExtensionEncoderInverted = false;
 
-    public static final EncodingType kRaiseEncoderEncodingType = EncodingType.k1X;
-    public static final EncodingType kExtensionEncoderEncodingType = EncodingType.k1X;
+    // Decoding 4X gives four times the edges, getDistance() and getRate() still count full cycles
+    public static final EncodingType kRaiseEncoderEncodingType = EncodingType.k4X;
+    public static final EncodingType kExtensionEncoderEncodingType = EncodingType.k4X;
+    public static final int kEncoderSamplesToAverage = 4; // Evens out the unequal 4X edge spacing
+    public static final double kEncoderMinRate = 10; // Counts per second, reads as stopped below
     public static final EncodingType kPivotEncoderEncodingType = EncodingType.k1X;
 
     public static final double kRaiseMotorPowerPercent = 1;
@@ -152,6 +175,85 @@ public final class Constants {
     // Encoder maximum limits (After configuration)
     public static final double kRaiseEncoderMaxValue = -12584;
     public static final double kExtensionEncoderMaxValue = 2682;
+
+    // Raise joint angles, 0 radians is horizontal and the limit switch is at the lowest angle
+    // TODO: Measure the angles on the robot
+    public static final double kRaiseMinAngleRadians = Math.toRadians(-30);
+    public static final double kRaiseMaxAngleRadians = Math.toRadians(80);
+    public static final double kRaiseRadiansPerCount =
+      (kRaiseMaxAngleRadians - kRaiseMinAngleRadians) / -kRaiseEncoderMaxValue; // Up is positive
+
+    // Closed-loop control runs on its own notifier at this period
+    public static final double kControlPeriodSeconds = 0.005;
+
+    // Raise joint profile and gains (Encoder counts, up is negative)
+    // TODO: Tune the profiles and gains on the robot
+    public static final double kRaiseMaxVelocity = 8000; // Counts per second
+    public static final double kRaiseMaxAcceleration = 16000; // Counts per second squared
+    public static final double kRaiseP = 0.0005; // Percent output per count
+    public static final double kRaiseV = 1.0 / 12000; // Percent output per count per second
+    public static final double kRaiseTolerance = 100; // Counts
+
+    // Percent output that holds the raise joint against gravity, indexed by extension position
+    public static final double[] kRaiseGravityExtensions = {0, kExtensionEncoderMaxValue};
+    public static final double[] kRaiseGravityOutputs = {-0.08, -0.15};
+
+    // Extension joint profile and gains (Encoder counts, out is positive)
+    public static final double kExtensionMaxVelocity = 2000; // Counts per second
+    public static final double kExtensionMaxAcceleration = 4000; // Counts per second squared
+    public static final double kExtensionP = 0.002; // Percent output per count
+    public static final double kExtensionV = 1.0 / 3000; // Percent output per count per second
+    public static final double kExtensionTolerance = 30; // Counts
+
+    // Velocity observers, modelling each joint as volts = kV * velocity + kA * acceleration
+    // TODO: Characterize the arm with the SysId autos, kV is from the feedforward gains and kA is estimated
+    public static final double kNominalVoltage = 12;
+    public static final double kRaiseA = 0.0001; // Volts per count per second squared
+    public static final double kExtensionA = 0.0003; // Volts per count per second squared
+    public static final double kObserverPositionStdDev = 5; // Counts
+    public static final double kObserverVelocityStdDev = 200; // Counts per second
+    public static final double kObserverPositionMeasurementStdDev = 1; // Counts
+    public static final double kObserverRateMeasurementStdDev = 100; // Counts per second
+
+    // Presets, raise and extension in encoder counts
+    // TODO: Find the preset positions on the robot
+    public static final double kStowRaisePosition = -200;
+    public static final double kStowExtensionPosition = 0;
+    public static final double kLowRaisePosition = -3500;
+    public static final double kLowExtensionPosition = 800;
+    public static final double kMidRaisePosition = -8000;
+    public static final double kMidExtensionPosition = 1600;
+    public static final double kHighRaisePosition = -11500;
+    public static final double kHighExtensionPosition = 2600;
+    public static final double kSubstationRaisePosition = -9000;
+    public static final double kSubstationExtensionPosition = 600;
+
+    // Motion envelope: the most the arm may extend at each raise position, so it stays inside the
+    // frame perimeter and off the floor while low. Raise positions must be in decreasing order.
+    public static final double[] kEnvelopeRaisePositions = {0, -2000, -5000};
+    public static final double[] kEnvelopeMaxExtensions = {300, 1200, kExtensionEncoderMaxValue};
+
+    // The pivot has no encoder. It may only move while the arm is raised above the clearance
+    // position and is driven for a fixed time to reach either end.
+    public static final double kPivotClearanceRaisePosition = -3000;
+    public static final double kPivotTravelSeconds = 0.75;
+
+    // Homing: a fast approach to each limit switch, a back off, then a slow re-touch
+    public static final double kRaiseHomingFastOutput = 0.6;
+    public static final double kRaiseHomingSlowOutput = 0.15;
+    public static final double kRaiseHomingBackOffCounts = 300;
+    public static final double kExtensionHomingFastOutput = 0.6;
+    public static final double kExtensionHomingSlowOutput = 0.2;
+    public static final double kExtensionHomingBackOffCounts = 100;
+    public static final double kPivotHomingOutput = -0.6;
+    public static final double kHomingPhaseTimeoutSeconds = 5;
+
+    // The pivot limit switches are unreliable, see the TODO in ArmSubsystem. Guarding on a switch
+    // that reads pressed would lock the pivot out in that direction.
+    public static final boolean kPivotLimitSwitchGuardsEnabled = false;
+
+    // The calibrated positions are saved while disabled whenever a joint moves more than this
+    public static final double kCalibrationSaveDeadbandCounts = 5;
   }
 
   public static final class VacuumConstants {
@@ -164,6 +266,7 @@ public final class Constants {
   public static final class OperatorConstants {
     public static final int kDriverControllerPort = 0;
     public static final double kDriverControllerDeadband = 0.2;
+    public static final int kDriveToTargetButton = 2; // Thumb button
     public static final int kArmControllerPort = 1;
     public static final double kArmControllerDeadband = 0.2;
   }
@@ -172,6 +275,200 @@ public final class Constants {
     public static final double kVisionP = 0.3;
     public static final double kVisionI = 0;
     public static final double kVisionD = 0;
+
+    // Trajectory generation
+    public static final double kMaxSpeedMetersPerSecond = 2;
+    public static final double kMaxAccelerationMetersPerSecondSquared = 1.5;
+    public static final double kMaxCentripetalAccelerationMetersPerSecondSquared = 2;
+    public static final double kTrajectorySampleSeconds = 0.02; // One setpoint per robot loop
+
+    // Driving to a vision target
+    public static final double kTargetStandoffMeters = 0.75; // Stop this far short of the target
+    public static final double kReplanPeriodSeconds = 0.5;
+    public static final double kReplanDistanceMeters = 0.15; // Replan sooner if the goal moves this far
+
+    // Ramsete gains, the WPILib defaults
+    public static final double kRamseteB = 2;
+    public static final double kRamseteZeta = 0.7;
+  }
+
+  public static final class ProfilerConstants {
+    public static final int kMaxEntries = 32;
+    public static final int kWindowSize = 250; // Samples kept per entry (5 seconds at 50 Hz)
+    public static final int kPublishPeriodCycles = 50; // Publish the summary once per second
+    public static final double kLoopBudgetSeconds = 0.02;
+  }
+
+  public static final class CANConstants {
+    // Identical motor outputs are still re-sent at least this often
+    public static final double kOutputKeepAliveSeconds = 0.5;
+
+    // Status frame planning
+    public static final int kLoopFramePeriodMs = 20; // Signals read once per robot loop
+    public static final int kUnusedSparkMaxFramePeriodMs = 500;
+    public static final int kSparkMaxStatus0MaxPeriodMs = 100; // Status 0 also carries faults
+    public static final int kUnusedVictorFramePeriodMs = 255; // Longest period CTRE allows
+    public static final int kSparkMaxControlFramePeriodMs = 20; // One setpoint per loop
+    public static final int kVictorControlFramePeriodMs = 10; // Phoenix resends control frames every 10 ms
+
+    // Bus load estimation
+    public static final double kBitsPerFrame = 128; // 29-bit ID, 8 data bytes and worst-case bit stuffing
+    public static final double kBusBitRate = 1_000_000;
+    public static final double kTargetUtilization = 0.6;
+  }
+
+  public static final class LoggingConstants {
+    public static final int kDefaultBufferSize = 64; // Samples buffered per signal between drains
+    public static final int kDrainPeriodMs = 20;
+  }
+
+  public static final class ReplayConstants {
+    // Setting this environment variable to a WPILOG path runs the robot in replay mode
+    public static final String kLogPathEnvironmentVariable = "REPLAY_LOG";
+    public static final double kTimestepSeconds = 0.02;
+  }
+
+  public static final class SimConstants {
+    // Setting this environment variable to an auto chooser option runs that auto headless
+    public static final String kAutoEnvironmentVariable = "SIM_AUTO";
+    public static final double kTimestepSeconds = 0.02;
+    public static final double kDisabledSeconds = 1;
+    public static final double kAutonomousSeconds = 15;
+
+    // Drivetrain
+    // TODO: Weigh the robot
+    public static final double kRobotMassKg = 50;
+    public static final double kRobotMomentOfInertia = 5; // Kilogram meters squared
+
+    // Raise joint, swinging between ArmConstants.kRaiseMinAngleRadians and kRaiseMaxAngleRadians
+    public static final double kRaiseGearing = 300;
+    public static final double kRaiseArmLengthMeters = 0.9;
+    public static final double kRaiseArmMassKg = 6;
+    public static final double kRaiseCountsPerRadian = 1 / ArmConstants.kRaiseRadiansPerCount;
+
+    // Extension joint, modelled as an elevator along the arm
+    public static final double kExtensionGearing = 50;
+    public static final double kExtensionCarriageMassKg = 3;
+    public static final double kExtensionDrumRadiusMeters = 0.02;
+    public static final double kExtensionTravelMeters = 0.8;
+    public static final double kExtensionCountsPerMeter = ArmConstants.kExtensionEncoderMaxValue / kExtensionTravelMeters;
+
+    // Pivot joint, the lower limit switch is at 0 radians
+    public static final double kPivotGearing = 400;
+    public static final double kPivotLengthMeters = 0.3;
+    public static final double kPivotMassKg = 2;
+    public static final double kPivotTravelRadians = Math.toRadians(90);
+
+    // Vacuum, first order pressure response as a fraction of full vacuum
+    public static final double kVacuumPumpTimeConstantSeconds = 0.5;
+    public static final double kVacuumVentTimeConstantSeconds = 0.1;
+    public static final double kVacuumMotorCurrentAmps = 20;
+  }
+
+  public static final class TuningConstants {
+    // Each gain is swept over this many evenly spaced values from 0 to its maximum, so a scenario
+    // with two gains simulates kGridSteps squared runs
+    public static final int kGridSteps = 32;
+    public static final int kRunsPerTask = 16; // Runs one fork/join task simulates without splitting
+    public static final double kNominalVoltage = 12;
+
+    // Module turning on the Spark Max position loop
+    // TODO: Check the turn gearing and measure the module inertia
+    public static final double kSparkMaxPeriodSeconds = 0.001;
+    public static final double kTurnGearing = 12.8;
+    public static final double kTurnMomentOfInertia = 0.004; // Kilogram meters squared
+    public static final double kTurnStepRadians = Math.PI / 2;
+    public static final double kTurnToleranceRadians = Math.toRadians(2);
+    public static final double kTurnSimSeconds = 1;
+    public static final double kModuleTurnMaxP = 4;
+    public static final double kModuleTurnMaxD = 2;
+    public static final double kTankTurnMaxP = 2;
+    public static final double kTankTurnMaxD = 1;
+
+    // Turning the tank drive in place toward a vision target, gains per degree
+    public static final double kVisionStepDegrees = 30;
+    public static final double kVisionToleranceDegrees = 2;
+    public static final double kVisionSimSeconds = 3;
+    public static final double kVisionMaxP = 0.6;
+    public static final double kVisionMaxD = 0.06;
+
+    // Arm moves from stow to the high preset, simulated for this long after the profile ends
+    public static final double kArmSettleSeconds = 2;
+    public static final double kRaiseMaxP = 0.002;
+    public static final double kRaiseMaxV = 2.0 / 12000;
+    public static final double kExtensionMaxP = 0.008;
+    public static final double kExtensionMaxV = 2.0 / 3000;
+  }
+
+  public static final class SysIdConstants {
+    public static final double kCapturePeriodSeconds = 0.001; // 1 kHz
+    public static final int kMaxSamples = 25000; // Room for all four tests at 1 kHz
+
+    // Quasistatic tests ramp the voltage slowly so acceleration is negligible, dynamic tests step it
+    public static final double kQuasistaticRampVoltsPerSecond = 1;
+    public static final double kQuasistaticTimeoutSeconds = 7;
+    public static final double kDynamicStepVolts = 7;
+    public static final double kDynamicTimeoutSeconds = 3;
+    public static final double kRestSeconds = 2; // Lets the mechanism stop between tests
+
+    // Captures are written under the operating directory (/home/lvuser on the robot) and the fitted
+    // gains are loaded from the deploy directory
+    public static final String kCaptureDirectory = "sysid";
+    public static final String kGainsDirectory = "sysid";
+
+    // The fitter skips samples slower than this fraction of the capture's top speed, where the
+    // direction of friction is ambiguous
+    public static final double kFitMinVelocityFraction = 0.02;
+  }
+
+  public static final class TelemetryConstants {
+    // Set to kCompetition before events to only send what the drive team needs
+    public static final TelemetryVerbosity kVerbosity = TelemetryVerbosity.kDebug;
+
+    public static final int kDefaultDivider = 1; // Every loop (50 Hz)
+    public static final int kSlowDivider = 5; // Every 5th loop (10 Hz)
+
+    public static final double kArmEncoderDeadband = 1; // Encoder counts
+    public static final double kTurnEncoderDeadband = 0.005; // Rotations
+  }
+
+  public static final class VisionConstants {
+    public static final String kCameraName = "photonvision";
+
+    // TODO: Measure the camera mounting position
+    public static final Transform3d kRobotToCamera = new Transform3d(
+      new Translation3d(Units.inchesToMeters(10), 0, Units.inchesToMeters(20)),
+      new Rotation3d());
+
+    // Standard deviations of the wheel odometry and vision measurements (Meters, meters, radians)
+    public static final double[] kStateStdDevs = {0.05, 0.05, Units.degreesToRadians(1)};
+    public static final double[] kVisionStdDevs = {0.5, 0.5, Units.degreesToRadians(15)};
+
+    // Limelight targeting
+    public static final String kLimelightTableName = "limelight";
+    public static final int kLimelightQueueDepth = 10; // Frames buffered between loops
+    public static final double kTargetTimeoutSeconds = 0.5; // Drop a target not seen for this long
+
+    // TODO: Measure the Limelight mounting and the scoring target
+    public static final double kLimelightHeightMeters = Units.inchesToMeters(20);
+    public static final double kLimelightPitchRadians = Units.degreesToRadians(15);
+    public static final double kTargetHeightMeters = Units.inchesToMeters(24);
+    public static final double kMinTargetElevationRadians = Units.degreesToRadians(1); // Frames at or below are rejected
+  }
+
+  public static final class GyroConstants {
+    public static final boolean kReversed = false;
+    public static final byte kUpdateRateHz = (byte) 200; // Highest rate the NavX supports
+    public static final int kHistorySize = 512; // Samples, a power of two (2.5 s at 200 Hz)
+    public static final int kWriteMargin = 16; // Oldest samples readers skip while the NavX writes
+    public static final double kMaxClockDrift = 1e-4; // Fraction the NavX clock may drift from the FPGA's
+  }
+
+  public static final class OdometryConstants {
+    // Module positions and gyro yaw are sampled on their own thread at this rate
+    public static final double kFrequencyHz = 200;
+    public static final int kStatusFramePeriodMs = (int) (1000 / kFrequencyHz);
+    public static final int kQueueSize = 32; // Samples buffered between loops
   }
 
   public class NeoMotorConstants {
@@ -5,6 +5,8 @@
 package frc.robot;
 
 import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.Constants.ReplayConstants;
+import frc.robot.Constants.SimConstants;
 
 /**
  * Do NOT add any static variables to this class, or any initialization at all. Unless you know what
@@ -18,8 +20,20 @@ public final class Main {
    * Main initialization function. Do not perform any initialization here.
    *
    * <p>If you change your main robot class, change the parameter type.
+   *
+   * <p>In simulation, setting the REPLAY_LOG environment variable replays that log instead, and
+   * setting SIM_AUTO runs that autonomous routine headless.
    */
   public static void main(String... args) {
-    RobotBase.startRobot(Robot::new);
+    String replayLog = System.getenv(ReplayConstants.kLogPathEnvironmentVariable);
+    String simAuto = System.getenv(SimConstants.kAutoEnvironmentVariable);
+
+    if (RobotBase.isSimulation() && replayLog != null) {
+      RobotBase.startRobot(() -> new ReplayRobot(replayLog));
+    } else if (RobotBase.isSimulation() && simAuto != null) {
+      RobotBase.startRobot(() -> new SimulatedAutoRobot(simAuto));
+    } else {
+      RobotBase.startRobot(Robot::new);
+    }
   }
 }
@@ -0,0 +1,146 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.IOException;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.GenericHIDSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.ReplayConstants;
+import frc.robot.util.logging.LogReplay;
+import frc.robot.util.logging.ReplayedSeries;
+import frc.robot.util.logging.SignalLogger;
+
+/**
+ * Runs the robot code against a recorded match log instead of the Driver Station and hardware.
+ *
+ * <p>The simulated clock is paused and stepped by a fixed timestep, so the replay runs as fast as
+ * the code allows and is deterministic. Each step, the recorded Driver Station state and joysticks
+ * are fed through HAL simulation, subsystems read their inputs from the log, and every output is
+ * logged again to a new WPILOG that can be diffed against the original.
+ *
+ * <p>Run with {@code REPLAY_LOG=/path/to/match.wpilog ./gradlew simulateJava}.
+ */
+public class ReplayRobot extends Robot {
+  private final String m_logPath;
+
+  private final GenericHIDSim[] m_joysticks = new GenericHIDSim[DriverStation.kJoystickPorts];
+
+  private ReplayedSeries m_enabled;
+  private ReplayedSeries m_autonomous;
+  private ReplayedSeries m_test;
+  private ReplayedSeries m_eStop;
+  private final ReplayedSeries[] m_axes = new ReplayedSeries[DriverStation.kJoystickPorts];
+  private final ReplayedSeries[] m_buttons = new ReplayedSeries[DriverStation.kJoystickPorts];
+  private final ReplayedSeries[] m_povs = new ReplayedSeries[DriverStation.kJoystickPorts];
+
+  /**
+   * Creates a new ReplayRobot.
+   *
+   * @param logPath The WPILOG file to replay.
+   */
+  public ReplayRobot(String logPath) {
+    m_logPath = logPath;
+
+    for (int port = 0; port < m_joysticks.length; port++) {
+      m_joysticks[port] = new GenericHIDSim(port);
+    }
+  }
+
+  @Override
+  public void startCompetition() {
+    LogReplay replay;
+    try {
+      replay = LogReplay.load(m_logPath);
+    } catch (IOException e) {
+      DriverStation.reportError("Unable to load replay log: " + e.getMessage(), false);
+      return;
+    }
+
+    // Resolve the Driver Station entries written by DriverStation.startDataLog()
+    m_enabled = replay.getSeries("DS:enabled");
+    m_autonomous = replay.getSeries("DS:autonomous");
+    m_test = replay.getSeries("DS:test");
+    m_eStop = replay.getSeries("DS:estop");
+    for (int port = 0; port < m_joysticks.length; port++) {
+      m_axes[port] = replay.getSeries("DS:joystick" + port + "/axes");
+      m_buttons[port] = replay.getSeries("DS:joystick" + port + "/buttons");
+      m_povs[port] = replay.getSeries("DS:joystick" + port + "/povs");
+    }
+
+    // Take control of the simulated clock and line it up with the log
+    SimHooks.restartTiming();
+    SimHooks.pauseTiming();
+    SimHooks.stepTiming(replay.getStartTime() / 1e6);
+    DriverStationSim.setDsAttached(true);
+
+    robotInit();
+
+    SignalLogger logger = SignalLogger.getInstance();
+    long stepMicros = (long) (ReplayConstants.kTimestepSeconds * 1e6);
+    long startNanos = System.nanoTime();
+
+    for (long time = replay.getStartTime(); time <= replay.getEndTime(); time += stepMicros) {
+      replay.setTime(time);
+      applyDriverStation(time);
+
+      loopFunc();
+      // Steps run much faster than the logger's background drain, so drain each one
+      logger.drain();
+
+      SimHooks.stepTiming(ReplayConstants.kTimestepSeconds);
+    }
+
+    logger.flush();
+
+    double logSeconds = (replay.getEndTime() - replay.getStartTime()) / 1e6;
+    double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.println("Replayed " + logSeconds + " s of log in " + wallSeconds + " s ("
+        + Math.round(logSeconds / wallSeconds) + "x real time)");
+  }
+
+  private void applyDriverStation(long time) {
+    DriverStationSim.setEnabled(flag(m_enabled, time));
+    DriverStationSim.setAutonomous(flag(m_autonomous, time));
+    DriverStationSim.setTest(flag(m_test, time));
+    DriverStationSim.setEStop(flag(m_eStop, time));
+
+    for (int port = 0; port < m_joysticks.length; port++) {
+      GenericHIDSim joystick = m_joysticks[port];
+
+      double[] axes = valueAt(m_axes[port], time);
+      joystick.setAxisCount(axes.length);
+      for (int i = 0; i < axes.length; i++) {
+        joystick.setRawAxis(i, axes[i]);
+      }
+
+      double[] buttons = valueAt(m_buttons[port], time);
+      joystick.setButtonCount(buttons.length);
+      for (int i = 0; i < buttons.length; i++) {
+        joystick.setRawButton(i + 1, buttons[i] != 0);
+      }
+
+      double[] povs = valueAt(m_povs[port], time);
+      joystick.setPOVCount(povs.length);
+      for (int i = 0; i < povs.length; i++) {
+        joystick.setPOV(i, (int) povs[i]);
+      }
+    }
+
+    DriverStationSim.notifyNewData();
+  }
+
+  private static boolean flag(ReplayedSeries series, long time) {
+    double[] value = valueAt(series, time);
+    return value.length > 0 && value[0] != 0;
+  }
+
+  private static double[] valueAt(ReplayedSeries series, long time) {
+    double[] value = series != null ? series.valueAt(time) : null;
+    return value != null ? value : new double[0];
+  }
+}
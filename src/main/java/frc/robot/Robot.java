@@ -4,9 +4,19 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SimBattery;
+import frc.robot.util.can.CANBusPlanner;
+import frc.robot.util.can.CANOutputFilter;
+import frc.robot.util.logging.LogReplay;
+import frc.robot.util.logging.SignalLogger;
+import frc.robot.util.telemetry.TelemetryDouble;
+import frc.robot.util.telemetry.TelemetryVerbosity;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -19,15 +29,31 @@ public class Robot extends TimedRobot {
 
   private RobotContainer m_robotContainer;
 
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+
+  private final TelemetryDouble m_suppressedFramesTelemetry = new TelemetryDouble("Suppressed CAN Frames",
+      0, TelemetryConstants.kSlowDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryDouble m_droppedSamplesTelemetry = new TelemetryDouble("Dropped Log Samples",
+      0, TelemetryConstants.kSlowDivider, TelemetryVerbosity.kCompetition);
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
    */
   @Override
   public void robotInit() {
+    // Start logging before any subsystem registers its signals
+    DataLogManager.start();
+
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
+
+    // Every subsystem has declared the CAN signals it reads, so slow down the rest
+    CANBusPlanner.getInstance().apply();
+
+    // Time every command's execute() alongside the subsystem periodics
+    m_profiler.attachTo(CommandScheduler.getInstance());
   }
 
   /**
@@ -43,7 +69,15 @@ public class Robot extends TimedRobot {
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
+    m_profiler.beginCycle();
     CommandScheduler.getInstance().run();
+    m_profiler.endCycle();
+
+    // Subsystem periodics log the inputs before the commands run, the outputs are only known now
+    m_robotContainer.logOutputs();
+
+    m_suppressedFramesTelemetry.set(CANOutputFilter.getTotalSuppressedCount());
+    m_droppedSamplesTelemetry.set(SignalLogger.getInstance().getDroppedCount());
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
@@ -99,5 +133,10 @@ public class Robot extends TimedRobot {
 
   /** This function is called periodically whilst in simulation. */
   @Override
-  public void simulationPeriodic() {}
+  public void simulationPeriodic() {
+    // Every subsystem's simulationPeriodic() has added its current draw during the scheduler run
+    if (!LogReplay.isActive()) {
+      SimBattery.update();
+    }
+  }
 }
@@ -4,7 +4,10 @@
 
 package frc.robot;
 
+import java.io.IOException;
+
 import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
@@ -17,16 +20,22 @@ import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Constants.OperatorConstants;
 import frc.robot.commands.AutoOneCmd;
 import frc.robot.commands.CalibrateArmCmd;
+import frc.robot.commands.CharacterizeCmd;
+import frc.robot.commands.DriveToTargetCmd;
+import frc.robot.commands.FollowTrajectoryCmd;
+import frc.robot.commands.MoveArmCmd;
 import frc.robot.commands.OpenLowerSolenoidCmd;
 import frc.robot.commands.OpenUpperSolenoidCmd;
 import frc.robot.commands.ResetDriveEncodersCmd;
 import frc.robot.commands.RunVacuumCmd;
 import frc.robot.commands.TeleopArmCmd;
 import frc.robot.commands.TeleopDriveCmd;
+import frc.robot.subsystems.ArmPreset;
 import frc.robot.subsystems.ArmSubsystem;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.TankDriveSubsystem;
 import frc.robot.subsystems.VacuumSubsystem;
+import frc.robot.util.trajectory.PathPlannerLoader;
 
 /**
  * This class is where the bulk of the robot should be declared. Since
@@ -43,6 +52,8 @@ public class RobotContainer {
   private final XboxController m_operatorController = new XboxController(OperatorConstants.kArmControllerPort);
 
   // Subsystems
+  // The swerve drive shares the tank drive's Spark Maxes, so it stays out until it is reinstalled.
+  // Its odometry thread is exercised by DriveSubsystemTest meanwhile.
   // private final DriveSubsystem m_newDriveSubsystem = new DriveSubsystem();
   private final TankDriveSubsystem m_driveSubsystem = new TankDriveSubsystem();
   private final ArmSubsystem m_armSubsystem = new ArmSubsystem();
@@ -53,9 +64,13 @@ public class RobotContainer {
   // private final ResetDriveEncodersCmd m_resetDriveEncodersCmd = new ResetDriveEncodersCmd(m_driveSubsystem);
   private final TeleopArmCmd m_teleopArmCmd = new TeleopArmCmd(m_armSubsystem, m_operatorController);
   private final CalibrateArmCmd m_calibrateArmCmd = new CalibrateArmCmd(m_armSubsystem);
+  private final MoveArmCmd m_highArmCmd = new MoveArmCmd(m_armSubsystem, ArmPreset.kHigh);
+  private final MoveArmCmd m_stowArmCmd = new MoveArmCmd(m_armSubsystem, ArmPreset.kStow);
+  private final MoveArmCmd m_substationArmCmd = new MoveArmCmd(m_armSubsystem, ArmPreset.kSubstation);
   private final RunVacuumCmd m_runVacuumCmd = new RunVacuumCmd(m_vacuumSubsystem);
   private final OpenUpperSolenoidCmd m_openUpperSolenoidCmd = new OpenUpperSolenoidCmd(m_vacuumSubsystem);
   private final OpenLowerSolenoidCmd m_openLowerSolenoidCmd = new OpenLowerSolenoidCmd(m_vacuumSubsystem);
+  private final DriveToTargetCmd m_driveToTargetCmd = new DriveToTargetCmd(m_driveSubsystem);
   private final AutoOneCmd m_autoOneCmd = new AutoOneCmd(m_armSubsystem, m_driveSubsystem);
 
   // Shuffleboard
@@ -82,12 +97,43 @@ public class RobotContainer {
     // m_autoChooser.setDefaultOption("Auto 1", m_autoOneCmd);
     m_autoChooser.addOption("No Auto", null);
 
+    // Trajectories are generated and resampled here so autonomous starts without delay
+    try {
+      m_autoChooser.addOption("New Path",
+        new FollowTrajectoryCmd(m_driveSubsystem, PathPlannerLoader.load("New Path"), true));
+    } catch (IOException | RuntimeException e) {
+      DriverStation.reportError("Failed to load New Path: " + e.getMessage(), e.getStackTrace());
+    }
+
+    // Characterization routines for the fitter, the arm is homed first
+    m_autoChooser.addOption("SysId Drive",
+      new CharacterizeCmd(m_driveSubsystem.createSysIdCapture(), m_driveSubsystem));
+    m_autoChooser.addOption("SysId Arm Raise", new CalibrateArmCmd(m_armSubsystem)
+      .andThen(new CharacterizeCmd(m_armSubsystem.createRaiseCapture(), m_armSubsystem)));
+    m_autoChooser.addOption("SysId Arm Extension", new CalibrateArmCmd(m_armSubsystem)
+      .andThen(new CharacterizeCmd(m_armSubsystem.createExtensionCapture(), m_armSubsystem)));
+    // m_autoChooser.addOption("SysId Swerve Drive",
+    //   new CharacterizeCmd(m_newDriveSubsystem.createDriveCapture(), m_newDriveSubsystem));
+    // m_autoChooser.addOption("SysId Swerve Turn",
+    //   new CharacterizeCmd(m_newDriveSubsystem.createTurnCapture(), m_newDriveSubsystem));
+
     SmartDashboard.putData("Auto Chooser", m_autoChooser);
     // SmartDashboard.putData("Drive Subsystem", m_driveSubsystem);
     SmartDashboard.putData("Arm Subsystem", m_armSubsystem);
     SmartDashboard.putData("Vacuum Subsystem", m_vacuumSubsystem);
   }
 
+  /**
+   * Records every subsystem's outputs. Called after the scheduler has run, so the outputs are the
+   * ones the commands computed from this cycle's inputs.
+   */
+  public void logOutputs() {
+    // m_newDriveSubsystem.logOutputs();
+    m_driveSubsystem.logOutputs();
+    m_armSubsystem.logOutputs();
+    m_vacuumSubsystem.logOutputs();
+  }
+
   /**
    * Use this method to define your trigger->command mappings. Triggers can be
    * created via the
@@ -106,9 +152,22 @@ public class RobotContainer {
     // Reset drive encoders
     // new JoystickButton(m_driverController, 6).whileTrue(m_resetDriveEncodersCmd);
 
+    // Drive to the vision target
+    new JoystickButton(m_driverController, OperatorConstants.kDriveToTargetButton).whileTrue(m_driveToTargetCmd);
+
     // Calibrate arm
     new JoystickButton(m_operatorController, XboxController.Button.kX.value).whileTrue(m_calibrateArmCmd);
 
+    // Move arm to a preset
+    new JoystickButton(m_operatorController, XboxController.Button.kB.value).onTrue(m_highArmCmd);
+    new JoystickButton(m_operatorController, XboxController.Button.kBack.value).onTrue(m_stowArmCmd);
+    new JoystickButton(m_operatorController, XboxController.Button.kStart.value).onTrue(m_substationArmCmd);
+
+    // Manual arm input takes the arm back from a preset move
+    new Trigger(this::isArmManualInput)
+      .and(() -> m_armSubsystem.getCurrentCommand() instanceof MoveArmCmd)
+      .onTrue(m_teleopArmCmd);
+
     // Run vacuum
     new JoystickButton(m_operatorController, XboxController.Button.kRightBumper.value).whileTrue(m_runVacuumCmd);
 
@@ -119,6 +178,15 @@ public class RobotContainer {
     new JoystickButton(m_operatorController, XboxController.Button.kY.value).whileTrue(m_openLowerSolenoidCmd);
   }
 
+  /** Returns whether the operator is moving any arm joint by hand, as read by TeleopArmCmd. */
+  private boolean isArmManualInput() {
+    int pov = m_operatorController.getPOV();
+    return Math.abs(m_operatorController.getRightY()) > OperatorConstants.kArmControllerDeadband
+      || m_operatorController.getLeftBumper()
+      || m_operatorController.getLeftTriggerAxis() > OperatorConstants.kArmControllerDeadband
+      || pov == 0 || pov == 180;
+  }
+
   public Command getAutonomousCommand() {
     return m_autoChooser.getSelected();
   }
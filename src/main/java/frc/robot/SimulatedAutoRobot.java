@@ -0,0 +1,80 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.SimConstants;
+import frc.robot.util.logging.SignalLogger;
+
+/**
+ * Runs one autonomous routine against the physics simulation without a Driver Station or GUI.
+ *
+ * <p>Like {@link ReplayRobot}, the simulated clock is paused and stepped by a fixed timestep, so the
+ * routine runs as fast as the code and the physics models allow. Notifiers still fire at their
+ * periods in simulated time. The robot is disabled briefly, then enabled in autonomous for the
+ * length of the autonomous period, and everything is logged to a WPILOG for review.
+ *
+ * <p>Run with {@code SIM_AUTO="New Path" ./gradlew simulateJava}.
+ */
+public class SimulatedAutoRobot extends Robot {
+  private final String m_autoName;
+
+  /**
+   * Creates a new SimulatedAutoRobot.
+   *
+   * @param autoName The name of the auto chooser option to run.
+   */
+  public SimulatedAutoRobot(String autoName) {
+    m_autoName = autoName;
+  }
+
+  @Override
+  public void startCompetition() {
+    // Take control of the simulated clock
+    SimHooks.restartTiming();
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    robotInit();
+
+    // The chooser reads its selection back from NetworkTables
+    SmartDashboard.putString("Auto Chooser/selected", m_autoName);
+
+    long startNanos = System.nanoTime();
+
+    run(SimConstants.kDisabledSeconds);
+
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    run(SimConstants.kAutonomousSeconds);
+
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+    run(SimConstants.kTimestepSeconds);
+
+    SignalLogger.getInstance().flush();
+
+    double simSeconds = SimConstants.kDisabledSeconds + SimConstants.kAutonomousSeconds
+      + SimConstants.kTimestepSeconds;
+    double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.println("Simulated " + m_autoName + " for " + simSeconds + " s in " + wallSeconds + " s ("
+      + Math.round(simSeconds / wallSeconds) + "x real time)");
+  }
+
+  private void run(double seconds) {
+    int steps = (int) Math.round(seconds / SimConstants.kTimestepSeconds);
+    for (int i = 0; i < steps; i++) {
+      loopFunc();
+      // Steps run much faster than the logger's background drain, so drain each one
+      SignalLogger.getInstance().drain();
+      SimHooks.stepTiming(SimConstants.kTimestepSeconds);
+    }
+  }
+}
@@ -38,9 +38,10 @@ public class AutoOneCmd extends CommandBase {
   public void execute() {
     System.out.println(m_autoTimer.get());
 
-    // Calibrate
-    while (!m_armSubsystem.isCalibrated()) {
+    // Calibrate one step per cycle, since the arm's sensor snapshot only refreshes between cycles
+    if (!m_armSubsystem.isCalibrated()) {
       m_armSubsystem.calibrate();
+      return;
     }
 
     m_autoTimer.start();
@@ -0,0 +1,71 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+import frc.robot.Constants.SysIdConstants;
+import frc.robot.util.sysid.SysIdCapture;
+import frc.robot.util.sysid.SysIdTest;
+
+/**
+ * Runs every characterization test on a mechanism in turn, resting between them, then saves the
+ * capture for the fitter.
+ */
+public class CharacterizeCmd extends CommandBase {
+  private final SysIdCapture m_capture;
+  private final Timer m_restTimer = new Timer();
+  private int m_nextTest;
+
+  /**
+   * Creates a new CharacterizeCmd.
+   *
+   * @param capture The mechanism's capture.
+   * @param subsystem The subsystem the mechanism belongs to.
+   */
+  public CharacterizeCmd(SysIdCapture capture, Subsystem subsystem) {
+    m_capture = capture;
+
+    // Use addRequirements() here to declare subsystem dependencies.
+    addRequirements(subsystem);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    m_capture.clear();
+    m_nextTest = 0;
+    m_restTimer.restart();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    if (m_capture.isRunning()) {
+      m_restTimer.restart();
+      return;
+    }
+
+    if (m_restTimer.hasElapsed(SysIdConstants.kRestSeconds) && m_nextTest < SysIdTest.values().length) {
+      m_capture.start(SysIdTest.values()[m_nextTest]);
+      m_nextTest++;
+    }
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    m_capture.stop();
+    m_restTimer.stop();
+    m_capture.save();
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return m_nextTest == SysIdTest.values().length && !m_capture.isRunning();
+  }
+}
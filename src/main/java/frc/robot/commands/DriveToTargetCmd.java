@@ -0,0 +1,139 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.concurrent.CompletableFuture;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.subsystems.TankDriveInputs;
+import frc.robot.subsystems.TankDriveSubsystem;
+import frc.robot.util.trajectory.RamseteFollower;
+import frc.robot.util.trajectory.SampledTrajectory;
+import frc.robot.util.trajectory.TrajectoryPlanner;
+
+/**
+ * Drives to a scoring position in front of the vision target.
+ *
+ * <p>The goal is placed on the latency-compensated target heading, short of the target by the
+ * standoff distance. Trajectories are planned in the background; the current plan keeps being
+ * followed until a new one is ready, which then takes over from the point the robot has reached.
+ */
+public class DriveToTargetCmd extends CommandBase {
+  // Subsystems
+  private final TankDriveSubsystem m_driveSubsystem;
+
+  private final TrajectoryPlanner m_planner = new TrajectoryPlanner();
+  private final RamseteFollower m_follower = new RamseteFollower();
+
+  private SampledTrajectory m_trajectory;
+  private double m_trajectoryStartTime;
+
+  private CompletableFuture<SampledTrajectory> m_pendingPlan;
+  private double m_pendingRequestTime;
+  private double m_lastRequestTime;
+  private double m_goalX;
+  private double m_goalY;
+
+  /** Creates a new DriveToTargetCmd. */
+  public DriveToTargetCmd(TankDriveSubsystem driveSubsystem) {
+    m_driveSubsystem = driveSubsystem;
+
+    // Use addRequirements() here to declare subsystem dependencies.
+    addRequirements(m_driveSubsystem);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    m_trajectory = null;
+    m_pendingPlan = null;
+    m_lastRequestTime = Double.NEGATIVE_INFINITY;
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    double now = Timer.getFPGATimestamp();
+    TankDriveInputs inputs = m_driveSubsystem.getInputs();
+    Pose2d pose = m_driveSubsystem.getPose();
+
+    if (inputs.hasTarget) {
+      requestPlanIfNeeded(now, inputs, pose);
+    }
+
+    // Switch to a finished plan, skipping the part the robot drove while it was generated
+    if (m_pendingPlan != null && m_pendingPlan.isDone()) {
+      if (!m_pendingPlan.isCompletedExceptionally()) {
+        m_trajectory = m_pendingPlan.getNow(null);
+        m_trajectoryStartTime = m_pendingRequestTime;
+      }
+      m_pendingPlan = null;
+    }
+
+    if (m_trajectory == null) {
+      m_driveSubsystem.drive(0, 0, false);
+      return;
+    }
+
+    m_follower.calculate(m_trajectory, m_trajectory.indexAt(now - m_trajectoryStartTime), pose);
+    m_driveSubsystem.driveWheelSpeeds(
+      m_follower.getLeftSpeed(),
+      m_follower.getRightSpeed(),
+      m_follower.getLeftAcceleration(),
+      m_follower.getRightAcceleration());
+  }
+
+  /** Plans from the current pose when the goal has moved or the plan has become stale. */
+  private void requestPlanIfNeeded(double now, TankDriveInputs inputs, Pose2d pose) {
+    // The target heading is in the gyro's frame, so carry its offset from the current yaw over to
+    // the pose's field frame. They differ after a pose reset or vision correction.
+    double bearing = pose.getRotation().getRadians() + (inputs.targetHeading - inputs.gyroYaw);
+    double goalDistance = Math.max(0, inputs.targetDistance - AutoConstants.kTargetStandoffMeters);
+    double goalX = pose.getX() + goalDistance * Math.cos(bearing);
+    double goalY = pose.getY() + goalDistance * Math.sin(bearing);
+
+    // Already at the scoring position
+    if (goalDistance < AutoConstants.kReplanDistanceMeters) {
+      return;
+    }
+
+    boolean goalMoved = Math.hypot(goalX - m_goalX, goalY - m_goalY) > AutoConstants.kReplanDistanceMeters;
+    boolean stale = now - m_lastRequestTime > AutoConstants.kReplanPeriodSeconds;
+    if (m_trajectory != null && !goalMoved && !stale) {
+      return;
+    }
+    if (m_trajectory == null && m_pendingPlan != null && !goalMoved) {
+      return;
+    }
+
+    m_goalX = goalX;
+    m_goalY = goalY;
+    m_lastRequestTime = now;
+    m_pendingRequestTime = now;
+
+    double speed = (inputs.leftVelocity + inputs.rightVelocity) / 2;
+    Rotation2d goalHeading = new Rotation2d(bearing);
+    m_pendingPlan = m_planner.plan(pose, speed, new Pose2d(goalX, goalY, goalHeading));
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    m_planner.cancel();
+    m_pendingPlan = null;
+    m_trajectory = null;
+    m_driveSubsystem.drive(0, 0, false);
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return false;
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.TankDriveSubsystem;
+import frc.robot.util.trajectory.RamseteFollower;
+import frc.robot.util.trajectory.SampledTrajectory;
+
+/**
+ * Follows a resampled trajectory with a Ramsete controller and closed-loop wheel speeds.
+ *
+ * <p>Each cycle only indexes the trajectory table and evaluates the Ramsete law on primitives.
+ */
+public class FollowTrajectoryCmd extends CommandBase {
+  // Subsystems
+  private final TankDriveSubsystem m_driveSubsystem;
+
+  private final SampledTrajectory m_trajectory;
+  private final boolean m_resetPose;
+  private final RamseteFollower m_follower = new RamseteFollower();
+  private final Timer m_timer = new Timer();
+
+  /**
+   * Creates a new FollowTrajectoryCmd.
+   *
+   * @param driveSubsystem The drive to follow the trajectory with.
+   * @param trajectory The trajectory.
+   * @param resetPose Whether to reset the pose estimate to the trajectory's start first.
+   */
+  public FollowTrajectoryCmd(TankDriveSubsystem driveSubsystem, SampledTrajectory trajectory, boolean resetPose) {
+    m_driveSubsystem = driveSubsystem;
+    m_trajectory = trajectory;
+    m_resetPose = resetPose;
+
+    // Use addRequirements() here to declare subsystem dependencies.
+    addRequirements(m_driveSubsystem);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    if (m_resetPose) {
+      m_driveSubsystem.resetPose(m_trajectory.getInitialPose());
+    }
+
+    m_timer.restart();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    m_follower.calculate(m_trajectory, m_trajectory.indexAt(m_timer.get()), m_driveSubsystem.getPose());
+    m_driveSubsystem.driveWheelSpeeds(
+      m_follower.getLeftSpeed(),
+      m_follower.getRightSpeed(),
+      m_follower.getLeftAcceleration(),
+      m_follower.getRightAcceleration());
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    m_driveSubsystem.drive(0, 0, false);
+    m_timer.stop();
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return m_timer.hasElapsed(m_trajectory.getTotalTimeSeconds());
+  }
+}
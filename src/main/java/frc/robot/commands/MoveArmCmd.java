@@ -0,0 +1,47 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.ArmPreset;
+import frc.robot.subsystems.ArmSubsystem;
+
+/** Moves the arm to a preset along a coordinated trajectory and ends once it arrives. */
+public class MoveArmCmd extends CommandBase {
+  // Subsystems
+  private final ArmSubsystem m_armSubsystem;
+
+  private final ArmPreset m_preset;
+
+  /**
+   * Creates a new MoveArmCmd.
+   *
+   * @param armSubsystem The arm.
+   * @param preset The preset to move to.
+   */
+  public MoveArmCmd(ArmSubsystem armSubsystem, ArmPreset preset) {
+    m_armSubsystem = armSubsystem;
+    m_preset = preset;
+
+    // Use addRequirements() here to declare subsystem dependencies.
+    addRequirements(m_armSubsystem);
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    m_armSubsystem.moveToPreset(m_preset);
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {}
+
+  // Returns true when the command should end. The arm keeps holding the preset afterwards.
+  @Override
+  public boolean isFinished() {
+    return !m_armSubsystem.isCalibrated() || m_armSubsystem.atGoal();
+  }
+}
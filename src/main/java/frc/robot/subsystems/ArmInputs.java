@@ -0,0 +1,27 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/**
+ * Snapshot of every arm sensor, read once at the start of each cycle.
+ *
+ * <p>The instance is preallocated and overwritten in place, so control logic and telemetry within a
+ * cycle all see the same values.
+ */
+public class ArmInputs {
+  public double timestampSeconds;
+
+  public double raisePosition;
+  public double extensionPosition;
+
+  // Observer estimates (Counts per second)
+  public double raiseVelocity;
+  public double extensionVelocity;
+
+  public boolean raiseLimitSwitch;
+  public boolean extensionLimitSwitch;
+  public boolean pivotUpperLimitSwitch;
+  public boolean pivotLowerLimitSwitch;
+}
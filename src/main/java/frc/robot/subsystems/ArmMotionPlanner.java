@@ -0,0 +1,223 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import frc.robot.Constants.ArmConstants;
+
+/**
+ * Plans coordinated moves of the raise, extension and pivot joints that stay inside the arm's
+ * motion envelope.
+ *
+ * <p>A move is a chain of straight lines in joint space. Both joints on a line move together and
+ * arrive together, timed by the trapezoid profile of whichever joint needs longer. A line that
+ * would leave the envelope is split so the arm raises before extending, or retracts before
+ * lowering. The pivot is driven while the arm is above the pivot clearance position, waiting there
+ * if the move would otherwise drop below it before the pivot finishes.
+ *
+ * <p>Every preset-to-preset move is planned once at startup, so starting one is a table lookup.
+ */
+class ArmMotionPlanner {
+  private static final double kDtSeconds = ArmConstants.kControlPeriodSeconds;
+  private static final int kEnvelopeChecksPerLine = 50;
+
+  private final TrapezoidProfile.Constraints m_raiseConstraints = new TrapezoidProfile.Constraints(
+    ArmConstants.kRaiseMaxVelocity, ArmConstants.kRaiseMaxAcceleration);
+  private final TrapezoidProfile.Constraints m_extensionConstraints = new TrapezoidProfile.Constraints(
+    ArmConstants.kExtensionMaxVelocity, ArmConstants.kExtensionMaxAcceleration);
+
+  private final ArmTrajectory[][] m_cache;
+
+  /** Creates a new ArmMotionPlanner and plans every preset-to-preset move. */
+  ArmMotionPlanner() {
+    ArmPreset[] presets = ArmPreset.values();
+    for (ArmPreset preset : presets) {
+      if (!isInsideEnvelope(preset.raisePosition, preset.extensionPosition)) {
+        throw new IllegalStateException("Arm preset " + preset + " is outside the motion envelope");
+      }
+    }
+
+    m_cache = new ArmTrajectory[presets.length][presets.length];
+    for (ArmPreset from : presets) {
+      for (ArmPreset to : presets) {
+        m_cache[from.ordinal()][to.ordinal()] = plan(from.raisePosition, from.extensionPosition, from.pivotUp, to);
+      }
+    }
+  }
+
+  /**
+   * Returns the precomputed move between two presets.
+   *
+   * @param from The preset the arm is at.
+   * @param to The preset to move to.
+   * @return The move.
+   */
+  ArmTrajectory get(ArmPreset from, ArmPreset to) {
+    return m_cache[from.ordinal()][to.ordinal()];
+  }
+
+  /**
+   * Plans a move from an arbitrary position.
+   *
+   * @param raise The current raise position.
+   * @param extension The current extension position.
+   * @param pivotUp Whether the pivot is up, or null if unknown. An unknown pivot is always driven.
+   * @param to The preset to move to.
+   * @return The move.
+   */
+  ArmTrajectory plan(double raise, double extension, Boolean pivotUp, ArmPreset to) {
+    boolean pivotMoves = pivotUp == null || pivotUp != to.pivotUp;
+
+    // Corners of the move in joint space
+    List<double[]> waypoints = new ArrayList<>();
+    waypoints.add(new double[] {raise, extension});
+    if (!isInsideEnvelope(raise, extension)) {
+      // Manual moves are not limited to the envelope, retract back into it first
+      waypoints.add(new double[] {raise, maxExtension(raise)});
+    }
+    double[] start = waypoints.get(waypoints.size() - 1);
+    if (pivotMoves && isBelowClearance(start[0]) && isBelowClearance(to.raisePosition)) {
+      double clearance = ArmConstants.kPivotClearanceRaisePosition;
+      waypoints.add(new double[] {clearance, Math.min(Math.min(start[1], to.extensionPosition), maxExtension(clearance))});
+    }
+    waypoints.add(new double[] {to.raisePosition, to.extensionPosition});
+
+    // Sample each line, staging lines that would leave the envelope
+    List<double[]> samples = new ArrayList<>();
+    samples.add(waypoints.get(0));
+    for (int i = 1; i < waypoints.size(); i++) {
+      double[] from = waypoints.get(i - 1);
+      double[] target = waypoints.get(i);
+
+      if (isLineInsideEnvelope(from, target)) {
+        sampleLine(from, target, samples);
+      } else if (target[0] < from[0]) {
+        // Going up, raise before extending
+        double[] corner = {target[0], from[1]};
+        sampleLine(from, corner, samples);
+        sampleLine(corner, target, samples);
+      } else {
+        // Going down, retract before lowering
+        double[] corner = {from[0], target[1]};
+        sampleLine(from, corner, samples);
+        sampleLine(corner, target, samples);
+      }
+    }
+
+    double[] pivotOutput = pivotMoves ? schedulePivot(samples, to.pivotUp) : new double[samples.size()];
+
+    double[] raiseSetpoints = new double[samples.size()];
+    double[] extensionSetpoints = new double[samples.size()];
+    for (int i = 0; i < samples.size(); i++) {
+      raiseSetpoints[i] = samples.get(i)[0];
+      extensionSetpoints[i] = samples.get(i)[1];
+    }
+    return new ArmTrajectory(kDtSeconds, raiseSetpoints, extensionSetpoints, pivotOutput);
+  }
+
+  /** Appends the samples of a straight line, excluding its start which is already sampled. */
+  private void sampleLine(double[] from, double[] to, List<double[]> samples) {
+    double raiseDistance = to[0] - from[0];
+    double extensionDistance = to[1] - from[1];
+
+    TrapezoidProfile raiseProfile = new TrapezoidProfile(m_raiseConstraints,
+      new TrapezoidProfile.State(Math.abs(raiseDistance), 0), new TrapezoidProfile.State());
+    TrapezoidProfile extensionProfile = new TrapezoidProfile(m_extensionConstraints,
+      new TrapezoidProfile.State(Math.abs(extensionDistance), 0), new TrapezoidProfile.State());
+
+    // Time both joints by the slower one, so they arrive together and the line stays straight
+    boolean raiseIsSlower = raiseProfile.totalTime() >= extensionProfile.totalTime();
+    TrapezoidProfile profile = raiseIsSlower ? raiseProfile : extensionProfile;
+    double distance = Math.abs(raiseIsSlower ? raiseDistance : extensionDistance);
+    if (distance == 0) {
+      return;
+    }
+
+    int count = (int) Math.ceil(profile.totalTime() / kDtSeconds);
+    for (int i = 1; i <= count; i++) {
+      double progress = Math.min(1, profile.calculate(i * kDtSeconds).position / distance);
+      samples.add(new double[] {from[0] + raiseDistance * progress, from[1] + extensionDistance * progress});
+    }
+  }
+
+  /**
+   * Drives the pivot from the first sample above the clearance position for its travel time,
+   * holding the arm there if it would drop below clearance before the pivot finishes.
+   */
+  private static double[] schedulePivot(List<double[]> samples, boolean up) {
+    int travelSamples = (int) Math.ceil(ArmConstants.kPivotTravelSeconds / kDtSeconds);
+
+    int start = 0;
+    while (start < samples.size() && isBelowClearance(samples.get(start)[0])) {
+      start++;
+    }
+    if (start == samples.size()) {
+      start = 0;
+    }
+
+    int clearSamples = 0;
+    while (start + clearSamples < samples.size() && !isBelowClearance(samples.get(start + clearSamples)[0])) {
+      clearSamples++;
+    }
+
+    // Wait at the last clear sample for the rest of the pivot's travel
+    int lastClear = start + Math.max(clearSamples, 1) - 1;
+    for (int i = clearSamples; i < travelSamples; i++) {
+      samples.add(lastClear + 1, samples.get(lastClear));
+    }
+
+    // Matches the operator's POV: up is negative output
+    double output = up ? -ArmConstants.kPivotMotorPowerPercent : ArmConstants.kPivotMotorPowerPercent;
+    double[] pivotOutput = new double[samples.size()];
+    for (int i = start; i < start + travelSamples; i++) {
+      pivotOutput[i] = output;
+    }
+    return pivotOutput;
+  }
+
+  private static boolean isBelowClearance(double raise) {
+    // Up is negative, so below the clearance position is a larger raise position
+    return raise > ArmConstants.kPivotClearanceRaisePosition;
+  }
+
+  private static boolean isLineInsideEnvelope(double[] from, double[] to) {
+    for (int i = 0; i <= kEnvelopeChecksPerLine; i++) {
+      double t = (double) i / kEnvelopeChecksPerLine;
+      if (!isInsideEnvelope(from[0] + (to[0] - from[0]) * t, from[1] + (to[1] - from[1]) * t)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isInsideEnvelope(double raise, double extension) {
+    return extension <= maxExtension(raise);
+  }
+
+  /**
+   * Returns the most the arm may extend at a raise position, interpolated from the envelope table.
+   *
+   * @param raise The raise position.
+   * @return The maximum extension position.
+   */
+  static double maxExtension(double raise) {
+    double[] raises = ArmConstants.kEnvelopeRaisePositions;
+    double[] extensions = ArmConstants.kEnvelopeMaxExtensions;
+
+    if (raise >= raises[0]) {
+      return extensions[0];
+    }
+    for (int i = 1; i < raises.length; i++) {
+      if (raise >= raises[i]) {
+        double t = (raise - raises[i - 1]) / (raises[i] - raises[i - 1]);
+        return extensions[i - 1] + (extensions[i] - extensions[i - 1]) * t;
+      }
+    }
+    return extensions[extensions.length - 1];
+  }
+}
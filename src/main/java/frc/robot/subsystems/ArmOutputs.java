@@ -0,0 +1,12 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/** Percent outputs for each arm motor, computed once per cycle into a preallocated instance. */
+public class ArmOutputs {
+  public double raiseOutput;
+  public double extensionOutput;
+  public double pivotOutput;
+}
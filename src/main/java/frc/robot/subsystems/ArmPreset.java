@@ -0,0 +1,26 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import frc.robot.Constants.ArmConstants;
+
+/** Named arm positions the operator can move all three joints to at once. */
+public enum ArmPreset {
+  kStow(ArmConstants.kStowRaisePosition, ArmConstants.kStowExtensionPosition, false),
+  kLow(ArmConstants.kLowRaisePosition, ArmConstants.kLowExtensionPosition, false),
+  kMid(ArmConstants.kMidRaisePosition, ArmConstants.kMidExtensionPosition, true),
+  kHigh(ArmConstants.kHighRaisePosition, ArmConstants.kHighExtensionPosition, true),
+  kSubstation(ArmConstants.kSubstationRaisePosition, ArmConstants.kSubstationExtensionPosition, true);
+
+  public final double raisePosition;
+  public final double extensionPosition;
+  public final boolean pivotUp;
+
+  ArmPreset(double raisePosition, double extensionPosition, boolean pivotUp) {
+    this.raisePosition = raisePosition;
+    this.extensionPosition = extensionPosition;
+    this.pivotUp = pivotUp;
+  }
+}
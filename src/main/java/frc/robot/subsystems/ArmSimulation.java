@@ -0,0 +1,152 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+import edu.wpi.first.wpilibj.simulation.EncoderSim;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.SimConstants;
+import frc.robot.util.SimBattery;
+import frc.robot.util.can.FilteredVictorSPX;
+
+/**
+ * Physics models of the arm's raise, extension and pivot joints that drive the simulated encoders
+ * and limit switches.
+ *
+ * <p>The raise joint is a single jointed arm under gravity, the extension an elevator along the arm
+ * and the pivot a short arm between its two limit switches. Each is driven by its motor's last
+ * output, so the arm code runs unchanged against them. The raise joint's inertia does not change
+ * with the extension.
+ */
+class ArmSimulation {
+  private final FilteredVictorSPX m_raiseMotor;
+  private final FilteredVictorSPX m_extensionMotor;
+  private final FilteredVictorSPX m_pivotMotor;
+
+  private final SingleJointedArmSim m_raiseSim = new SingleJointedArmSim(
+    DCMotor.getCIM(1),
+    SimConstants.kRaiseGearing,
+    SingleJointedArmSim.estimateMOI(SimConstants.kRaiseArmLengthMeters, SimConstants.kRaiseArmMassKg),
+    SimConstants.kRaiseArmLengthMeters,
+    ArmConstants.kRaiseMinAngleRadians,
+    ArmConstants.kRaiseMaxAngleRadians,
+    true);
+  private final ElevatorSim m_extensionSim = new ElevatorSim(
+    DCMotor.getVex775Pro(1),
+    SimConstants.kExtensionGearing,
+    SimConstants.kExtensionCarriageMassKg,
+    SimConstants.kExtensionDrumRadiusMeters,
+    0,
+    SimConstants.kExtensionTravelMeters,
+    false);
+  private final SingleJointedArmSim m_pivotSim = new SingleJointedArmSim(
+    DCMotor.getVex775Pro(1),
+    SimConstants.kPivotGearing,
+    SingleJointedArmSim.estimateMOI(SimConstants.kPivotLengthMeters, SimConstants.kPivotMassKg),
+    SimConstants.kPivotLengthMeters,
+    0,
+    SimConstants.kPivotTravelRadians,
+    false);
+
+  private final EncoderSim m_raiseEncoderSim;
+  private final EncoderSim m_extensionEncoderSim;
+  private final DIOSim m_raiseLimitSwitchSim;
+  private final DIOSim m_extensionLimitSwitchSim;
+  private final DIOSim m_pivotUpperLimitSwitchSim;
+  private final DIOSim m_pivotLowerLimitSwitchSim;
+
+  // Counts where the robot code last reset each encoder
+  private double m_raiseZeroCounts = 0;
+  private double m_extensionZeroCounts = 0;
+
+  /**
+   * Creates a new ArmSimulation with the arm lowered, retracted and the pivot down.
+   *
+   * @param raiseMotor The raise motor.
+   * @param extensionMotor The extension motor.
+   * @param pivotMotor The pivot motor.
+   * @param raiseEncoder The raise encoder.
+   * @param extensionEncoder The extension encoder.
+   * @param raiseLimitSwitch The raise limit switch.
+   * @param extensionLimitSwitch The extension limit switch.
+   * @param pivotUpperLimitSwitch The pivot upper limit switch.
+   * @param pivotLowerLimitSwitch The pivot lower limit switch.
+   */
+  ArmSimulation(FilteredVictorSPX raiseMotor, FilteredVictorSPX extensionMotor, FilteredVictorSPX pivotMotor,
+      Encoder raiseEncoder, Encoder extensionEncoder, DigitalInput raiseLimitSwitch,
+      DigitalInput extensionLimitSwitch, DigitalInput pivotUpperLimitSwitch, DigitalInput pivotLowerLimitSwitch) {
+    m_raiseMotor = raiseMotor;
+    m_extensionMotor = extensionMotor;
+    m_pivotMotor = pivotMotor;
+    m_raiseEncoderSim = new EncoderSim(raiseEncoder);
+    m_extensionEncoderSim = new EncoderSim(extensionEncoder);
+    m_raiseLimitSwitchSim = new DIOSim(raiseLimitSwitch);
+    m_extensionLimitSwitchSim = new DIOSim(extensionLimitSwitch);
+    m_pivotUpperLimitSwitchSim = new DIOSim(pivotUpperLimitSwitch);
+    m_pivotLowerLimitSwitchSim = new DIOSim(pivotLowerLimitSwitch);
+
+    m_raiseSim.setState(ArmConstants.kRaiseMinAngleRadians, 0);
+    m_extensionSim.setState(0, 0);
+    m_pivotSim.setState(0, 0);
+    updateSensors();
+  }
+
+  /**
+   * Advances the models by one step using the outputs the motors were last set to.
+   *
+   * @param dtSeconds The step.
+   */
+  void update(double dtSeconds) {
+    // The motors apply nothing while disabled, whatever was last commanded
+    double batteryVoltage = DriverStation.isEnabled() ? RobotController.getBatteryVoltage() : 0;
+
+    // Positive raise output lowers the arm and negative pivot output raises the pivot
+    m_raiseSim.setInputVoltage(-m_raiseMotor.getLastOutput() * batteryVoltage);
+    m_extensionSim.setInputVoltage(m_extensionMotor.getLastOutput() * batteryVoltage);
+    m_pivotSim.setInputVoltage(-m_pivotMotor.getLastOutput() * batteryVoltage);
+
+    m_raiseSim.update(dtSeconds);
+    m_extensionSim.update(dtSeconds);
+    m_pivotSim.update(dtSeconds);
+
+    updateSensors();
+    SimBattery.addCurrent(m_raiseSim.getCurrentDrawAmps() + m_extensionSim.getCurrentDrawAmps()
+      + m_pivotSim.getCurrentDrawAmps());
+  }
+
+  private void updateSensors() {
+    // Up is negative raise counts
+    double raiseCounts = -(m_raiseSim.getAngleRads() - ArmConstants.kRaiseMinAngleRadians)
+      * SimConstants.kRaiseCountsPerRadian;
+    double extensionCounts = m_extensionSim.getPositionMeters() * SimConstants.kExtensionCountsPerMeter;
+
+    // Keep the zero wherever the robot code last reset each encoder, as the FPGA would
+    if (m_raiseEncoderSim.getReset()) {
+      m_raiseEncoderSim.setReset(false);
+      m_raiseZeroCounts = raiseCounts;
+    }
+    if (m_extensionEncoderSim.getReset()) {
+      m_extensionEncoderSim.setReset(false);
+      m_extensionZeroCounts = extensionCounts;
+    }
+
+    m_raiseEncoderSim.setDistance(raiseCounts - m_raiseZeroCounts);
+    m_raiseEncoderSim.setRate(-m_raiseSim.getVelocityRadPerSec() * SimConstants.kRaiseCountsPerRadian);
+    m_extensionEncoderSim.setDistance(extensionCounts - m_extensionZeroCounts);
+    m_extensionEncoderSim.setRate(m_extensionSim.getVelocityMetersPerSecond() * SimConstants.kExtensionCountsPerMeter);
+
+    m_raiseLimitSwitchSim.setValue(m_raiseSim.hasHitLowerLimit());
+    m_extensionLimitSwitchSim.setValue(m_extensionSim.hasHitLowerLimit());
+    m_pivotUpperLimitSwitchSim.setValue(m_pivotSim.hasHitUpperLimit());
+    m_pivotLowerLimitSwitchSim.setValue(m_pivotSim.hasHitLowerLimit());
+  }
+}
@@ -1,30 +1,182 @@
 package frc.robot.subsystems;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Encoder;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.SimConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.can.CANBusPlanner;
+import frc.robot.util.can.FilteredVictorSPX;
+import frc.robot.util.logging.LogReplay;
+import frc.robot.util.logging.LoggedSignal;
+import frc.robot.util.logging.SignalLogger;
+import frc.robot.util.sysid.SysIdCapture;
+import frc.robot.util.sysid.SysIdGains;
+import frc.robot.util.telemetry.TelemetryBoolean;
+import frc.robot.util.telemetry.TelemetryDouble;
+import frc.robot.util.telemetry.TelemetryString;
+import frc.robot.util.telemetry.TelemetryVerbosity;
 
 public class ArmSubsystem extends SubsystemBase {
-  private VictorSPX m_raiseMotor;
-  private VictorSPX m_extensionMotor;
-  private VictorSPX m_pivotMotor;
+  private FilteredVictorSPX m_raiseMotor;
+  private FilteredVictorSPX m_extensionMotor;
+  private FilteredVictorSPX m_pivotMotor;
   private Encoder m_raiseEncoder;
   private Encoder m_extensionEncoder;
   private DigitalInput m_extensionLimitSwitch;
   private DigitalInput m_raiseLimitSwitch;
   private DigitalInput m_pivotUpperLimitSwitch;
   private DigitalInput m_pivotLowerLimitSwitch;
+  private LimitSwitchGuard m_raiseGuard;
+  private LimitSwitchGuard m_extensionGuard;
+  private LimitSwitchGuard m_pivotUpperGuard;
+  private LimitSwitchGuard m_pivotLowerGuard;
+  private ArmSimulation m_simulation;
   private boolean m_calibrated = false;
 
+  // Homing, one step per cycle while calibrate() is called
+  private final HomingJoint m_raiseHoming = new HomingJoint("Raise", 1,
+    ArmConstants.kRaiseHomingFastOutput, ArmConstants.kRaiseHomingSlowOutput,
+    ArmConstants.kRaiseHomingBackOffCounts, ArmConstants.kHomingPhaseTimeoutSeconds);
+  private final HomingJoint m_extensionHoming = new HomingJoint("Extension", -1,
+    ArmConstants.kExtensionHomingFastOutput, ArmConstants.kExtensionHomingSlowOutput,
+    ArmConstants.kExtensionHomingBackOffCounts, ArmConstants.kHomingPhaseTimeoutSeconds);
+
+  // Added to the encoder counts, nonzero only when the calibration was restored after a restart
+  private double m_raiseOffset = 0;
+  private double m_extensionOffset = 0;
+
+  // Calibration persisted across code restarts
+  private static final String kPreferencesPrefix = "ArmCalibration/";
+  private static final String kValidKey = kPreferencesPrefix + "Valid";
+  private static final String kRaiseKey = kPreferencesPrefix + "Raise Position";
+  private static final String kExtensionKey = kPreferencesPrefix + "Extension Position";
+  private static final String kFPGATimeKey = kPreferencesPrefix + "FPGA Time";
+  private boolean m_calibrationSaved = false;
+  private double m_savedRaisePosition;
+  private double m_savedExtensionPosition;
+
+  private final ArmInputs m_inputs = new ArmInputs();
+  private final ArmOutputs m_outputs = new ArmOutputs();
+
+  // Measured by CharacterizeCmd once its fitted gains are deployed, estimated until then. The raise
+  // joint is characterized with up positive.
+  private final SysIdGains m_raiseGains = SysIdGains.load("Arm Raise",
+    new SysIdGains(0, ArmConstants.kRaiseV * ArmConstants.kNominalVoltage, ArmConstants.kRaiseA, 0));
+  private final SysIdGains m_extensionGains = SysIdGains.load("Arm Extension",
+    new SysIdGains(0, ArmConstants.kExtensionV * ArmConstants.kNominalVoltage, ArmConstants.kExtensionA, 0));
+
+  // Closed-loop control, run by the notifier while either joint has a goal
+  private final ProfiledJoint m_raiseJoint = new ProfiledJoint(
+    ArmConstants.kRaiseMaxVelocity,
+    ArmConstants.kRaiseMaxAcceleration,
+    ArmConstants.kRaiseP,
+    m_raiseGains.getV() / ArmConstants.kNominalVoltage,
+    ArmConstants.kRaiseEncoderMaxValue,
+    0,
+    ArmConstants.kRaiseTolerance);
+  private final ProfiledJoint m_extensionJoint = new ProfiledJoint(
+    ArmConstants.kExtensionMaxVelocity,
+    ArmConstants.kExtensionMaxAcceleration,
+    ArmConstants.kExtensionP,
+    m_extensionGains.getV() / ArmConstants.kNominalVoltage,
+    0,
+    ArmConstants.kExtensionEncoderMaxValue,
+    ArmConstants.kExtensionTolerance);
+  private final Notifier m_controlNotifier = new Notifier(this::runClosedLoop);
+
+  // Velocity estimates, updated by the notifier every control period
+  private final JointObserver m_raiseObserver = new JointObserver(
+    m_raiseGains.getV(),
+    m_raiseGains.getA(),
+    ArmConstants.kObserverPositionStdDev,
+    ArmConstants.kObserverVelocityStdDev,
+    ArmConstants.kObserverPositionMeasurementStdDev,
+    ArmConstants.kObserverRateMeasurementStdDev,
+    ArmConstants.kControlPeriodSeconds);
+  private final JointObserver m_extensionObserver = new JointObserver(
+    m_extensionGains.getV(),
+    m_extensionGains.getA(),
+    ArmConstants.kObserverPositionStdDev,
+    ArmConstants.kObserverVelocityStdDev,
+    ArmConstants.kObserverPositionMeasurementStdDev,
+    ArmConstants.kObserverRateMeasurementStdDev,
+    ArmConstants.kControlPeriodSeconds);
+
+  // Coordinated preset moves, followed by the notifier before the joints hold the preset
+  private final ArmMotionPlanner m_planner = new ArmMotionPlanner();
+  private ArmTrajectory m_trajectory;
+  private double m_trajectoryStartTime;
+  private ArmPreset m_targetPreset;
+  private ArmPreset m_lastPreset;
+  private Boolean m_pivotUp; // Null until a preset move drives the pivot, it has no encoder
+
+  // Held while the motors are written, so the notifier and the robot loop never both drive them
+  private final Object m_controlLock = new Object();
+
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private final int m_profilerId = m_profiler.register("ArmSubsystem.periodic()");
+
+  // Logging
+  private final SignalLogger m_logger = SignalLogger.getInstance();
+  private final LoggedSignal m_raisePositionLog = m_logger.addDouble("Arm/Raise Position");
+  private final LoggedSignal m_extensionPositionLog = m_logger.addDouble("Arm/Extension Position");
+  private final LoggedSignal m_raiseVelocityLog = m_logger.addDouble("Arm/Raise Velocity");
+  private final LoggedSignal m_extensionVelocityLog = m_logger.addDouble("Arm/Extension Velocity");
+  private final LoggedSignal m_raiseLimitSwitchLog = m_logger.addBoolean("Arm/Raise Limit Switch");
+  private final LoggedSignal m_extensionLimitSwitchLog = m_logger.addBoolean("Arm/Extension Limit Switch");
+  private final LoggedSignal m_pivotUpperLimitSwitchLog = m_logger.addBoolean("Arm/Pivot Upper Limit Switch");
+  private final LoggedSignal m_pivotLowerLimitSwitchLog = m_logger.addBoolean("Arm/Pivot Lower Limit Switch");
+  private final LoggedSignal m_raiseOutputLog = m_logger.addDouble("Arm/Raise Output");
+  private final LoggedSignal m_extensionOutputLog = m_logger.addDouble("Arm/Extension Output");
+  private final LoggedSignal m_pivotOutputLog = m_logger.addDouble("Arm/Pivot Output");
+  private final LoggedSignal m_raiseOvertravelLog = m_logger.addDouble("Arm/Raise Overtravel");
+  private final LoggedSignal m_extensionOvertravelLog = m_logger.addDouble("Arm/Extension Overtravel");
+
+  // Recorded by the control notifier
+  private final LoggedSignal m_raiseSetpointLog = m_logger.addDouble("Arm/Raise Setpoint");
+  private final LoggedSignal m_extensionSetpointLog = m_logger.addDouble("Arm/Extension Setpoint");
+
+  // Telemetry
+  private final TelemetryDouble m_raiseEncoderTelemetry = new TelemetryDouble("Raise Encoder Value",
+    TelemetryConstants.kArmEncoderDeadband, TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kCompetition);
+  private final TelemetryDouble m_extensionEncoderTelemetry = new TelemetryDouble("Extension Encoder Value",
+    TelemetryConstants.kArmEncoderDeadband, TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kCompetition);
+  private final TelemetryBoolean m_calibratedTelemetry = new TelemetryBoolean("Arm Calibrated");
+  private final TelemetryBoolean m_raiseLimitSwitchTelemetry = new TelemetryBoolean("Raise Limit Switch",
+    TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryBoolean m_extensionLimitSwitchTelemetry = new TelemetryBoolean("Extension Limit Switch",
+    TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryBoolean m_pivotUpperLimitSwitchTelemetry = new TelemetryBoolean("Pivot Upper Limit Switch",
+    TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryBoolean m_pivotLowerLimitSwitchTelemetry = new TelemetryBoolean("Pivot Lower Limit Switch",
+    TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryDouble m_povTelemetry = new TelemetryDouble("POV",
+    0, TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryString m_noteTelemetry = new TelemetryString("Note",
+    TelemetryConstants.kDefaultDivider, TelemetryVerbosity.kDebug);
+
   public ArmSubsystem() {
-    m_raiseMotor = new VictorSPX(ArmConstants.kRaiseMotorId);
-    m_extensionMotor = new VictorSPX(ArmConstants.kExtensionMotorId);
-    m_pivotMotor = new VictorSPX(ArmConstants.kPivotMotorId);
+    m_raiseMotor = new FilteredVictorSPX(ArmConstants.kRaiseMotorId);
+    m_extensionMotor = new FilteredVictorSPX(ArmConstants.kExtensionMotorId);
+    m_pivotMotor = new FilteredVictorSPX(ArmConstants.kPivotMotorId);
+
+    // No status signals are read from the arm motors
+    CANBusPlanner canBusPlanner = CANBusPlanner.getInstance();
+    canBusPlanner.addVictorSPX("Raise Motor", m_raiseMotor);
+    canBusPlanner.addVictorSPX("Extension Motor", m_extensionMotor);
+    canBusPlanner.addVictorSPX("Pivot Motor", m_pivotMotor);
 
     m_raiseEncoder = new Encoder(
       ArmConstants.kRaiseEncoderChannelA,
@@ -36,101 +188,656 @@ public class ArmSubsystem extends SubsystemBase {
       ArmConstants.kExtensionEncoderChannelB,
       ArmConstants.kExtensionEncoderInverted,
       ArmConstants.kExtensionEncoderEncodingType);
+    m_raiseEncoder.setSamplesToAverage(ArmConstants.kEncoderSamplesToAverage);
+    m_extensionEncoder.setSamplesToAverage(ArmConstants.kEncoderSamplesToAverage);
+    m_raiseEncoder.setMinRate(ArmConstants.kEncoderMinRate);
+    m_extensionEncoder.setMinRate(ArmConstants.kEncoderMinRate);
 
     m_raiseLimitSwitch = new DigitalInput(ArmConstants.kRaiseLimitSwitchId);
     m_extensionLimitSwitch = new DigitalInput(ArmConstants.kExtensionLimitSwitchId);
     m_pivotUpperLimitSwitch = new DigitalInput(ArmConstants.kPivotUpperLimitSwitchId);
     m_pivotLowerLimitSwitch = new DigitalInput(ArmConstants.kPivotLowerLimitSwitchId);
+
+    // Set the simulated switches before the guards read their initial state
+    if (RobotBase.isSimulation() && !LogReplay.isActive()) {
+      m_simulation = new ArmSimulation(m_raiseMotor, m_extensionMotor, m_pivotMotor,
+        m_raiseEncoder, m_extensionEncoder, m_raiseLimitSwitch, m_extensionLimitSwitch,
+        m_pivotUpperLimitSwitch, m_pivotLowerLimitSwitch);
+    }
+
+    // Cut each motor from the switch's interrupt rather than waiting for the next loop to poll it
+    m_raiseGuard = new LimitSwitchGuard("Raise", m_raiseLimitSwitch, m_raiseMotor, 1,
+      this::getRaisePosition);
+    m_extensionGuard = new LimitSwitchGuard("Extension", m_extensionLimitSwitch, m_extensionMotor, -1,
+      this::getExtensionPosition);
+    if (ArmConstants.kPivotLimitSwitchGuardsEnabled) {
+      m_pivotUpperGuard = new LimitSwitchGuard("Pivot Upper", m_pivotUpperLimitSwitch, m_pivotMotor, -1, null);
+      m_pivotLowerGuard = new LimitSwitchGuard("Pivot Lower", m_pivotLowerLimitSwitch, m_pivotMotor, 1, null);
+    }
+
+    // Replay has no live encoders to close the loop on
+    if (!LogReplay.isActive()) {
+      restoreCalibration();
+      m_controlNotifier.setName("Arm Control");
+      m_controlNotifier.startPeriodic(ArmConstants.kControlPeriodSeconds);
+    }
   }
 
   @Override
   public void periodic() {
+    m_profiler.start(m_profilerId);
+
+    // Subsystem periodics run before commands, so this snapshot is what operateArm() sees
+    updateInputs();
+    checkLimitSwitchTrips();
+    logInputs();
+    if (!LogReplay.isActive()) {
+      saveCalibration();
+    }
+
     // Send values to SmartDashboard
-    SmartDashboard.putNumber("Raise Encoder Value", m_raiseEncoder.getDistance());
-    SmartDashboard.putNumber("Extension Encoder Value", m_extensionEncoder.getDistance());
-    SmartDashboard.putBoolean("Arm Calibrated", m_calibrated);
-    SmartDashboard.putBoolean("Raise Limit Switch", m_raiseLimitSwitch.get());
-    SmartDashboard.putBoolean("Extension Limit Switch", m_extensionLimitSwitch.get());
-    SmartDashboard.putBoolean("Pivot Upper Limit Switch", m_pivotUpperLimitSwitch.get());
-    SmartDashboard.putBoolean("Pivot Lower Limit Switch", m_pivotLowerLimitSwitch.get());
+    m_raiseEncoderTelemetry.set(m_inputs.raisePosition);
+    m_extensionEncoderTelemetry.set(m_inputs.extensionPosition);
+    m_calibratedTelemetry.set(m_calibrated);
+    m_raiseLimitSwitchTelemetry.set(m_inputs.raiseLimitSwitch);
+    m_extensionLimitSwitchTelemetry.set(m_inputs.extensionLimitSwitch);
+    m_pivotUpperLimitSwitchTelemetry.set(m_inputs.pivotUpperLimitSwitch);
+    m_pivotLowerLimitSwitchTelemetry.set(m_inputs.pivotLowerLimitSwitch);
+
+    m_profiler.stop(m_profilerId);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    if (m_simulation != null) {
+      m_simulation.update(SimConstants.kTimestepSeconds);
+    }
+  }
+
+  /** Reads every arm sensor exactly once into the cycle's input snapshot. */
+  private void updateInputs() {
+    m_inputs.timestampSeconds = Timer.getFPGATimestamp();
+
+    if (LogReplay.isActive()) {
+      m_inputs.raisePosition = m_raisePositionLog.replayDouble();
+      m_inputs.extensionPosition = m_extensionPositionLog.replayDouble();
+      m_inputs.raiseVelocity = m_raiseVelocityLog.replayDouble();
+      m_inputs.extensionVelocity = m_extensionVelocityLog.replayDouble();
+      m_inputs.raiseLimitSwitch = m_raiseLimitSwitchLog.replayBoolean();
+      m_inputs.extensionLimitSwitch = m_extensionLimitSwitchLog.replayBoolean();
+      m_inputs.pivotUpperLimitSwitch = m_pivotUpperLimitSwitchLog.replayBoolean();
+      m_inputs.pivotLowerLimitSwitch = m_pivotLowerLimitSwitchLog.replayBoolean();
+      return;
+    }
+
+    m_inputs.raisePosition = getRaisePosition();
+    m_inputs.extensionPosition = getExtensionPosition();
+    synchronized (m_controlLock) {
+      m_inputs.raiseVelocity = m_raiseObserver.getVelocity();
+      m_inputs.extensionVelocity = m_extensionObserver.getVelocity();
+    }
+    m_inputs.raiseLimitSwitch = m_raiseLimitSwitch.get();
+    m_inputs.extensionLimitSwitch = m_extensionLimitSwitch.get();
+    m_inputs.pivotUpperLimitSwitch = m_pivotUpperLimitSwitch.get();
+    m_inputs.pivotLowerLimitSwitch = m_pivotLowerLimitSwitch.get();
+  }
+
+  /** Stops closed-loop control if a guard tripped, since the arm is not where it was planned to be. */
+  private void checkLimitSwitchTrips() {
+    m_raiseGuard.update(m_inputs.raisePosition);
+    m_extensionGuard.update(m_inputs.extensionPosition);
+
+    boolean raiseTripped = m_raiseGuard.consumeTrip();
+    boolean extensionTripped = m_extensionGuard.consumeTrip();
+    if (!raiseTripped && !extensionTripped) {
+      return;
+    }
+
+    LimitSwitchGuard guard = raiseTripped ? m_raiseGuard : m_extensionGuard;
+    synchronized (m_controlLock) {
+      if (isClosedLoop()) {
+        disableClosedLoop();
+        DriverStation.reportWarning(guard.getName() + " limit switch tripped during closed-loop control at "
+          + guard.getTripPosition() + " counts", false);
+      }
+    }
+  }
+
+  /** Records the input snapshot. */
+  private void logInputs() {
+    long timestamp = (long) (m_inputs.timestampSeconds * 1e6);
+    m_raisePositionLog.record(timestamp, m_inputs.raisePosition);
+    m_extensionPositionLog.record(timestamp, m_inputs.extensionPosition);
+    m_raiseVelocityLog.record(timestamp, m_inputs.raiseVelocity);
+    m_extensionVelocityLog.record(timestamp, m_inputs.extensionVelocity);
+    m_raiseLimitSwitchLog.record(timestamp, m_inputs.raiseLimitSwitch);
+    m_extensionLimitSwitchLog.record(timestamp, m_inputs.extensionLimitSwitch);
+    m_pivotUpperLimitSwitchLog.record(timestamp, m_inputs.pivotUpperLimitSwitch);
+    m_pivotLowerLimitSwitchLog.record(timestamp, m_inputs.pivotLowerLimitSwitch);
+    m_raiseOvertravelLog.record(timestamp, m_raiseGuard.getOvertravel());
+    m_extensionOvertravelLog.record(timestamp, m_extensionGuard.getOvertravel());
+  }
+
+  /**
+   * Records the outputs the commands applied this cycle, stamped with the inputs they were computed
+   * from. Call after the scheduler has run.
+   */
+  public void logOutputs() {
+    long timestamp = (long) (m_inputs.timestampSeconds * 1e6);
+    m_raiseOutputLog.record(timestamp, m_raiseMotor.getLastOutput());
+    m_extensionOutputLog.record(timestamp, m_extensionMotor.getLastOutput());
+    m_pivotOutputLog.record(timestamp, m_pivotMotor.getLastOutput());
+  }
+
+  private double getRaisePosition() {
+    return m_raiseEncoder.getDistance() + m_raiseOffset;
+  }
+
+  private double getExtensionPosition() {
+    return m_extensionEncoder.getDistance() + m_extensionOffset;
+  }
+
+  /**
+   * Restores the calibration saved before a code restart, so homing can be skipped.
+   *
+   * <p>It is only trusted when it was saved while disabled, during this boot of the roboRIO, and
+   * the limit switches agree with it. The FPGA clock keeps running across code restarts but starts
+   * over at boot, so a save time ahead of the clock means the robot was power cycled and the arm
+   * may have been moved.
+   */
+  private void restoreCalibration() {
+    if (!Preferences.getBoolean(kValidKey, false)
+        || Preferences.getLong(kFPGATimeKey, Long.MAX_VALUE) > RobotController.getFPGATime()) {
+      return;
+    }
+
+    double raisePosition = Preferences.getDouble(kRaiseKey, 0);
+    double extensionPosition = Preferences.getDouble(kExtensionKey, 0);
+
+    // A pressed switch means the joint must be within its back off distance of home
+    if ((m_raiseLimitSwitch.get() && Math.abs(raisePosition) > ArmConstants.kRaiseHomingBackOffCounts)
+        || (m_extensionLimitSwitch.get() && Math.abs(extensionPosition) > ArmConstants.kExtensionHomingBackOffCounts)) {
+      DriverStation.reportWarning("Saved arm calibration disagrees with the limit switches, homing required", false);
+      return;
+    }
+
+    m_raiseOffset = raisePosition;
+    m_extensionOffset = extensionPosition;
+    m_raiseObserver.reset(raisePosition);
+    m_extensionObserver.reset(extensionPosition);
+    m_savedRaisePosition = raisePosition;
+    m_savedExtensionPosition = extensionPosition;
+    m_calibrationSaved = true;
+    m_calibrated = true;
+    DriverStation.reportWarning("Arm calibration restored, raise " + raisePosition + ", extension "
+      + extensionPosition, false);
+  }
+
+  /**
+   * Saves the calibrated positions while disabled and invalidates them while enabled, since a
+   * restart mid-move would leave the arm somewhere other than where it was last saved.
+   */
+  private void saveCalibration() {
+    if (!m_calibrated) {
+      return;
+    }
+
+    if (DriverStation.isEnabled()) {
+      if (m_calibrationSaved) {
+        Preferences.setBoolean(kValidKey, false);
+        m_calibrationSaved = false;
+      }
+      return;
+    }
+
+    if (m_calibrationSaved
+        && Math.abs(m_inputs.raisePosition - m_savedRaisePosition) <= ArmConstants.kCalibrationSaveDeadbandCounts
+        && Math.abs(m_inputs.extensionPosition - m_savedExtensionPosition) <= ArmConstants.kCalibrationSaveDeadbandCounts) {
+      return;
+    }
+
+    m_savedRaisePosition = m_inputs.raisePosition;
+    m_savedExtensionPosition = m_inputs.extensionPosition;
+    Preferences.setDouble(kRaiseKey, m_savedRaisePosition);
+    Preferences.setDouble(kExtensionKey, m_savedExtensionPosition);
+    Preferences.setLong(kFPGATimeKey, RobotController.getFPGATime());
+    Preferences.setBoolean(kValidKey, true);
+    m_calibrationSaved = true;
+  }
+
+  /**
+   * Returns the sensor snapshot for the current cycle.
+   *
+   * @return The arm inputs. Do not modify.
+   */
+  public ArmInputs getInputs() {
+    return m_inputs;
+  }
+
+  /**
+   * Moves the raise and extension joints to a position along their motion profiles. The joints
+   * hold the position until the operator moves them manually. Ignored until the arm is calibrated.
+   *
+   * @param raisePosition The raise encoder position, up is negative.
+   * @param extensionPosition The extension encoder position.
+   */
+  public void setGoal(double raisePosition, double extensionPosition) {
+    if (!m_calibrated) {
+      return;
+    }
+
+    synchronized (m_controlLock) {
+      cancelTrajectory();
+      double now = Timer.getFPGATimestamp();
+      m_raiseJoint.setGoal(raisePosition, getRaisePosition(), now);
+      m_extensionJoint.setGoal(extensionPosition, getExtensionPosition(), now);
+    }
+  }
+
+  /**
+   * Moves all three joints to a preset along a coordinated trajectory, then holds the preset until
+   * the operator moves the arm manually. Ignored until the arm is calibrated.
+   *
+   * <p>Moves that start at the last preset reached use the trajectories planned at startup. Any
+   * other start is planned here, which takes a few milliseconds, outside the control lock so the
+   * control loop keeps running meanwhile.
+   *
+   * @param preset The preset to move to.
+   */
+  public void moveToPreset(ArmPreset preset) {
+    if (!m_calibrated) {
+      return;
+    }
+
+    ArmPreset lastPreset;
+    Boolean pivotUp;
+    synchronized (m_controlLock) {
+      lastPreset = m_lastPreset;
+      pivotUp = m_pivotUp;
+    }
+
+    // If the running move finishes meanwhile, a plan from the measured position still holds, and an
+    // unknown pivot is always driven
+    ArmTrajectory trajectory = lastPreset != null
+      ? m_planner.get(lastPreset, preset)
+      : m_planner.plan(getRaisePosition(), getExtensionPosition(), pivotUp, preset);
+
+    synchronized (m_controlLock) {
+      disableClosedLoop();
+      m_trajectory = trajectory;
+      m_trajectoryStartTime = Timer.getFPGATimestamp();
+      m_targetPreset = preset;
+    }
+  }
+
+  /**
+   * Returns whether both joints have finished their profiles and are within tolerance.
+   *
+   * @return True if the arm is at its goal.
+   */
+  public boolean atGoal() {
+    synchronized (m_controlLock) {
+      double now = Timer.getFPGATimestamp();
+      return m_raiseJoint.atGoal(m_inputs.raisePosition, now)
+        && m_extensionJoint.atGoal(m_inputs.extensionPosition, now);
+    }
+  }
+
+  private void disableClosedLoop() {
+    cancelTrajectory();
+    m_raiseJoint.disable();
+    m_extensionJoint.disable();
+  }
+
+  private void cancelTrajectory() {
+    if (m_trajectory != null) {
+      // The pivot may have stopped partway
+      m_trajectory = null;
+      m_pivotUp = null;
+      setPivotOutput(0);
+    }
+    m_lastPreset = null;
+  }
+
+  // Every motor write goes through these, so the limit switch guards see all of them
+
+  private void setRaiseOutput(double output) {
+    synchronized (m_controlLock) {
+      m_raiseMotor.set(ControlMode.PercentOutput, m_raiseGuard.filter(output));
+      m_raiseGuard.enforce();
+    }
+  }
+
+  private void setExtensionOutput(double output) {
+    synchronized (m_controlLock) {
+      m_extensionMotor.set(ControlMode.PercentOutput, m_extensionGuard.filter(output));
+      m_extensionGuard.enforce();
+    }
+  }
+
+  private void setPivotOutput(double output) {
+    synchronized (m_controlLock) {
+      if (m_pivotUpperGuard != null) {
+        output = m_pivotLowerGuard.filter(m_pivotUpperGuard.filter(output));
+      }
+      m_pivotMotor.set(ControlMode.PercentOutput, output);
+      if (m_pivotUpperGuard != null) {
+        m_pivotUpperGuard.enforce();
+        m_pivotLowerGuard.enforce();
+      }
+    }
+  }
+
+  private boolean isClosedLoop() {
+    return m_trajectory != null || m_raiseJoint.isEnabled() || m_extensionJoint.isEnabled();
+  }
+
+  /**
+   * Advances both velocity observers by one control period, using the outputs applied over it.
+   * Call while holding the control lock.
+   */
+  private void updateObservers() {
+    double raisePosition = getRaisePosition();
+    double extensionPosition = getExtensionPosition();
+
+    // The motors apply nothing while disabled, whatever was last commanded
+    double raiseVolts = 0;
+    double extensionVolts = 0;
+    if (DriverStation.isEnabled()) {
+      double batteryVoltage = RobotController.getBatteryVoltage();
+      raiseVolts = (m_raiseMotor.getLastOutput() - raiseGravityOutput(extensionPosition)) * batteryVoltage;
+      extensionVolts = m_extensionMotor.getLastOutput() * batteryVoltage;
+    }
+
+    m_raiseObserver.update(raiseVolts, raisePosition, m_raiseEncoder.getRate());
+    m_extensionObserver.update(extensionVolts, extensionPosition, m_extensionEncoder.getRate());
+  }
+
+  /** Follows the preset trajectory or the joint profiles. Runs on the control notifier. */
+  private void runClosedLoop() {
+    synchronized (m_controlLock) {
+      updateObservers();
+
+      if (!isClosedLoop()) {
+        return;
+      }
+
+      // Start from the measured position again after being disabled
+      if (DriverStation.isDisabled()) {
+        disableClosedLoop();
+        return;
+      }
+
+      double now = Timer.getFPGATimestamp();
+      double raisePosition = getRaisePosition();
+      double extensionPosition = getExtensionPosition();
+
+      double raiseOutput;
+      double extensionOutput;
+      if (m_trajectory != null) {
+        double elapsed = now - m_trajectoryStartTime;
+        int index = m_trajectory.indexAt(elapsed);
+        raiseOutput = m_raiseJoint.track(raisePosition,
+          m_trajectory.getRaise(index), m_trajectory.getRaiseVelocity(index));
+        extensionOutput = m_extensionJoint.track(extensionPosition,
+          m_trajectory.getExtension(index), m_trajectory.getExtensionVelocity(index));
+        setPivotOutput(m_trajectory.getPivotOutput(index));
+
+        if (m_trajectory.isFinished(elapsed)) {
+          // Hand off to the joint profiles, which hold the preset from here
+          m_trajectory = null;
+          setPivotOutput(0);
+          m_pivotUp = m_targetPreset.pivotUp;
+          m_lastPreset = m_targetPreset;
+          m_raiseJoint.setGoal(m_targetPreset.raisePosition, raisePosition, now);
+          m_extensionJoint.setGoal(m_targetPreset.extensionPosition, extensionPosition, now);
+        }
+      } else {
+        raiseOutput = m_raiseJoint.calculate(raisePosition, now);
+        extensionOutput = m_extensionJoint.calculate(extensionPosition, now);
+      }
+
+      // The limit switch guards keep either joint from driving into its switch
+      raiseOutput += raiseGravityOutput(extensionPosition);
+      setRaiseOutput(MathUtil.clamp(raiseOutput,
+        -ArmConstants.kRaiseMotorPowerPercent, ArmConstants.kRaiseMotorPowerPercent));
+      setExtensionOutput(MathUtil.clamp(extensionOutput,
+        -ArmConstants.kExtensionMotorPowerPercent, ArmConstants.kExtensionMotorPowerPercent));
+
+      long timestamp = (long) (now * 1e6);
+      m_raiseSetpointLog.record(timestamp, m_raiseJoint.getSetpoint());
+      m_extensionSetpointLog.record(timestamp, m_extensionJoint.getSetpoint());
+    }
+  }
+
+  /**
+   * Returns the raise output that holds the arm against gravity, interpolated from the table
+   * indexed by extension, since the arm's moment grows as it extends.
+   *
+   * @param extensionPosition The extension encoder position.
+   * @return The percent output.
+   */
+  static double raiseGravityOutput(double extensionPosition) {
+    double[] extensions = ArmConstants.kRaiseGravityExtensions;
+    double[] outputs = ArmConstants.kRaiseGravityOutputs;
+
+    if (extensionPosition <= extensions[0]) {
+      return outputs[0];
+    }
+    for (int i = 1; i < extensions.length; i++) {
+      if (extensionPosition <= extensions[i]) {
+        double t = (extensionPosition - extensions[i - 1]) / (extensions[i] - extensions[i - 1]);
+        return outputs[i - 1] + (outputs[i] - outputs[i - 1]) * t;
+      }
+    }
+    return outputs[outputs.length - 1];
   }
 
   public void operateArm(double raisePower, boolean extending, boolean retracting, double pov) {
-    SmartDashboard.putNumber("POV", pov);
+    m_povTelemetry.set(pov);
+    if (pov == 0) {
+      m_noteTelemetry.set("Pivot Motor Running Up!");
+    } else if (pov == 180) {
+      m_noteTelemetry.set("Pivot Motor Running Down!");
+    }
+
+    computeTeleopOutputs(m_inputs, raisePower, extending, retracting, pov, m_outputs);
+
+    synchronized (m_controlLock) {
+      // Keep holding the last goal until the operator moves the raise or extension manually
+      boolean manual = raisePower != 0 || extending || retracting;
+      boolean manualPivot = pov == 0 || pov == 180;
+      if (manual) {
+        disableClosedLoop();
+      } else if (manualPivot) {
+        // The joints keep holding, but the preset move and the known pivot position are lost
+        cancelTrajectory();
+      }
+
+      if (!isClosedLoop()) {
+        setRaiseOutput(m_outputs.raiseOutput);
+        setExtensionOutput(m_outputs.extensionOutput);
+      }
+      if (m_trajectory == null) {
+        setPivotOutput(m_outputs.pivotOutput);
+      }
+      if (manualPivot) {
+        m_pivotUp = null;
+      }
+    }
+  }
+
+  /**
+   * Decides each motor's output from the operator's request and the cycle's sensor snapshot.
+   *
+   * <p>This has no hardware access, so it can be benchmarked and tested in isolation.
+   *
+   * @param inputs The sensor snapshot.
+   * @param raisePower The requested raise power, negative is up.
+   * @param extending Whether the operator is extending.
+   * @param retracting Whether the operator is retracting.
+   * @param pov The operator's POV angle, or -1 if not pressed.
+   * @param outputs The outputs to fill in.
+   */
+  static void computeTeleopOutputs(ArmInputs inputs, double raisePower, boolean extending, boolean retracting,
+      double pov, ArmOutputs outputs) {
     double desiredRaiseMotorPower = raisePower * ArmConstants.kRaiseMotorPowerPercent;
 
     // Raise motor
-    if (desiredRaiseMotorPower < 0 && m_raiseEncoder.getDistance() > ArmConstants.kRaiseEncoderMaxValue) { // Up
-      m_raiseMotor.set(ControlMode.PercentOutput, desiredRaiseMotorPower);
-    } else if (desiredRaiseMotorPower > 0 && !m_raiseLimitSwitch.get()) { // Down
-      m_raiseMotor.set(ControlMode.PercentOutput, desiredRaiseMotorPower);
+    if (desiredRaiseMotorPower < 0 && inputs.raisePosition > ArmConstants.kRaiseEncoderMaxValue) { // Up
+      outputs.raiseOutput = desiredRaiseMotorPower;
+    } else if (desiredRaiseMotorPower > 0 && !inputs.raiseLimitSwitch) { // Down
+      outputs.raiseOutput = desiredRaiseMotorPower;
     } else { // Stopped
-      m_raiseMotor.set(ControlMode.PercentOutput, 0);
+      outputs.raiseOutput = 0;
     }
 
     // Extension motor
-    if (extending && m_extensionEncoder.getDistance() < ArmConstants.kExtensionEncoderMaxValue) { // Extend
-      m_extensionMotor.set(ControlMode.PercentOutput, ArmConstants.kExtensionMotorPowerPercent);
-    } else if (retracting && !m_extensionLimitSwitch.get()) { // Retracting
-      m_extensionMotor.set(ControlMode.PercentOutput, -ArmConstants.kExtensionMotorPowerPercent);
+    if (extending && inputs.extensionPosition < ArmConstants.kExtensionEncoderMaxValue) { // Extend
+      outputs.extensionOutput = ArmConstants.kExtensionMotorPowerPercent;
+    } else if (retracting && !inputs.extensionLimitSwitch) { // Retracting
+      outputs.extensionOutput = -ArmConstants.kExtensionMotorPowerPercent;
     } else { // Stopped
-      m_extensionMotor.set(ControlMode.PercentOutput, 0);
+      outputs.extensionOutput = 0;
     }
 
     // Pivot motor
     if (pov == 0) { // Up
-      SmartDashboard.putString("Note", "Pivot Motor Running Up!");
-      // if (!m_pivotUpperLimitSwitch.get()) {
+      // if (!inputs.pivotUpperLimitSwitch) {
       if (true) {
-        m_pivotMotor.set(ControlMode.PercentOutput, -ArmConstants.kPivotMotorPowerPercent);
+        outputs.pivotOutput = -ArmConstants.kPivotMotorPowerPercent;
       } else {
-        m_pivotMotor.set(ControlMode.PercentOutput, 0);
+        outputs.pivotOutput = 0;
       }
     } else if (pov == 180) { // Down
-      SmartDashboard.putString("Note", "Pivot Motor Running Down!");
       // TODO: Fix pivot lower limit switch
-      // if (!m_pivotLowerLimitSwitch.get()) {
+      // if (!inputs.pivotLowerLimitSwitch) {
       if (true) {
-        m_pivotMotor.set(ControlMode.PercentOutput, ArmConstants.kPivotMotorPowerPercent);
+        outputs.pivotOutput = ArmConstants.kPivotMotorPowerPercent;
       } else {
-        m_pivotMotor.set(ControlMode.PercentOutput, 0);
+        outputs.pivotOutput = 0;
       }
     } else { // Stopped
-      m_pivotMotor.set(ControlMode.PercentOutput, 0);
+      outputs.pivotOutput = 0;
+    }
+  }
+
+  /** Forgets the calibration and homes both joints again on the following calls to calibrate(). */
+  public void startHoming() {
+    synchronized (m_controlLock) {
+      disableClosedLoop();
+      m_pivotUp = null;
     }
+
+    m_calibrated = false;
+    m_calibrationSaved = false;
+    Preferences.setBoolean(kValidKey, false);
+    m_raiseHoming.restart();
+    m_extensionHoming.restart();
   }
 
+  /**
+   * Runs one step of homing. Call once per cycle until {@link #isCalibrated()}, it never blocks.
+   * Does nothing once calibrated.
+   */
   public void calibrate() {
-    // Calibrate pivot motor
-    // if (!m_pivotLowerLimitSwitch.get()) {
-    if (true) {
-      m_pivotMotor.set(ControlMode.PercentOutput, -0.6);
-    } else {
-      m_pivotMotor.set(ControlMode.PercentOutput, 0);
+    if (m_calibrated) {
+      return;
+    }
+
+    synchronized (m_controlLock) {
+      disableClosedLoop();
+      m_pivotUp = null;
     }
 
-    // Calibrate extension motor
-    if (!m_extensionLimitSwitch.get()) {
-      m_extensionMotor.set(ControlMode.PercentOutput, -1);
-    } else {
-      m_extensionMotor.set(ControlMode.PercentOutput, 0);
-      m_extensionEncoder.reset();
+    double now = Timer.getFPGATimestamp();
+    boolean wasExtensionHomed = m_extensionHoming.isHomed();
+    boolean wasRaiseHomed = m_raiseHoming.isHomed();
+
+    // Calibrate extension motor, retracting before the arm comes down
+    setExtensionOutput(m_extensionHoming.update(m_inputs.extensionLimitSwitch, m_inputs.extensionPosition, now));
+    if (m_extensionHoming.isHomed() && !wasExtensionHomed) {
+      synchronized (m_controlLock) {
+        m_extensionEncoder.reset();
+        m_extensionOffset = 0;
+        m_extensionObserver.reset(0);
+      }
+      m_inputs.extensionPosition = 0;
     }
 
-    // Calibrate raise motor
-    if (!m_raiseLimitSwitch.get()) {
-      m_raiseMotor.set(ControlMode.PercentOutput, 1);
-    } else {
-      m_raiseMotor.set(ControlMode.PercentOutput, 0);
-      m_raiseEncoder.reset();
-      m_calibrated = true;
+    // Calibrate raise motor, only once the extension is known to be retracted
+    if (m_extensionHoming.isFinished() && !m_extensionHoming.isHomed()) {
+      m_raiseHoming.fail("the extension did not home so it may not be retracted");
     }
+    double raiseOutput = m_extensionHoming.isHomed()
+      ? m_raiseHoming.update(m_inputs.raiseLimitSwitch, m_inputs.raisePosition, now)
+      : 0;
+    setRaiseOutput(raiseOutput);
+    if (m_raiseHoming.isHomed() && !wasRaiseHomed) {
+      synchronized (m_controlLock) {
+        m_raiseEncoder.reset();
+        m_raiseOffset = 0;
+        m_raiseObserver.reset(0);
+      }
+      m_inputs.raisePosition = 0;
+    }
+
+    // Calibrate pivot motor, it has no sensor so it is driven until the joints finish
+    // if (!m_inputs.pivotLowerLimitSwitch) {
+    boolean homing = !m_raiseHoming.isFinished() || !m_extensionHoming.isFinished();
+    setPivotOutput(homing ? ArmConstants.kPivotHomingOutput : 0);
+
+    m_calibrated = m_raiseHoming.isHomed() && m_extensionHoming.isHomed();
+  }
+
+  /**
+   * Creates the capture that characterizes the raise joint. Positions, velocities and voltages are
+   * positive upward. Run it with the arm calibrated and retracted.
+   *
+   * @return The capture, in encoder counts.
+   */
+  public SysIdCapture createRaiseCapture() {
+    return new SysIdCapture("Arm Raise",
+      volts -> {
+        synchronized (m_controlLock) {
+          disableClosedLoop();
+          setRaiseOutput(-volts / RobotController.getBatteryVoltage());
+        }
+      },
+      () -> -getRaisePosition(),
+      () -> -m_raiseEncoder.getRate())
+      .withArmGravity(ArmConstants.kRaiseMinAngleRadians, ArmConstants.kRaiseRadiansPerCount)
+      .withHoldVoltage(() -> -raiseGravityOutput(getExtensionPosition()) * RobotController.getBatteryVoltage())
+      .withTravel(0, -ArmConstants.kRaiseEncoderMaxValue);
+  }
+
+  /**
+   * Creates the capture that characterizes the extension joint. Run it with the arm calibrated and
+   * lowered.
+   *
+   * @return The capture, in encoder counts.
+   */
+  public SysIdCapture createExtensionCapture() {
+    return new SysIdCapture("Arm Extension",
+      volts -> {
+        synchronized (m_controlLock) {
+          disableClosedLoop();
+          setExtensionOutput(volts / RobotController.getBatteryVoltage());
+        }
+      },
+      this::getExtensionPosition,
+      m_extensionEncoder::getRate)
+      .withGravity()
+      .withTravel(0, ArmConstants.kExtensionEncoderMaxValue);
   }
 
   public void stopAllMotors() {
-    m_raiseMotor.set(ControlMode.PercentOutput, 0);
-    m_extensionMotor.set(ControlMode.PercentOutput, 0);
-    m_pivotMotor.set(ControlMode.PercentOutput, 0);
+    synchronized (m_controlLock) {
+      disableClosedLoop();
+      setRaiseOutput(0);
+      setExtensionOutput(0);
+      setPivotOutput(0);
+    }
   }
 
   public boolean isCalibrated() {
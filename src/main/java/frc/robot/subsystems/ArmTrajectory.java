@@ -0,0 +1,69 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/**
+ * A coordinated arm move sampled at the arm control period. Each sample holds the raise and
+ * extension setpoints with their velocities and the pivot output, so following the move is an
+ * array index per control cycle.
+ */
+class ArmTrajectory {
+  private final double m_dtSeconds;
+  private final double[] m_raise;
+  private final double[] m_raiseVelocity;
+  private final double[] m_extension;
+  private final double[] m_extensionVelocity;
+  private final double[] m_pivotOutput;
+
+  ArmTrajectory(double dtSeconds, double[] raise, double[] extension, double[] pivotOutput) {
+    m_dtSeconds = dtSeconds;
+    m_raise = raise;
+    m_extension = extension;
+    m_pivotOutput = pivotOutput;
+    m_raiseVelocity = differentiate(raise, dtSeconds);
+    m_extensionVelocity = differentiate(extension, dtSeconds);
+  }
+
+  private static double[] differentiate(double[] positions, double dtSeconds) {
+    double[] velocities = new double[positions.length];
+    for (int i = 0; i < positions.length - 1; i++) {
+      velocities[i] = (positions[i + 1] - positions[i]) / dtSeconds;
+    }
+    return velocities;
+  }
+
+  int indexAt(double elapsedSeconds) {
+    int index = (int) (elapsedSeconds / m_dtSeconds);
+    return Math.max(0, Math.min(index, m_raise.length - 1));
+  }
+
+  boolean isFinished(double elapsedSeconds) {
+    return elapsedSeconds >= (m_raise.length - 1) * m_dtSeconds;
+  }
+
+  double getRaise(int index) {
+    return m_raise[index];
+  }
+
+  double getRaiseVelocity(int index) {
+    return m_raiseVelocity[index];
+  }
+
+  double getExtension(int index) {
+    return m_extension[index];
+  }
+
+  double getExtensionVelocity(int index) {
+    return m_extensionVelocity[index];
+  }
+
+  double getPivotOutput(int index) {
+    return m_pivotOutput[index];
+  }
+
+  double getDurationSeconds() {
+    return (m_raise.length - 1) * m_dtSeconds;
+  }
+}
@@ -4,55 +4,277 @@
 
 package frc.robot.subsystems;
 
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.OdometryConstants;
+import frc.robot.util.GyroService;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.OdometryThread;
+import frc.robot.util.can.SparkMaxConfigurator;
+import frc.robot.util.logging.LoggedSignal;
+import frc.robot.util.logging.SignalLogger;
+import frc.robot.util.sysid.SysIdCapture;
 
 public class DriveSubsystem extends SubsystemBase {
-  // Initialize swerve modules
-  SwerveModule m_frontLeftModule = new SwerveModule(DriveConstants.kFrontLeftDriveMotorId,
-    DriveConstants.kFrontLeftTurnMotorId,
-    DriveConstants.kFrontLeftAngularOffset,
-    DriveConstants.kFrontLeftDriveMotorInverted);
-  SwerveModule m_frontRightModule = new SwerveModule(DriveConstants.kFrontRightDriveMotorId,
-    DriveConstants.kFrontRightTurnMotorId,
-    DriveConstants.kFrontRightAngularOffset,
-    DriveConstants.kFrontRightDriveMotorInverted);
-  // SwerveModule m_rearLeftModule = new SwerveModule(DriveConstants.kRearLeftDriveMotorId,
-  //   DriveConstants.kRearLeftTurnMotorId,
-  //   DriveConstants.kRearLeftAngularOffset,
-  //   DriveConstants.kRearLeftDriveMotorInverted);
-  SwerveModule m_rearRightModule = new SwerveModule(DriveConstants.kRearRightDriveMotorId,
-    DriveConstants.kRearRightTurnMotorId,
-    DriveConstants.kRearRightAngularOffset,
-    DriveConstants.kRearRightDriveMotorInverted);
+  private static final double kSetpointAngle = Math.toRadians(45);
+
+  // Swerve modules
+  private final SwerveModule m_frontLeftModule;
+  private final SwerveModule m_frontRightModule;
+  // private final SwerveModule m_rearLeftModule;
+  private final SwerveModule m_rearRightModule;
+  private final SwerveModule[] m_modules;
+
+  // The rear left module is not installed, so odometry only uses the installed modules
+  private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(
+    DriveConstants.kFrontLeftLocation,
+    DriveConstants.kFrontRightLocation,
+    // DriveConstants.kRearLeftLocation,
+    DriveConstants.kRearRightLocation);
+
+  // Odometry
+  private final GyroService m_gyro = GyroService.getInstance();
+  private final SwerveDrivePoseEstimator m_poseEstimator;
+  private final OdometryThread m_odometryThread =
+    new OdometryThread("Swerve Odometry", OdometryConstants.kFrequencyHz);
+  private final int m_gyroColumn;
+  private final int[] m_distanceColumns;
+  private final int[] m_angleColumns;
+  private final SwerveModulePosition[] m_modulePositions;
+  private final double[] m_sampleTimestamps = new double[OdometryConstants.kQueueSize];
+  private final double[] m_samples;
+  private double m_lastGyroYaw = 0;
+  private Rotation2d m_lastGyroRotation = new Rotation2d(); // Reused while the gyro reads the same yaw
+
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private final int m_profilerId = m_profiler.register("DriveSubsystem.periodic()");
+
+  // Logging
+  private final LoggedSignal m_poseXLog;
+  private final LoggedSignal m_poseYLog;
+  private final LoggedSignal m_poseRotationLog;
+  private long m_timestamp = 0; // The time of this cycle's periodic(), which the outputs are stamped with
 
   /** Creates a new DriveSubsystem. */
   public DriveSubsystem() {
+    SparkMaxConfigurator configurator = new SparkMaxConfigurator();
+
+    // Initialize swerve modules
+    m_frontLeftModule = new SwerveModule(DriveConstants.kFrontLeftDriveMotorId,
+      DriveConstants.kFrontLeftTurnMotorId,
+      DriveConstants.kFrontLeftAngularOffset,
+      DriveConstants.kFrontLeftDriveMotorInverted,
+      configurator);
+    m_frontRightModule = new SwerveModule(DriveConstants.kFrontRightDriveMotorId,
+      DriveConstants.kFrontRightTurnMotorId,
+      DriveConstants.kFrontRightAngularOffset,
+      DriveConstants.kFrontRightDriveMotorInverted,
+      configurator);
+    // m_rearLeftModule = new SwerveModule(DriveConstants.kRearLeftDriveMotorId,
+    //   DriveConstants.kRearLeftTurnMotorId,
+    //   DriveConstants.kRearLeftAngularOffset,
+    //   DriveConstants.kRearLeftDriveMotorInverted,
+    //   configurator);
+    m_rearRightModule = new SwerveModule(DriveConstants.kRearRightDriveMotorId,
+      DriveConstants.kRearRightTurnMotorId,
+      DriveConstants.kRearRightAngularOffset,
+      DriveConstants.kRearRightDriveMotorInverted,
+      configurator);
+    m_modules = new SwerveModule[] {m_frontLeftModule, m_frontRightModule, m_rearRightModule};
+
+    // Configure every module's controllers concurrently
+    configurator.configureAll();
+
+    m_frontLeftModule.resetEncoders();
+    m_frontRightModule.resetEncoders();
+    // m_rearLeftModule.resetEncoders();
+    m_rearRightModule.resetEncoders();
+
+    // Sample the gyro and every module on the odometry thread
+    m_gyroColumn = m_odometryThread.addSource(m_gyro::getYaw);
+    m_distanceColumns = new int[m_modules.length];
+    m_angleColumns = new int[m_modules.length];
+    m_modulePositions = new SwerveModulePosition[m_modules.length];
+    for (int i = 0; i < m_modules.length; i++) {
+      SwerveModule module = m_modules[i];
+      m_distanceColumns[i] = m_odometryThread.addSource(module::getDistance);
+      m_angleColumns[i] = m_odometryThread.addSource(module::getAngle);
+      m_modulePositions[i] = new SwerveModulePosition(module.getDistance(), new Rotation2d(module.getAngle()));
+    }
+    m_samples = new double[OdometryConstants.kQueueSize * m_odometryThread.getSourceCount()];
+
+    m_poseEstimator = new SwerveDrivePoseEstimator(
+      m_kinematics,
+      new Rotation2d(m_gyro.getYaw()),
+      m_modulePositions,
+      new Pose2d());
+
+    SignalLogger logger = SignalLogger.getInstance();
+    m_poseXLog = logger.addDouble("Odometry/X");
+    m_poseYLog = logger.addDouble("Odometry/Y");
+    m_poseRotationLog = logger.addDouble("Odometry/Rotation");
+
+    m_odometryThread.start(OdometryConstants.kQueueSize);
   }
 
   @Override
   public void periodic() {
+    m_profiler.start(m_profilerId);
+
+    updateOdometry();
+
+    long timestamp = RobotController.getFPGATime();
+    m_timestamp = timestamp;
+    m_frontLeftModule.logInputs(timestamp);
+    m_frontRightModule.logInputs(timestamp);
+    // m_rearLeftModule.logInputs(timestamp);
+    m_rearRightModule.logInputs(timestamp);
+
+    Pose2d pose = getPose();
+    m_poseXLog.record(timestamp, pose.getX());
+    m_poseYLog.record(timestamp, pose.getY());
+    m_poseRotationLog.record(timestamp, pose.getRotation().getRadians());
+
+    m_profiler.stop(m_profilerId);
+  }
+
+  /** Feeds every sample taken by the odometry thread since the last loop into the pose estimator. */
+  private void updateOdometry() {
+    int count = m_odometryThread.drain(m_sampleTimestamps, m_samples);
+    int width = m_odometryThread.getSourceCount();
+
+    for (int row = 0; row < count; row++) {
+      int offset = row * width;
+      for (int i = 0; i < m_modulePositions.length; i++) {
+        m_modulePositions[i].distanceMeters = m_samples[offset + m_distanceColumns[i]];
+        m_modulePositions[i].angle = SwerveModule.rotationAt(m_samples[offset + m_angleColumns[i]]);
+      }
+
+      m_poseEstimator.updateWithTime(
+        m_sampleTimestamps[row],
+        gyroRotation(m_samples[offset + m_gyroColumn]),
+        m_modulePositions);
+    }
+  }
+
+  /**
+   * Returns a gyro yaw as a rotation, only allocating when the yaw differs from the last sample's,
+   * as it does whenever the robot is not turning.
+   */
+  private Rotation2d gyroRotation(double yaw) {
+    if (yaw != m_lastGyroYaw) {
+      m_lastGyroYaw = yaw;
+      m_lastGyroRotation = new Rotation2d(yaw);
+    }
+    return m_lastGyroRotation;
+  }
+
+  /**
+   * Records the module references the commands sent this cycle. Call after the scheduler has run.
+   */
+  public void logOutputs() {
+    for (SwerveModule module : m_modules) {
+      module.logOutputs(m_timestamp);
+    }
+  }
+
+  /**
+   * Returns the estimated pose of the robot.
+   *
+   * @return The pose.
+   */
+  public Pose2d getPose() {
+    return m_poseEstimator.getEstimatedPosition();
+  }
+
+  /**
+   * Resets the pose estimate to the given pose.
+   *
+   * @param pose The pose to reset to.
+   */
+  public void resetOdometry(Pose2d pose) {
+    // Consume the samples taken before the reset so they are not applied on top of the new pose
+    updateOdometry();
+
+    for (int i = 0; i < m_modules.length; i++) {
+      m_modulePositions[i].distanceMeters = m_modules[i].getDistance();
+      m_modulePositions[i].angle = m_modules[i].getRotation();
+    }
+    m_poseEstimator.resetPosition(gyroRotation(m_gyro.getYaw()), m_modulePositions, pose);
+  }
+
+  /**
+   * Creates the capture that characterizes the modules' drive motors, driving straight ahead. It
+   * samples once per drive encoder status frame.
+   *
+   * @return The capture, in meters.
+   */
+  public SysIdCapture createDriveCapture() {
+    return new SysIdCapture("Swerve Drive",
+      volts -> {
+        for (SwerveModule module : m_modules) {
+          module.setDriveVoltage(volts);
+        }
+      },
+      () -> {
+        double distance = 0;
+        for (SwerveModule module : m_modules) {
+          distance += module.getDistance();
+        }
+        return distance / m_modules.length;
+      },
+      () -> {
+        double velocity = 0;
+        for (SwerveModule module : m_modules) {
+          velocity += module.getVelocity();
+        }
+        return velocity / m_modules.length;
+      })
+      .withPeriod(CANConstants.kLoopFramePeriodMs / 1000.0);
+  }
+
+  /**
+   * Creates the capture that characterizes the modules' turn motors, turning in place. It samples
+   * once per turn encoder status frame.
+   *
+   * @return The capture, in radians.
+   */
+  public SysIdCapture createTurnCapture() {
+    return new SysIdCapture("Swerve Turn",
+      volts -> {
+        for (SwerveModule module : m_modules) {
+          module.setTurnVoltage(volts);
+        }
+      },
+      () -> {
+        double angle = 0;
+        for (SwerveModule module : m_modules) {
+          angle += module.getAngle();
+        }
+        return angle / m_modules.length;
+      },
+      () -> {
+        double velocity = 0;
+        for (SwerveModule module : m_modules) {
+          velocity += module.getTurnVelocity();
+        }
+        return velocity / m_modules.length;
+      })
+      .withPeriod(OdometryConstants.kStatusFramePeriodMs / 1000.0);
   }
 
   public void runSetpoint() {
     // Set all modules to zero
-    m_frontLeftModule.setDesiredState(new SwerveModuleState(
-      0,
-      Rotation2d.fromDegrees(45)
-    ), 0.25);
-    m_frontRightModule.setDesiredState(new SwerveModuleState(
-      0,
-      Rotation2d.fromDegrees(45)
-    ), 0.25);
-    // m_rearLeftModule.setDesiredState(new SwerveModuleState(
-    //   0,
-    //   Rotation2d.fromDegrees(45)
-    // ), 0.25);
-    m_rearRightModule.setDesiredState(new SwerveModuleState(
-      0,
-      Rotation2d.fromDegrees(45)
-    ), 0.25);
+    m_frontLeftModule.setDesiredState(0, kSetpointAngle, 0.25);
+    m_frontRightModule.setDesiredState(0, kSetpointAngle, 0.25);
+    // m_rearLeftModule.setDesiredState(0, kSetpointAngle, 0.25);
+    m_rearRightModule.setDesiredState(0, kSetpointAngle, 0.25);
   }
 }
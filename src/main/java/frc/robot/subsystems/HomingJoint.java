@@ -0,0 +1,143 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Homes one arm joint against its limit switch, one step per robot cycle.
+ *
+ * <p>The joint approaches the switch quickly, backs off until the switch releases and it has moved
+ * a set distance, then approaches again slowly so the switch trips at a repeatable position. Each
+ * phase times out, so a broken switch stops the joint instead of driving it into the hard stop.
+ */
+class HomingJoint {
+  enum State {
+    kFastApproach,
+    kBackOff,
+    kSlowApproach,
+    kHomed,
+    kFailed
+  }
+
+  private final String m_name;
+  private final double m_towardSwitch;
+  private final double m_fastOutput;
+  private final double m_slowOutput;
+  private final double m_backOffDistance;
+  private final double m_phaseTimeoutSeconds;
+
+  private State m_state = State.kFastApproach;
+  private double m_phaseStartTime = Double.NaN;
+  private double m_touchPosition;
+
+  /**
+   * Creates a new HomingJoint.
+   *
+   * @param name The joint's name, used in error messages.
+   * @param towardSwitch The sign of the output that drives the joint into its switch.
+   * @param fastOutput The magnitude of the first approach's percent output.
+   * @param slowOutput The magnitude of the back off's and second approach's percent output.
+   * @param backOffDistance How far to move away from the switch before the second approach.
+   * @param phaseTimeoutSeconds The longest each phase may take.
+   */
+  HomingJoint(String name, double towardSwitch, double fastOutput, double slowOutput,
+      double backOffDistance, double phaseTimeoutSeconds) {
+    m_name = name;
+    m_towardSwitch = Math.signum(towardSwitch);
+    m_fastOutput = fastOutput;
+    m_slowOutput = slowOutput;
+    m_backOffDistance = backOffDistance;
+    m_phaseTimeoutSeconds = phaseTimeoutSeconds;
+  }
+
+  /** Starts homing again from the fast approach. */
+  void restart() {
+    m_state = State.kFastApproach;
+    m_phaseStartTime = Double.NaN;
+  }
+
+  /**
+   * Advances the state machine and returns the output to apply this cycle.
+   *
+   * @param switchPressed Whether the joint's limit switch is pressed.
+   * @param position The joint's encoder position.
+   * @param nowSeconds The current time.
+   * @return The percent output.
+   */
+  double update(boolean switchPressed, double position, double nowSeconds) {
+    if (Double.isNaN(m_phaseStartTime)) {
+      m_phaseStartTime = nowSeconds;
+    }
+
+    switch (m_state) {
+      case kFastApproach:
+        if (switchPressed) {
+          m_touchPosition = position;
+          enter(State.kBackOff, nowSeconds);
+          return -m_towardSwitch * m_slowOutput;
+        }
+        return timedOut(nowSeconds) ? 0 : m_towardSwitch * m_fastOutput;
+
+      case kBackOff:
+        if (!switchPressed && Math.abs(position - m_touchPosition) >= m_backOffDistance) {
+          enter(State.kSlowApproach, nowSeconds);
+          return m_towardSwitch * m_slowOutput;
+        }
+        return timedOut(nowSeconds) ? 0 : -m_towardSwitch * m_slowOutput;
+
+      case kSlowApproach:
+        if (switchPressed) {
+          enter(State.kHomed, nowSeconds);
+          return 0;
+        }
+        return timedOut(nowSeconds) ? 0 : m_towardSwitch * m_slowOutput;
+
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Fails homing without moving the joint, e.g. when a joint that must home first did not.
+   *
+   * @param reason Why homing cannot proceed, for the error message.
+   */
+  void fail(String reason) {
+    if (isFinished()) {
+      return;
+    }
+
+    DriverStation.reportError(m_name + " homing skipped, " + reason, false);
+    m_state = State.kFailed;
+  }
+
+  private void enter(State state, double nowSeconds) {
+    m_state = state;
+    m_phaseStartTime = nowSeconds;
+  }
+
+  private boolean timedOut(double nowSeconds) {
+    if (nowSeconds - m_phaseStartTime < m_phaseTimeoutSeconds) {
+      return false;
+    }
+
+    DriverStation.reportError(m_name + " homing timed out in " + m_state + ", check its limit switch", false);
+    m_state = State.kFailed;
+    return true;
+  }
+
+  State getState() {
+    return m_state;
+  }
+
+  boolean isHomed() {
+    return m_state == State.kHomed;
+  }
+
+  boolean isFinished() {
+    return m_state == State.kHomed || m_state == State.kFailed;
+  }
+}
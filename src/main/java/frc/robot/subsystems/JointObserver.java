@@ -0,0 +1,115 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SteadyStateKalmanFilter;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.system.Discretization;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+
+/**
+ * Estimates one arm joint's position and velocity with a steady-state Kalman filter.
+ *
+ * <p>The joint is modelled as {@code u = kV * v + kA * a}, predicted from the applied voltage and
+ * corrected by both the encoder position and the FPGA's averaged encoder rate. The gain is solved
+ * once by WPILib's {@link SteadyStateKalmanFilter} and the filter then runs on primitives, so
+ * updating it does not allocate.
+ */
+class JointObserver {
+  // Discrete model and steady-state gain
+  private final double m_a00;
+  private final double m_a01;
+  private final double m_a10;
+  private final double m_a11;
+  private final double m_b0;
+  private final double m_b1;
+  private final double m_k00;
+  private final double m_k01;
+  private final double m_k10;
+  private final double m_k11;
+
+  private double m_position = 0;
+  private double m_velocity = 0;
+
+  /**
+   * Creates a new JointObserver.
+   *
+   * @param kV The voltage per unit per second.
+   * @param kA The voltage per unit per second squared.
+   * @param positionStdDev How far the model's position is trusted.
+   * @param velocityStdDev How far the model's velocity is trusted.
+   * @param positionMeasurementStdDev The encoder position's noise.
+   * @param rateMeasurementStdDev The encoder rate's noise.
+   * @param dtSeconds The period the observer is updated at.
+   */
+  JointObserver(double kV, double kA, double positionStdDev, double velocityStdDev,
+      double positionMeasurementStdDev, double rateMeasurementStdDev, double dtSeconds) {
+    LinearSystem<N2, N1, N1> positionSystem = LinearSystemId.identifyPositionSystem(kV, kA);
+
+    // Measure the velocity as well as the position
+    LinearSystem<N2, N1, N2> system = new LinearSystem<>(
+      positionSystem.getA(), positionSystem.getB(), Matrix.eye(Nat.N2()), new Matrix<>(Nat.N2(), Nat.N1()));
+
+    SteadyStateKalmanFilter<N2, N1, N2> filter = new SteadyStateKalmanFilter<>(Nat.N2(), Nat.N2(), system,
+      VecBuilder.fill(positionStdDev, velocityStdDev),
+      VecBuilder.fill(positionMeasurementStdDev, rateMeasurementStdDev),
+      dtSeconds);
+    Pair<Matrix<N2, N2>, Matrix<N2, N1>> discrete = Discretization.discretizeAB(system.getA(), system.getB(), dtSeconds);
+    Matrix<N2, N2> gain = filter.getK();
+
+    m_a00 = discrete.getFirst().get(0, 0);
+    m_a01 = discrete.getFirst().get(0, 1);
+    m_a10 = discrete.getFirst().get(1, 0);
+    m_a11 = discrete.getFirst().get(1, 1);
+    m_b0 = discrete.getSecond().get(0, 0);
+    m_b1 = discrete.getSecond().get(1, 0);
+    m_k00 = gain.get(0, 0);
+    m_k01 = gain.get(0, 1);
+    m_k10 = gain.get(1, 0);
+    m_k11 = gain.get(1, 1);
+  }
+
+  /**
+   * Resets the estimate to a joint at rest.
+   *
+   * @param position The joint's position.
+   */
+  void reset(double position) {
+    m_position = position;
+    m_velocity = 0;
+  }
+
+  /**
+   * Predicts one period ahead from the voltage applied over it and corrects with the measurements.
+   *
+   * @param volts The voltage applied over the last period, less any voltage holding against gravity.
+   * @param measuredPosition The encoder position.
+   * @param measuredRate The encoder rate.
+   */
+  void update(double volts, double measuredPosition, double measuredRate) {
+    double predictedPosition = m_a00 * m_position + m_a01 * m_velocity + m_b0 * volts;
+    double predictedVelocity = m_a10 * m_position + m_a11 * m_velocity + m_b1 * volts;
+
+    double positionError = measuredPosition - predictedPosition;
+    double rateError = measuredRate - predictedVelocity;
+
+    m_position = predictedPosition + m_k00 * positionError + m_k01 * rateError;
+    m_velocity = predictedVelocity + m_k10 * positionError + m_k11 * rateError;
+  }
+
+  double getPosition() {
+    return m_position;
+  }
+
+  double getVelocity() {
+    return m_velocity;
+  }
+}
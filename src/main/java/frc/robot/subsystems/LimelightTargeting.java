@@ -0,0 +1,96 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDouble;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.util.GyroService;
+
+/**
+ * Turns Limelight frames into a field-relative heading setpoint for aiming.
+ *
+ * <p>Every {@code tx} frame is queued by NetworkTables with the time it arrived. Subtracting the
+ * Limelight's reported pipeline and capture latency gives the time the image was taken, and the
+ * target heading is the gyro heading at that time minus {@code tx}. Aiming at that heading with the
+ * gyro keeps working between frames instead of chasing an image offset that is already stale.
+ */
+public class LimelightTargeting {
+  private final DoubleSubscriber m_txSubscriber;
+  private final DoubleSubscriber m_tySubscriber;
+  private final DoubleSubscriber m_tvSubscriber;
+  private final DoubleSubscriber m_pipelineLatencySubscriber;
+  private final DoubleSubscriber m_captureLatencySubscriber;
+
+  private final GyroService m_gyro = GyroService.getInstance();
+
+  private double m_lastFrameTimestamp = Double.NEGATIVE_INFINITY;
+  private double m_targetHeading = 0;
+  private double m_targetX = 0;
+  private double m_targetDistance = 0;
+
+  /** Creates a new LimelightTargeting. */
+  public LimelightTargeting() {
+    NetworkTable limelight = NetworkTableInstance.getDefault().getTable(VisionConstants.kLimelightTableName);
+
+    // Keep duplicates so a target holding still still produces a sample every frame
+    m_txSubscriber = limelight.getDoubleTopic("tx").subscribe(0,
+      PubSubOption.keepDuplicates(true),
+      PubSubOption.pollStorage(VisionConstants.kLimelightQueueDepth));
+    m_tySubscriber = limelight.getDoubleTopic("ty").subscribe(0);
+    m_tvSubscriber = limelight.getDoubleTopic("tv").subscribe(0);
+    m_pipelineLatencySubscriber = limelight.getDoubleTopic("tl").subscribe(0);
+    m_captureLatencySubscriber = limelight.getDoubleTopic("cl").subscribe(0);
+  }
+
+  /**
+   * Processes every Limelight frame received since the last cycle. Fills in the targeting fields
+   * of the inputs.
+   *
+   * @param inputs The drive inputs for this cycle, with the gyro yaw already read.
+   */
+  public void update(TankDriveInputs inputs) {
+    TimestampedDouble targetValid = m_tvSubscriber.getAtomic();
+    double latencySeconds = (m_pipelineLatencySubscriber.get() + m_captureLatencySubscriber.get()) / 1000.0;
+
+    // Each frame supersedes the last, and only the newest ty is available, so only the newest frame is used
+    boolean newFrame = false;
+    double frameX = 0;
+    double captureTimestamp = 0;
+    for (TimestampedDouble frame : m_txSubscriber.readQueue()) {
+      // Frames published after the Limelight reported losing the target are meaningless
+      if (targetValid.value < 1 && targetValid.timestamp <= frame.timestamp) {
+        continue;
+      }
+
+      frameX = frame.value;
+      captureTimestamp = frame.timestamp / 1e6 - latencySeconds;
+      newFrame = true;
+    }
+
+    double elevation = VisionConstants.kLimelightPitchRadians + Math.toRadians(m_tySubscriber.get());
+    if (newFrame && elevation <= VisionConstants.kMinTargetElevationRadians) {
+      // Near the horizon the distance grows without bound, and below it the target cannot be real.
+      // Drop the target rather than keep steering toward an older frame.
+      m_lastFrameTimestamp = Double.NEGATIVE_INFINITY;
+    } else if (newFrame) {
+      // tx is positive when the target is to the right, the heading is counterclockwise positive
+      m_targetHeading = m_gyro.getYawAt(captureTimestamp) - Math.toRadians(frameX);
+      m_targetX = frameX;
+      m_targetDistance = (VisionConstants.kTargetHeightMeters - VisionConstants.kLimelightHeightMeters)
+        / Math.tan(elevation);
+      m_lastFrameTimestamp = captureTimestamp;
+    }
+
+    inputs.hasTarget = targetValid.value >= 1
+      && inputs.timestampSeconds - m_lastFrameTimestamp < VisionConstants.kTargetTimeoutSeconds;
+    inputs.targetHeading = m_targetHeading;
+    inputs.limelightX = m_targetX;
+    inputs.targetDistance = m_targetDistance;
+  }
+}
@@ -0,0 +1,185 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
+import edu.wpi.first.wpilibj.DigitalInput;
+import frc.robot.util.can.FilteredVictorSPX;
+
+/**
+ * Stops a motor the moment its limit switch closes, instead of when the robot loop next polls it.
+ *
+ * <p>An FPGA interrupt on the switch's edges runs on its own thread. On the pressing edge it cuts
+ * the motor if it is driving toward the switch, blocks further output in that direction until the
+ * switch releases, and records when and where it tripped. It takes none of the arm's locks, so a
+ * writer holding one cannot delay the cut, and waits only for a frame the motor is already sending.
+ * Every output written to the motor must pass through {@link #filter(double)} and be followed by
+ * {@link #enforce()}, so no command can drive past a pressed switch.
+ */
+class LimitSwitchGuard implements AutoCloseable {
+  private final String m_name;
+  private final DigitalInput m_switch;
+  private final FilteredVictorSPX m_motor;
+  private final double m_towardSwitch;
+  private final DoubleSupplier m_position;
+  private final AsynchronousInterrupt m_interrupt;
+
+  // Written by the interrupt thread
+  private volatile boolean m_blocked;
+  private volatile int m_tripCount = 0;
+  private volatile double m_tripTimestamp = Double.NaN;
+  private volatile double m_tripPosition = Double.NaN;
+  private volatile double m_tripOutput = 0;
+
+  // Read by the robot loop
+  private int m_seenTripCount = 0;
+  private int m_overtravelTripCount = 0;
+  private double m_overtravel = 0;
+
+  /**
+   * Creates a new LimitSwitchGuard and starts listening for the switch's edges.
+   *
+   * @param name The joint's name, used in messages.
+   * @param limitSwitch The switch, reading true when pressed.
+   * @param motor The motor it stops.
+   * @param towardSwitch The sign of the output that drives the joint into the switch.
+   * @param position The joint's position, or null if it has no encoder.
+   */
+  LimitSwitchGuard(String name, DigitalInput limitSwitch, FilteredVictorSPX motor, double towardSwitch,
+      DoubleSupplier position) {
+    m_name = name;
+    m_switch = limitSwitch;
+    m_motor = motor;
+    m_towardSwitch = Math.signum(towardSwitch);
+    m_position = position;
+    m_blocked = limitSwitch.get();
+
+    m_interrupt = new AsynchronousInterrupt(limitSwitch, this::onEdge);
+    m_interrupt.setInterruptEdges(true, true);
+    m_interrupt.enable();
+  }
+
+  private void onEdge(Boolean rising, Boolean falling) {
+    // Both edges can be reported for a bouncing switch, trust its current state then
+    boolean pressed = rising && falling ? m_switch.get() : rising;
+
+    if (!pressed) {
+      m_blocked = false;
+      return;
+    }
+
+    m_blocked = true;
+    double output = m_motor.getLastOutput();
+    if (Math.signum(output) == m_towardSwitch) {
+      m_motor.stopImmediately();
+    }
+
+    m_tripTimestamp = m_interrupt.getRisingTimestamp();
+    m_tripPosition = m_position != null ? m_position.getAsDouble() : Double.NaN;
+    m_tripOutput = output;
+    m_tripCount++;
+  }
+
+  /**
+   * Returns the output with any drive toward a pressed switch removed.
+   *
+   * @param output The requested percent output.
+   * @return The percent output that is safe to apply.
+   */
+  double filter(double output) {
+    return m_blocked && Math.signum(output) == m_towardSwitch ? 0 : output;
+  }
+
+  /**
+   * Stops the motor if it is driving toward a pressed switch. Call after every write, since the
+   * switch may trip between {@link #filter(double)} and the write, after the interrupt has already
+   * checked the motor's output.
+   */
+  void enforce() {
+    if (m_blocked && Math.signum(m_motor.getLastOutput()) == m_towardSwitch) {
+      m_motor.stopImmediately();
+    }
+  }
+
+  /**
+   * Tracks how far the joint has travelled past the point it tripped. Call once per cycle.
+   *
+   * @param position The joint's position.
+   */
+  void update(double position) {
+    int count = m_tripCount;
+    if (count != m_overtravelTripCount) {
+      m_overtravelTripCount = count;
+      m_overtravel = 0;
+    }
+
+    if (m_blocked && !Double.isNaN(m_tripPosition)) {
+      m_overtravel = Math.max(m_overtravel, (position - m_tripPosition) * m_towardSwitch);
+    }
+  }
+
+  /**
+   * Returns whether the switch has tripped since the last call. Only one caller may consume trips.
+   *
+   * @return True if there was a new trip.
+   */
+  boolean consumeTrip() {
+    int count = m_tripCount;
+    boolean tripped = count != m_seenTripCount;
+    m_seenTripCount = count;
+    return tripped;
+  }
+
+  boolean isBlocked() {
+    return m_blocked;
+  }
+
+  int getTripCount() {
+    return m_tripCount;
+  }
+
+  /**
+   * Returns the FPGA time of the last trip.
+   *
+   * @return The timestamp in seconds, or NaN if it never tripped.
+   */
+  double getTripTimestamp() {
+    return m_tripTimestamp;
+  }
+
+  /**
+   * Returns the joint's position at the last trip.
+   *
+   * @return The position, or NaN if it never tripped or the joint has no encoder.
+   */
+  double getTripPosition() {
+    return m_tripPosition;
+  }
+
+  double getTripOutput() {
+    return m_tripOutput;
+  }
+
+  /**
+   * Returns how far the joint travelled past the trip position before stopping, measured while the
+   * switch stays pressed.
+   *
+   * @return The overtravel in encoder counts.
+   */
+  double getOvertravel() {
+    return m_overtravel;
+  }
+
+  String getName() {
+    return m_name;
+  }
+
+  @Override
+  public void close() {
+    m_interrupt.close();
+  }
+}
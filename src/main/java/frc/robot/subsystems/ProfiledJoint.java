@@ -0,0 +1,141 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+/**
+ * Moves one arm joint to a goal along a trapezoid motion profile, with position feedback and
+ * velocity feedforward on the profiled setpoint.
+ *
+ * <p>Positions are encoder counts and outputs are percent output. The profile is built once per goal
+ * and sampled by elapsed time, so following it does not rebuild anything. The gain tuner drives the
+ * same class against a simulated joint.
+ */
+public class ProfiledJoint implements AutoCloseable {
+  private final TrapezoidProfile.Constraints m_constraints;
+  private final PIDController m_controller;
+  private final double m_kV;
+  private final double m_minPosition;
+  private final double m_maxPosition;
+  private final double m_tolerance;
+
+  private TrapezoidProfile m_profile;
+  private double m_profileStartTime;
+  private TrapezoidProfile.State m_setpoint = new TrapezoidProfile.State();
+  private double m_goal;
+
+  /**
+   * Creates a new ProfiledJoint.
+   *
+   * @param maxVelocity The profile's maximum velocity in counts per second.
+   * @param maxAcceleration The profile's maximum acceleration in counts per second squared.
+   * @param kP The proportional gain in percent output per count.
+   * @param kV The velocity feedforward in percent output per count per second.
+   * @param minPosition The lowest reachable position.
+   * @param maxPosition The highest reachable position.
+   * @param tolerance How close to the goal counts as there.
+   */
+  public ProfiledJoint(double maxVelocity, double maxAcceleration, double kP, double kV,
+      double minPosition, double maxPosition, double tolerance) {
+    m_constraints = new TrapezoidProfile.Constraints(maxVelocity, maxAcceleration);
+    m_controller = new PIDController(kP, 0, 0);
+    m_kV = kV;
+    m_minPosition = minPosition;
+    m_maxPosition = maxPosition;
+    m_tolerance = tolerance;
+  }
+
+  /**
+   * Starts a new profile to a goal. An active profile is continued from its current setpoint so
+   * retargeting mid-move is smooth, otherwise the profile starts at rest from the measured position.
+   *
+   * @param goal The goal position.
+   * @param position The measured position.
+   * @param nowSeconds The current time.
+   */
+  public void setGoal(double goal, double position, double nowSeconds) {
+    TrapezoidProfile.State initial = m_profile != null
+      ? m_profile.calculate(nowSeconds - m_profileStartTime)
+      : new TrapezoidProfile.State(position, 0);
+
+    m_goal = MathUtil.clamp(goal, m_minPosition, m_maxPosition);
+    m_profile = new TrapezoidProfile(m_constraints, new TrapezoidProfile.State(m_goal, 0), initial);
+    m_profileStartTime = nowSeconds;
+    m_controller.reset();
+  }
+
+  /** Stops following the profile, the next goal starts from the measured position. */
+  void disable() {
+    m_profile = null;
+  }
+
+  boolean isEnabled() {
+    return m_profile != null;
+  }
+
+  /**
+   * Advances the profile and computes the output, without feedforward for gravity.
+   *
+   * @param position The measured position.
+   * @param nowSeconds The current time.
+   * @return The percent output.
+   */
+  public double calculate(double position, double nowSeconds) {
+    m_setpoint = m_profile.calculate(nowSeconds - m_profileStartTime);
+    return track(position, m_setpoint.position, m_setpoint.velocity);
+  }
+
+  /**
+   * Computes the output to follow a setpoint planned elsewhere, without feedforward for gravity.
+   *
+   * @param position The measured position.
+   * @param setpoint The setpoint position.
+   * @param velocity The setpoint velocity.
+   * @return The percent output.
+   */
+  double track(double position, double setpoint, double velocity) {
+    m_setpoint.position = setpoint;
+    m_setpoint.velocity = velocity;
+    return m_controller.calculate(position, setpoint) + m_kV * velocity;
+  }
+
+  double getGoal() {
+    return m_goal;
+  }
+
+  double getSetpoint() {
+    return m_setpoint.position;
+  }
+
+  /**
+   * Returns whether the profile has finished and the joint is within tolerance of the goal.
+   *
+   * @param position The measured position.
+   * @param nowSeconds The current time.
+   * @return True if the joint is at its goal.
+   */
+  boolean atGoal(double position, double nowSeconds) {
+    return m_profile != null
+      && m_profile.isFinished(nowSeconds - m_profileStartTime)
+      && Math.abs(position - m_goal) <= m_tolerance;
+  }
+
+  /**
+   * Returns how long the current profile takes to reach its goal.
+   *
+   * @return The profile's duration in seconds, or 0 if there is no profile.
+   */
+  public double getProfileSeconds() {
+    return m_profile != null ? m_profile.totalTime() : 0;
+  }
+
+  @Override
+  public void close() {
+    m_controller.close();
+  }
+}
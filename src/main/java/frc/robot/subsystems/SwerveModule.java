@@ -9,12 +9,21 @@ import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkMaxPIDController;
 import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
-import com.revrobotics.SparkMaxAlternateEncoder.Type;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import frc.robot.Constants.ModuleConstants;
+import frc.robot.Constants.OdometryConstants;
+import frc.robot.util.can.CANBusPlanner;
+import frc.robot.util.can.CANBusPlanner.Signal;
+import frc.robot.util.can.FilteredSparkMaxPIDController;
+import frc.robot.util.can.SparkMaxConfig;
+import frc.robot.util.can.SparkMaxConfigurator;
+import frc.robot.util.logging.LoggedSignal;
+import frc.robot.util.logging.SignalLogger;
+import frc.robot.util.sysid.SysIdGains;
 
 public class SwerveModule {
   // Motors
@@ -28,120 +37,275 @@ public class SwerveModule {
   // PID Controllers
   private final SparkMaxPIDController m_drivePIDController;
   private final SparkMaxPIDController m_turnPIDController;
+  private final FilteredSparkMaxPIDController m_driveReference;
+  private final FilteredSparkMaxPIDController m_turnReference;
+
+  // Logging
+  private final LoggedSignal m_drivePositionLog;
+  private final LoggedSignal m_driveVelocityLog;
+  private final LoggedSignal m_turnAngleLog;
+  private final LoggedSignal m_driveReferenceLog;
+  private final LoggedSignal m_turnReferenceLog;
+  private final LoggedSignal m_desiredSpeedLog;
+  private final LoggedSignal m_desiredAngleLog;
 
   private final double m_angularOffset;
-  private SwerveModuleState m_desiredState = new SwerveModuleState(0.0, new Rotation2d());
+  private double m_desiredSpeed = 0.0;
+  private double m_desiredAngle = 0.0;
+
+  // Rotation2d is immutable, so rather than allocate whenever the angle changes, getRotation()
+  // returns one of these, one per turn encoder count and shared by every module
+  private static final Rotation2d[] kTurnRotations = new Rotation2d[ModuleConstants.kTurnEncoderCountsPerRev];
+
+  static {
+    for (int count = 0; count < kTurnRotations.length; count++) {
+      kTurnRotations[count] = new Rotation2d(count * ModuleConstants.kTurnEncoderPositionFactor / kTurnRotations.length);
+    }
+  }
 
-  /** Creates a new SwerveModule. */
+  // Preallocated holders returned by the object accessors
+  private final SwerveModuleState m_state = new SwerveModuleState();
+  private final SwerveModulePosition m_position = new SwerveModulePosition();
+
+  /**
+   * Creates a new SwerveModule.
+   *
+   * <p>The controllers are queued on the configurator and are not configured until its
+   * {@link SparkMaxConfigurator#configureAll()} is called.
+   */
   public SwerveModule(
     int driveMotorId,
     int turnMotorId,
     double angularOffset,
-    boolean driveInverted) {
+    boolean driveInverted,
+    SparkMaxConfigurator configurator) {
 
     // Initialize motors
     m_driveSparkMax = new CANSparkMax(driveMotorId, MotorType.kBrushless);
     m_turnSparkMax = new CANSparkMax(turnMotorId, MotorType.kBrushless);
 
-    // Factory reset to get the controllers to a known state before configuration
-    m_driveSparkMax.restoreFactoryDefaults();
-    m_turnSparkMax.restoreFactoryDefaults();
+    // The Spark Max feedforward is duty cycle per meter per second, the characterized kV is in volts
+    double driveFF = SysIdGains.load("Swerve Drive",
+      new SysIdGains(0, ModuleConstants.kDriveFF * ModuleConstants.kNominalVoltage, 0, 0))
+      .getV() / ModuleConstants.kNominalVoltage;
 
-    // Configure motors
-    m_driveSparkMax.setInverted(driveInverted);
-    m_turnSparkMax.setInverted(ModuleConstants.kTurnMotorInverted);
+    // Describe the controller configuration. Only controllers whose stored configuration differs
+    // are factory reset, rewritten and burned to flash.
+    SparkMaxConfig driveConfig = new SparkMaxConfig()
+      .setInverted(driveInverted)
+      .setIdleMode(ModuleConstants.kDriveMotorIdleMode)
+      .setConversionFactors(ModuleConstants.kDriveEncoderPositionFactor, ModuleConstants.kDriveEncoderVelocityFactor)
+      .setPIDF(ModuleConstants.kDriveP, ModuleConstants.kDriveI, ModuleConstants.kDriveD, driveFF)
+      .setOutputRange(ModuleConstants.kDriveMinOutput, ModuleConstants.kDriveMaxOutput);
+    SparkMaxConfig turnConfig = new SparkMaxConfig()
+      .setInverted(ModuleConstants.kTurnMotorInverted)
+      .setIdleMode(ModuleConstants.kTurnMotorIdleMode)
+      .setAlternateEncoder(ModuleConstants.kTurnEncoderCountsPerRev)
+      .setConversionFactors(ModuleConstants.kTurnEncoderPositionFactor, ModuleConstants.kTurnEncoderVelocityFactor)
+      .setPIDF(ModuleConstants.kTurnP, ModuleConstants.kTurnI, ModuleConstants.kTurnD, ModuleConstants.kTurnFF)
+      .setOutputRange(ModuleConstants.kTurnMinOutput, ModuleConstants.kTurnMaxOutput)
+      .setPositionWrapping(ModuleConstants.kTurnEncoderPositionPIDMinInput, ModuleConstants.kTurnEncoderPositionPIDMaxInput);
 
-    m_driveSparkMax.setIdleMode(ModuleConstants.kDriveMotorIdleMode);
-    m_turnSparkMax.setIdleMode(ModuleConstants.kTurnMotorIdleMode);
+    configurator.add(m_driveSparkMax, driveConfig);
+    configurator.add(m_turnSparkMax, turnConfig);
 
-    // Initialize encoders
-    m_driveEncoder = m_driveSparkMax.getEncoder();
-    m_turnEncoder = m_turnSparkMax.getAlternateEncoder(Type.kQuadrature, 4096);
-
-    // Configure encoders
-    m_driveEncoder.setPositionConversionFactor(ModuleConstants.kDriveEncoderPositionFactor);
-    m_driveEncoder.setVelocityConversionFactor(ModuleConstants.kDriveEncoderVelocityFactor);
+    // getState() and getPosition() read drive velocity and position, the turn angle comes from the alternate encoder.
+    // Position and angle are sampled by the odometry thread, so they are sent as often as it runs.
+    CANBusPlanner canBusPlanner = CANBusPlanner.getInstance();
+    canBusPlanner.addSparkMax("Module " + driveMotorId + " Drive", m_driveSparkMax)
+      .reads(Signal.kVelocity)
+      .reads(Signal.kPosition, OdometryConstants.kStatusFramePeriodMs);
+    canBusPlanner.addSparkMax("Module " + turnMotorId + " Turn", m_turnSparkMax)
+      .reads(Signal.kAlternateEncoder, OdometryConstants.kStatusFramePeriodMs);
 
-    m_turnEncoder.setPositionConversionFactor(ModuleConstants.kTurnEncoderPositionFactor);
-    m_turnEncoder.setVelocityConversionFactor(ModuleConstants.kTurnEncoderVelocityFactor);
+    // Initialize encoders
+    m_driveEncoder = driveConfig.getEncoder(m_driveSparkMax);
+    m_turnEncoder = turnConfig.getEncoder(m_turnSparkMax);
 
     // Initialize PID controllers
     m_drivePIDController = m_driveSparkMax.getPIDController();
     m_turnPIDController = m_turnSparkMax.getPIDController();
 
-    // Configure PID controllers
-    m_drivePIDController.setP(ModuleConstants.kDriveP);
-    m_drivePIDController.setI(ModuleConstants.kDriveI);
-    m_drivePIDController.setD(ModuleConstants.kDriveD);
-    m_drivePIDController.setFF(ModuleConstants.kDriveFF);
+    m_driveReference = new FilteredSparkMaxPIDController(m_drivePIDController);
+    m_turnReference = new FilteredSparkMaxPIDController(m_turnPIDController);
 
-    m_drivePIDController.setOutputRange(ModuleConstants.kDriveMinOutput, ModuleConstants.kDriveMaxOutput);
-    m_drivePIDController.setFeedbackDevice(m_driveEncoder);
+    SignalLogger logger = SignalLogger.getInstance();
+    String logPrefix = "Module " + driveMotorId + "/";
+    m_drivePositionLog = logger.addDouble(logPrefix + "Drive Position");
+    m_driveVelocityLog = logger.addDouble(logPrefix + "Drive Velocity");
+    m_turnAngleLog = logger.addDouble(logPrefix + "Turn Angle");
+    m_driveReferenceLog = logger.addDouble(logPrefix + "Drive Reference");
+    m_turnReferenceLog = logger.addDouble(logPrefix + "Turn Reference");
+    m_desiredSpeedLog = logger.addDouble(logPrefix + "Desired Speed");
+    m_desiredAngleLog = logger.addDouble(logPrefix + "Desired Angle");
 
-    m_turnPIDController.setP(ModuleConstants.kTurnP);
-    m_turnPIDController.setI(ModuleConstants.kTurnI);
-    m_turnPIDController.setD(ModuleConstants.kTurnD);
-    m_turnPIDController.setFF(ModuleConstants.kTurnFF);
+    m_angularOffset = angularOffset;
+  }
 
-    m_turnPIDController.setOutputRange(ModuleConstants.kTurnMinOutput, ModuleConstants.kTurnMaxOutput);
-    m_turnPIDController.setFeedbackDevice(m_turnEncoder);
+  /**
+   * Returns the module's turn angle.
+   *
+   * @return The turn angle in radians.
+   */
+  public double getAngle() {
+    return m_turnEncoder.getPosition();
+  }
 
-    m_turnPIDController.setPositionPIDWrappingEnabled(true);
-    m_turnPIDController.setPositionPIDWrappingMinInput(ModuleConstants.kTurnEncoderPositionPIDMinInput);
-    m_turnPIDController.setPositionPIDWrappingMaxInput(ModuleConstants.kTurnEncoderPositionPIDMaxInput);
+  /**
+   * Returns the module's drive velocity.
+   *
+   * @return The drive velocity in meters per second.
+   */
+  public double getVelocity() {
+    return m_driveEncoder.getVelocity();
+  }
 
-    // Save controller configuration
-    m_driveSparkMax.burnFlash();
-    m_turnSparkMax.burnFlash();
+  /**
+   * Returns the module's turn velocity.
+   *
+   * @return The turn velocity in radians per second.
+   */
+  public double getTurnVelocity() {
+    return m_turnEncoder.getVelocity();
+  }
 
-    m_angularOffset = angularOffset;
-    m_desiredState.angle = getRotation();
-    m_driveEncoder.setPosition(0);
+  /**
+   * Returns the distance driven by the module.
+   *
+   * @return The drive distance in meters.
+   */
+  public double getDistance() {
+    return m_driveEncoder.getPosition();
   }
 
+  /**
+   * Returns the module's turn angle, wrapped to one revolution at the turn encoder's resolution.
+   * This does not allocate.
+   *
+   * @return The turn angle.
+   */
   public Rotation2d getRotation() {
-    return new Rotation2d(m_turnEncoder.getPosition());
+    return rotationAt(getAngle());
   }
 
   /**
-   * Returns the current state of the module.
+   * Returns a turn angle as a rotation, wrapped to one revolution at the turn encoder's resolution.
+   * This does not allocate.
+   *
+   * @param angle The turn angle in radians, as read from a turn encoder.
+   * @return The rotation.
+   */
+  static Rotation2d rotationAt(double angle) {
+    long count = Math.round(angle / ModuleConstants.kTurnEncoderPositionFactor * kTurnRotations.length);
+    return kTurnRotations[(int) Math.floorMod(count, (long) kTurnRotations.length)];
+  }
+
+  /**
+   * Returns the current state of the module. The returned object is reused by later calls.
    * 
    * @return The current state of the module.
    */
   public SwerveModuleState getState() {
-    // Apply the angular offset of the encoder to get the position relative to the robot
-    return new SwerveModuleState(m_driveEncoder.getVelocity(),
-      getRotation());
+    m_state.speedMetersPerSecond = getVelocity();
+    m_state.angle = getRotation();
+    return m_state;
   }
 
   /**
-   * Returns the current position of the module.
+   * Returns the current position of the module. The returned object is reused by later calls.
    * 
    * @return The current position of the module.
    */
   public SwerveModulePosition getPosition() {
-    // Apply the angular offset of the encoder to get the position relative to the robot
-    return new SwerveModulePosition(
-      m_driveEncoder.getPosition(),
-      getRotation());
+    m_position.distanceMeters = getDistance();
+    m_position.angle = getRotation();
+    return m_position;
   }
 
   public void setDesiredState(SwerveModuleState desiredState, double rotation) {
-    // Apply the angular offset to the desired state
-    SwerveModuleState correctedDesiredState = new SwerveModuleState();
-    correctedDesiredState.speedMetersPerSecond = desiredState.speedMetersPerSecond;
-    correctedDesiredState.angle = desiredState.angle.plus(Rotation2d.fromRadians(m_angularOffset));
+    setDesiredState(desiredState.speedMetersPerSecond, desiredState.angle.getRadians(), rotation);
+  }
+
+  /**
+   * Sets the desired speed and angle of the module without allocating.
+   *
+   * @param speedMetersPerSecond The desired drive speed in meters per second.
+   * @param angleRadians The desired angle relative to the robot in radians.
+   * @param rotation The turn reference sent to the turn controller.
+   */
+  public void setDesiredState(double speedMetersPerSecond, double angleRadians, double rotation) {
+    // Apply the angular offset to the desired angle
+    double speed = speedMetersPerSecond;
+    double angle = angleRadians + m_angularOffset;
 
     // Optimize the reference state to avoid spinning further than 90 degrees
-    SwerveModuleState optimizedDesiredState = SwerveModuleState.optimize(desiredState,
-      getRotation());
+    if (shouldReverse(angle, getAngle())) {
+      speed = -speed;
+      angle += Math.PI;
+    }
 
     // Set references for the PID controllers
-    m_drivePIDController.setReference(optimizedDesiredState.speedMetersPerSecond, ControlType.kVelocity);
-    // m_turnPIDController.setReference(optimizedDesiredState.angle.getRadians(), ControlType.kPosition);
-    m_turnPIDController.setReference(rotation, ControlType.kPosition);
+    m_driveReference.setReference(speed, ControlType.kVelocity);
+    // m_turnReference.setReference(angle, ControlType.kPosition);
+    m_turnReference.setReference(rotation, ControlType.kPosition);
 
-    m_desiredState = optimizedDesiredState;
+    m_desiredSpeed = speed;
+    m_desiredAngle = MathUtil.angleModulus(angle);
+  }
+
+  /**
+   * Drives the module at a voltage with the wheel held straight ahead, for characterization.
+   *
+   * @param volts The drive voltage.
+   */
+  public void setDriveVoltage(double volts) {
+    m_turnReference.setReference(m_angularOffset, ControlType.kPosition);
+    m_driveSparkMax.setVoltage(volts);
+  }
+
+  /**
+   * Turns the module at a voltage with the drive stopped, for characterization.
+   *
+   * @param volts The turn voltage.
+   */
+  public void setTurnVoltage(double volts) {
+    m_driveSparkMax.setVoltage(0);
+    m_turnSparkMax.setVoltage(volts);
+  }
+
+  /**
+   * Returns whether reaching a desired angle is shorter by turning to the opposite angle and
+   * reversing the drive, matching {@link SwerveModuleState#optimize}.
+   *
+   * @param desiredAngle The desired angle in radians.
+   * @param currentAngle The current angle in radians.
+   * @return True if the module should reverse instead of turning more than 90 degrees.
+   */
+  static boolean shouldReverse(double desiredAngle, double currentAngle) {
+    return Math.abs(MathUtil.angleModulus(desiredAngle - currentAngle)) > Math.PI / 2;
+  }
+
+  /**
+   * Records the module's sensors.
+   *
+   * @param timestampMicros The FPGA time of this cycle, in microseconds.
+   */
+  public void logInputs(long timestampMicros) {
+    m_drivePositionLog.record(timestampMicros, m_driveEncoder.getPosition());
+    m_driveVelocityLog.record(timestampMicros, m_driveEncoder.getVelocity());
+    m_turnAngleLog.record(timestampMicros, m_turnEncoder.getPosition());
+  }
+
+  /**
+   * Records the references the commands sent to the module's controllers this cycle.
+   *
+   * @param timestampMicros The FPGA time of the cycle's inputs, in microseconds.
+   */
+  public void logOutputs(long timestampMicros) {
+    m_driveReferenceLog.record(timestampMicros, m_driveReference.getLastReference());
+    m_turnReferenceLog.record(timestampMicros, m_turnReference.getLastReference());
+    m_desiredSpeedLog.record(timestampMicros, m_desiredSpeed);
+    m_desiredAngleLog.record(timestampMicros, m_desiredAngle);
   }
 
   /**
@@ -0,0 +1,44 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+/**
+ * Snapshot of every drive sensor, read once at the start of each cycle.
+ *
+ * <p>The instance is preallocated and overwritten in place, so control logic and telemetry within a
+ * cycle all see the same values.
+ */
+public class TankDriveInputs {
+  public double timestampSeconds;
+
+  // Turn encoder positions (Motor rotations)
+  public double frontLeftTurnPosition;
+  public double frontRightTurnPosition;
+  public double rearLeftTurnPosition;
+  public double rearRightTurnPosition;
+
+  // Drive distances, averaged over each side and positive driving forward (Meters)
+  public double leftDistance;
+  public double rightDistance;
+
+  // Drive velocities, averaged over each side and positive driving forward (Meters per second)
+  public double leftVelocity;
+  public double rightVelocity;
+
+  // Gyro yaw, counterclockwise positive (Radians)
+  public double gyroYaw;
+
+  // Horizontal offset to the vision target in the latest Limelight frame (Degrees)
+  public double limelightX;
+
+  // Whether the Limelight has seen a target recently
+  public boolean hasTarget;
+
+  // Heading that points at the target, compensated for camera latency (Radians)
+  public double targetHeading;
+
+  // Floor distance to the vision target, from its vertical offset (Meters)
+  public double targetDistance;
+}
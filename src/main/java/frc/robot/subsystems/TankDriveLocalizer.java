@@ -0,0 +1,112 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.Optional;
+
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonCamera;
+import org.photonvision.PhotonPoseEstimator;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.DifferentialDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.util.logging.LogReplay;
+
+/**
+ * Estimates the tank drive's field pose from wheel encoders, the gyro and AprilTag poses from
+ * PhotonVision.
+ *
+ * <p>Odometry is applied every cycle from the drive inputs. Vision poses are applied at the
+ * camera's capture timestamp; the estimator replays the odometry recorded since then on top of the
+ * correction, so a late frame corrects the pose as of when it was captured.
+ */
+public class TankDriveLocalizer {
+  private final DifferentialDriveKinematics m_kinematics = new DifferentialDriveKinematics(DriveConstants.kTrackWidth);
+  private final DifferentialDrivePoseEstimator m_poseEstimator;
+
+  private final PhotonCamera m_camera = new PhotonCamera(VisionConstants.kCameraName);
+  private final PhotonPoseEstimator m_visionEstimator;
+  private double m_lastVisionTimestamp = 0;
+
+  /**
+   * Creates a new TankDriveLocalizer starting at the origin.
+   *
+   * @param inputs The drive inputs at startup.
+   */
+  public TankDriveLocalizer(TankDriveInputs inputs) {
+    m_poseEstimator = new DifferentialDrivePoseEstimator(
+      m_kinematics,
+      new Rotation2d(inputs.gyroYaw),
+      inputs.leftDistance,
+      inputs.rightDistance,
+      new Pose2d(),
+      VecBuilder.fill(VisionConstants.kStateStdDevs[0], VisionConstants.kStateStdDevs[1], VisionConstants.kStateStdDevs[2]),
+      VecBuilder.fill(VisionConstants.kVisionStdDevs[0], VisionConstants.kVisionStdDevs[1], VisionConstants.kVisionStdDevs[2]));
+
+    PhotonPoseEstimator visionEstimator = null;
+    try {
+      visionEstimator = new PhotonPoseEstimator(
+        AprilTagFields.k2023ChargedUp.loadAprilTagLayoutField(),
+        PoseStrategy.MULTI_TAG_PNP,
+        m_camera,
+        VisionConstants.kRobotToCamera);
+      visionEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+    } catch (RuntimeException e) {
+      DriverStation.reportError("Failed to load the AprilTag field layout, vision is disabled", e.getStackTrace());
+    }
+    m_visionEstimator = visionEstimator;
+  }
+
+  /**
+   * Applies this cycle's odometry and any new vision pose.
+   *
+   * @param inputs The drive inputs for this cycle.
+   */
+  public void update(TankDriveInputs inputs) {
+    m_poseEstimator.updateWithTime(
+      inputs.timestampSeconds,
+      new Rotation2d(inputs.gyroYaw),
+      inputs.leftDistance,
+      inputs.rightDistance);
+
+    // The camera is not replayed, replay runs on wheel odometry alone
+    if (m_visionEstimator == null || LogReplay.isActive()) {
+      return;
+    }
+
+    Optional<EstimatedRobotPose> visionPose = m_visionEstimator.update();
+    if (visionPose.isPresent() && visionPose.get().timestampSeconds > m_lastVisionTimestamp) {
+      m_lastVisionTimestamp = visionPose.get().timestampSeconds;
+      m_poseEstimator.addVisionMeasurement(visionPose.get().estimatedPose.toPose2d(), m_lastVisionTimestamp);
+    }
+  }
+
+  /**
+   * Returns the estimated pose of the robot.
+   *
+   * @return The pose.
+   */
+  public Pose2d getPose() {
+    return m_poseEstimator.getEstimatedPosition();
+  }
+
+  /**
+   * Resets the pose estimate to the given pose.
+   *
+   * @param inputs The drive inputs for this cycle.
+   * @param pose The pose to reset to.
+   */
+  public void resetPose(TankDriveInputs inputs, Pose2d pose) {
+    m_poseEstimator.resetPosition(new Rotation2d(inputs.gyroYaw), inputs.leftDistance, inputs.rightDistance, pose);
+  }
+}
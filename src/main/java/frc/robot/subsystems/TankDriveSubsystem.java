@@ -7,18 +7,42 @@ import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.filter.SlewRateLimiter;
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive.WheelSpeeds;
 import edu.wpi.first.wpilibj.motorcontrol.MotorControllerGroup;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.CANConstants;
 import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.ModuleConstants;
+import frc.robot.Constants.SimConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.GyroService;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SimBattery;
+import frc.robot.util.can.CANBusPlanner;
+import frc.robot.util.can.CANBusPlanner.Signal;
+import frc.robot.util.can.FilteredSparkMaxPIDController;
+import frc.robot.util.can.SparkMaxConfig;
+import frc.robot.util.can.SparkMaxConfigurator;
+import frc.robot.util.logging.LogReplay;
+import frc.robot.util.logging.LoggedSignal;
+import frc.robot.util.logging.SignalLogger;
+import frc.robot.util.sysid.SysIdCapture;
+import frc.robot.util.sysid.SysIdGains;
+import frc.robot.util.telemetry.TelemetryDouble;
+import frc.robot.util.telemetry.TelemetryVerbosity;
 
 public class TankDriveSubsystem extends SubsystemBase {
   private CANSparkMax m_frontLeftDriveMotor;
@@ -30,6 +54,11 @@ public class TankDriveSubsystem extends SubsystemBase {
   private CANSparkMax m_rearRightDriveMotor;
   private CANSparkMax m_rearRightTurnMotor;
 
+  private RelativeEncoder m_frontLeftDriveEncoder;
+  private RelativeEncoder m_frontRightDriveEncoder;
+  private RelativeEncoder m_rearLeftDriveEncoder;
+  private RelativeEncoder m_rearRightDriveEncoder;
+
   private RelativeEncoder m_frontLeftTurnEncoder;
   private RelativeEncoder m_frontRightTurnEncoder;
   private RelativeEncoder m_rearLeftTurnEncoder;
@@ -40,8 +69,22 @@ public class TankDriveSubsystem extends SubsystemBase {
   private SparkMaxPIDController m_rearLeftTurnPIDController;
   private SparkMaxPIDController m_rearRightTurnPIDController;
 
+  private FilteredSparkMaxPIDController m_frontLeftTurnReference;
+  private FilteredSparkMaxPIDController m_frontRightTurnReference;
+  private FilteredSparkMaxPIDController m_rearLeftTurnReference;
+  private FilteredSparkMaxPIDController m_rearRightTurnReference;
+
   private PIDController m_visionPIDController;
 
+  // Wheel speed control
+  // Measured by CharacterizeCmd once its fitted gains are deployed, estimated until then
+  private final SysIdGains m_driveGains = SysIdGains.load("Drive",
+    new SysIdGains(DriveConstants.kDriveS, DriveConstants.kDriveV, DriveConstants.kDriveA, 0));
+  private final SimpleMotorFeedforward m_driveFeedforward =
+    new SimpleMotorFeedforward(m_driveGains.getS(), m_driveGains.getV(), m_driveGains.getA());
+  private final PIDController m_leftVelocityController = new PIDController(DriveConstants.kDriveVelocityP, 0, 0);
+  private final PIDController m_rightVelocityController = new PIDController(DriveConstants.kDriveVelocityP, 0, 0);
+
   private DifferentialDrive m_driveTrain;
   private MotorControllerGroup m_leftDrive;
   private MotorControllerGroup m_rightDrive;
@@ -52,10 +95,52 @@ public class TankDriveSubsystem extends SubsystemBase {
   private double m_desiredAngle = 0;
   private boolean m_alignModules = true;
 
-  // Network Table Instance
-  private NetworkTableInstance m_netInst;
-  private NetworkTable m_limelight;
-  private NetworkTableEntry m_limelightX;
+  private final TankDriveInputs m_inputs = new TankDriveInputs();
+
+  // Localization
+  private final GyroService m_gyro = GyroService.getInstance();
+  private final TankDriveLocalizer m_localizer;
+
+  // Vision
+  private final LimelightTargeting m_targeting = new LimelightTargeting();
+
+  // Drivetrain physics, only in simulation
+  private DifferentialDrivetrainSim m_driveSim;
+
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private final int m_profilerId = m_profiler.register("TankDriveSubsystem.periodic()");
+
+  // Logging
+  private final SignalLogger m_logger = SignalLogger.getInstance();
+  private final LoggedSignal m_frontLeftTurnPositionLog = m_logger.addDouble("Drive/Front Left Turn Position");
+  private final LoggedSignal m_frontRightTurnPositionLog = m_logger.addDouble("Drive/Front Right Turn Position");
+  private final LoggedSignal m_rearLeftTurnPositionLog = m_logger.addDouble("Drive/Rear Left Turn Position");
+  private final LoggedSignal m_rearRightTurnPositionLog = m_logger.addDouble("Drive/Rear Right Turn Position");
+  private final LoggedSignal m_leftDistanceLog = m_logger.addDouble("Drive/Left Distance");
+  private final LoggedSignal m_rightDistanceLog = m_logger.addDouble("Drive/Right Distance");
+  private final LoggedSignal m_leftVelocityLog = m_logger.addDouble("Drive/Left Velocity");
+  private final LoggedSignal m_rightVelocityLog = m_logger.addDouble("Drive/Right Velocity");
+  private final LoggedSignal m_gyroYawLog = m_logger.addDouble("Drive/Gyro Yaw");
+  private final LoggedSignal m_poseXLog = m_logger.addDouble("Drive/Pose X");
+  private final LoggedSignal m_poseYLog = m_logger.addDouble("Drive/Pose Y");
+  private final LoggedSignal m_poseRotationLog = m_logger.addDouble("Drive/Pose Rotation");
+  private final LoggedSignal m_limelightXLog = m_logger.addDouble("Drive/Limelight X");
+  private final LoggedSignal m_hasTargetLog = m_logger.addBoolean("Drive/Has Target");
+  private final LoggedSignal m_targetHeadingLog = m_logger.addDouble("Drive/Target Heading");
+  private final LoggedSignal m_targetDistanceLog = m_logger.addDouble("Drive/Target Distance");
+  private final LoggedSignal m_desiredAngleLog = m_logger.addDouble("Drive/Desired Turn Angle");
+  private final LoggedSignal m_leftOutputLog = m_logger.addDouble("Drive/Left Output");
+  private final LoggedSignal m_rightOutputLog = m_logger.addDouble("Drive/Right Output");
+
+  // Telemetry
+  private final TelemetryDouble m_frontLeftEncoderTelemetry = new TelemetryDouble("Front Left Encoder",
+    TelemetryConstants.kTurnEncoderDeadband, TelemetryConstants.kSlowDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryDouble m_frontRightEncoderTelemetry = new TelemetryDouble("Front Right Encoder",
+    TelemetryConstants.kTurnEncoderDeadband, TelemetryConstants.kSlowDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryDouble m_rearLeftEncoderTelemetry = new TelemetryDouble("Rear Left Encoder",
+    TelemetryConstants.kTurnEncoderDeadband, TelemetryConstants.kSlowDivider, TelemetryVerbosity.kDebug);
+  private final TelemetryDouble m_rearRightEncoderTelemetry = new TelemetryDouble("Rear Right Encoder",
+    TelemetryConstants.kTurnEncoderDeadband, TelemetryConstants.kSlowDivider, TelemetryVerbosity.kDebug);
 
   public TankDriveSubsystem() {
     m_frontLeftDriveMotor = new CANSparkMax(DriveConstants.kFrontLeftDriveMotorId, MotorType.kBrushless);
@@ -67,29 +152,36 @@ public class TankDriveSubsystem extends SubsystemBase {
     m_rearRightDriveMotor = new CANSparkMax(DriveConstants.kRearRightDriveMotorId, MotorType.kBrushless);
     m_rearRightTurnMotor = new CANSparkMax(DriveConstants.kRearRightTurnMotorId, MotorType.kBrushless);
 
+    // Get drive encoders
+    m_frontLeftDriveEncoder = m_frontLeftDriveMotor.getEncoder();
+    m_frontRightDriveEncoder = m_frontRightDriveMotor.getEncoder();
+    m_rearLeftDriveEncoder = m_rearLeftDriveMotor.getEncoder();
+    m_rearRightDriveEncoder = m_rearRightDriveMotor.getEncoder();
+
     // Get turn encoders
     m_frontLeftTurnEncoder = m_frontLeftTurnMotor.getEncoder();
     m_frontRightTurnEncoder = m_frontRightTurnMotor.getEncoder();
     m_rearLeftTurnEncoder = m_rearLeftTurnMotor.getEncoder();
     m_rearRightTurnEncoder = m_rearRightTurnMotor.getEncoder();
 
-    // Reset turn Spark Maxs to factory defaults
-    m_frontLeftTurnMotor.restoreFactoryDefaults();
-    m_frontRightTurnMotor.restoreFactoryDefaults();
-    m_rearLeftTurnMotor.restoreFactoryDefaults();
-    m_rearRightTurnMotor.restoreFactoryDefaults();
-    
-    m_frontLeftTurnMotor.setInverted(DriveConstants.kFrontLeftTurnMotorInverted);
-    m_frontRightTurnMotor.setInverted(DriveConstants.kFrontRightTurnMotorInverted);
-    m_rearLeftTurnMotor.setInverted(DriveConstants.kRearLeftTurnMotorInverted);
-    m_rearRightTurnMotor.setInverted(DriveConstants.kRearRightTurnMotorInverted);
-
-
-    // Configure turn Spark Maxs' idle mode
-    m_frontLeftTurnMotor.setIdleMode(IdleMode.kBrake);
-    m_frontRightTurnMotor.setIdleMode(IdleMode.kBrake);
-    m_rearLeftTurnMotor.setIdleMode(IdleMode.kBrake);
-    m_rearRightTurnMotor.setIdleMode(IdleMode.kBrake);
+    // Configure turn Spark Maxs concurrently, skipping any whose stored configuration already matches
+    SparkMaxConfigurator configurator = new SparkMaxConfigurator();
+    configurator.add(m_frontLeftTurnMotor, turnMotorConfig(DriveConstants.kFrontLeftTurnMotorInverted));
+    configurator.add(m_frontRightTurnMotor, turnMotorConfig(DriveConstants.kFrontRightTurnMotorInverted));
+    configurator.add(m_rearLeftTurnMotor, turnMotorConfig(DriveConstants.kRearLeftTurnMotorInverted));
+    configurator.add(m_rearRightTurnMotor, turnMotorConfig(DriveConstants.kRearRightTurnMotorInverted));
+    configurator.configureAll();
+
+    // Drive positions feed the pose estimator, drive velocities the wheel speed control and turn positions the telemetry
+    CANBusPlanner canBusPlanner = CANBusPlanner.getInstance();
+    canBusPlanner.addSparkMax("Front Left Drive", m_frontLeftDriveMotor).reads(Signal.kPosition).reads(Signal.kVelocity);
+    canBusPlanner.addSparkMax("Front Right Drive", m_frontRightDriveMotor).reads(Signal.kPosition).reads(Signal.kVelocity);
+    canBusPlanner.addSparkMax("Rear Left Drive", m_rearLeftDriveMotor).reads(Signal.kPosition).reads(Signal.kVelocity);
+    canBusPlanner.addSparkMax("Rear Right Drive", m_rearRightDriveMotor).reads(Signal.kPosition).reads(Signal.kVelocity);
+    canBusPlanner.addSparkMax("Front Left Turn", m_frontLeftTurnMotor).reads(Signal.kPosition);
+    canBusPlanner.addSparkMax("Front Right Turn", m_frontRightTurnMotor).reads(Signal.kPosition);
+    canBusPlanner.addSparkMax("Rear Left Turn", m_rearLeftTurnMotor).reads(Signal.kPosition);
+    canBusPlanner.addSparkMax("Rear Right Turn", m_rearRightTurnMotor).reads(Signal.kPosition);
 
     // Create motor controller groups and drivetrain
     m_leftDrive = new MotorControllerGroup(m_frontLeftDriveMotor, m_rearLeftDriveMotor);
@@ -112,52 +204,208 @@ public class TankDriveSubsystem extends SubsystemBase {
       AutoConstants.kVisionI,
       AutoConstants.kVisionD
     );
+    m_visionPIDController.enableContinuousInput(-180, 180);
+
+    // Only send turn references when the desired angle changes
+    m_frontLeftTurnReference = new FilteredSparkMaxPIDController(m_frontLeftTurnPIDController);
+    m_frontRightTurnReference = new FilteredSparkMaxPIDController(m_frontRightTurnPIDController);
+    m_rearLeftTurnReference = new FilteredSparkMaxPIDController(m_rearLeftTurnPIDController);
+    m_rearRightTurnReference = new FilteredSparkMaxPIDController(m_rearRightTurnPIDController);
+
+    if (RobotBase.isSimulation() && !LogReplay.isActive()) {
+      m_driveSim = new DifferentialDrivetrainSim(
+        DCMotor.getNEO(2),
+        ModuleConstants.kDriveMotorRatio,
+        SimConstants.kRobotMomentOfInertia,
+        SimConstants.kRobotMassKg,
+        ModuleConstants.kWheelDiameterMeters / 2,
+        DriveConstants.kTrackWidth,
+        null);
+    }
 
-    // Configure PID controllers
-    m_frontLeftTurnPIDController.setP(DriveConstants.kP);
-    m_frontLeftTurnPIDController.setI(DriveConstants.kI);
-    m_frontLeftTurnPIDController.setD(DriveConstants.kD);
-    m_frontLeftTurnPIDController.setFF(DriveConstants.kFF);
+    updateInputs();
+    m_localizer = new TankDriveLocalizer(m_inputs);
+  }
 
-    m_frontRightTurnPIDController.setP(DriveConstants.kP);
-    m_frontRightTurnPIDController.setI(DriveConstants.kI);
-    m_frontRightTurnPIDController.setD(DriveConstants.kD);
-    m_frontRightTurnPIDController.setFF(DriveConstants.kFF);
+  private static SparkMaxConfig turnMotorConfig(boolean inverted) {
+    return new SparkMaxConfig()
+      .setInverted(inverted)
+      .setIdleMode(IdleMode.kBrake)
+      .setPIDF(DriveConstants.kP, DriveConstants.kI, DriveConstants.kD, DriveConstants.kFF);
+  }
 
-    m_rearLeftTurnPIDController.setP(DriveConstants.kP);
-    m_rearLeftTurnPIDController.setI(DriveConstants.kI);
-    m_rearLeftTurnPIDController.setD(DriveConstants.kD);
-    m_rearLeftTurnPIDController.setFF(DriveConstants.kFF);
+  @Override
+  public void periodic() {
+    m_profiler.start(m_profilerId);
+
+    // Subsystem periodics run before commands, so this snapshot is what drive commands see
+    updateInputs();
+    m_localizer.update(m_inputs);
+    logInputs();
 
-    m_rearRightTurnPIDController.setP(DriveConstants.kP);
-    m_rearRightTurnPIDController.setI(DriveConstants.kI);
-    m_rearRightTurnPIDController.setD(DriveConstants.kD);
-    m_rearRightTurnPIDController.setFF(DriveConstants.kFF);
+    if (m_alignModules) {
+      m_frontLeftTurnReference.setReference(m_desiredAngle, ControlType.kPosition);
+      m_frontRightTurnReference.setReference(m_desiredAngle, ControlType.kPosition);
+      m_rearLeftTurnReference.setReference(m_desiredAngle, ControlType.kPosition);
+      m_rearRightTurnReference.setReference(m_desiredAngle, ControlType.kPosition);
+    }
 
-    m_frontLeftTurnPIDController.setFeedbackDevice(m_frontLeftTurnEncoder);
-    m_frontRightTurnPIDController.setFeedbackDevice(m_frontRightTurnEncoder);
-    m_rearLeftTurnPIDController.setFeedbackDevice(m_rearLeftTurnEncoder);
-    m_rearRightTurnPIDController.setFeedbackDevice(m_rearRightTurnEncoder);
+    m_frontLeftEncoderTelemetry.set(m_inputs.frontLeftTurnPosition * ModuleConstants.kTurnMotorRatio);
+    m_frontRightEncoderTelemetry.set(m_inputs.frontRightTurnPosition * ModuleConstants.kTurnMotorRatio);
+    m_rearLeftEncoderTelemetry.set(m_inputs.rearLeftTurnPosition * ModuleConstants.kTurnMotorRatio);
+    m_rearRightEncoderTelemetry.set(m_inputs.rearRightTurnPosition * ModuleConstants.kTurnMotorRatio);
 
-    // Get network tables values
-    m_netInst = NetworkTableInstance.getDefault();
-    m_limelight = m_netInst.getTable("limelight");
-    m_limelightX = m_limelight.getEntry("tx");
+    m_profiler.stop(m_profilerId);
   }
 
   @Override
-  public void periodic() {
-    if (m_alignModules) {
-      m_frontLeftTurnPIDController.setReference(m_desiredAngle, ControlType.kPosition);
-      m_frontRightTurnPIDController.setReference(m_desiredAngle, ControlType.kPosition);
-      m_rearLeftTurnPIDController.setReference(m_desiredAngle, ControlType.kPosition);
-      m_rearRightTurnPIDController.setReference(m_desiredAngle, ControlType.kPosition);
+  public void simulationPeriodic() {
+    if (m_driveSim == null) {
+      return;
+    }
+
+    // The motors apply nothing while disabled, whatever was last commanded
+    double batteryVoltage = DriverStation.isEnabled() ? RobotController.getBatteryVoltage() : 0;
+    m_driveSim.setInputs(m_leftDrive.get() * batteryVoltage, m_rightDrive.get() * batteryVoltage);
+    m_driveSim.update(SimConstants.kTimestepSeconds);
+
+    m_gyro.addSimulatedSample(m_driveSim.getHeading().getRadians());
+    SimBattery.addCurrent(m_driveSim.getCurrentDrawAmps());
+  }
+
+  /** Reads every drive sensor exactly once into the cycle's input snapshot. */
+  private void updateInputs() {
+    m_inputs.timestampSeconds = Timer.getFPGATimestamp();
+
+    if (LogReplay.isActive()) {
+      m_inputs.frontLeftTurnPosition = m_frontLeftTurnPositionLog.replayDouble();
+      m_inputs.frontRightTurnPosition = m_frontRightTurnPositionLog.replayDouble();
+      m_inputs.rearLeftTurnPosition = m_rearLeftTurnPositionLog.replayDouble();
+      m_inputs.rearRightTurnPosition = m_rearRightTurnPositionLog.replayDouble();
+      m_inputs.leftDistance = m_leftDistanceLog.replayDouble();
+      m_inputs.rightDistance = m_rightDistanceLog.replayDouble();
+      m_inputs.leftVelocity = m_leftVelocityLog.replayDouble();
+      m_inputs.rightVelocity = m_rightVelocityLog.replayDouble();
+      m_inputs.gyroYaw = m_gyroYawLog.replayDouble();
+      m_inputs.limelightX = m_limelightXLog.replayDouble();
+      m_inputs.hasTarget = m_hasTargetLog.replayBoolean();
+      m_inputs.targetHeading = m_targetHeadingLog.replayDouble();
+      m_inputs.targetDistance = m_targetDistanceLog.replayDouble();
+      return;
     }
 
-    SmartDashboard.putNumber("Front Left Encoder", m_frontLeftTurnEncoder.getPosition() * ModuleConstants.kTurnMotorRatio);
-    SmartDashboard.putNumber("Front Right Encoder", m_frontRightTurnEncoder.getPosition() * ModuleConstants.kTurnMotorRatio);
-    SmartDashboard.putNumber("Rear Left Encoder", m_rearLeftTurnEncoder.getPosition() * ModuleConstants.kTurnMotorRatio);
-    SmartDashboard.putNumber("Rear Right Encoder", m_rearRightTurnEncoder.getPosition() * ModuleConstants.kTurnMotorRatio);
+    m_inputs.frontLeftTurnPosition = m_frontLeftTurnEncoder.getPosition();
+    m_inputs.frontRightTurnPosition = m_frontRightTurnEncoder.getPosition();
+    m_inputs.rearLeftTurnPosition = m_rearLeftTurnEncoder.getPosition();
+    m_inputs.rearRightTurnPosition = m_rearRightTurnEncoder.getPosition();
+
+    m_inputs.leftDistance = readLeftDistance();
+    m_inputs.rightDistance = readRightDistance();
+    m_inputs.leftVelocity = readLeftVelocity();
+    m_inputs.rightVelocity = readRightVelocity();
+
+    m_inputs.gyroYaw = m_gyro.getYaw();
+
+    // Needs the gyro yaw of this cycle
+    m_targeting.update(m_inputs);
+  }
+
+  // Drive encoders count motor rotations in the direction the motor spins, these undo the side's
+  // inversion. The Spark Max encoders are not simulated, so simulation reads the drivetrain model.
+
+  private double readLeftDistance() {
+    if (m_driveSim != null) {
+      return m_driveSim.getLeftPositionMeters();
+    }
+    double rotations = (m_frontLeftDriveEncoder.getPosition() + m_rearLeftDriveEncoder.getPosition()) / 2;
+    return (DriveConstants.kLeftDriveInverted ? -rotations : rotations) * ModuleConstants.kDriveEncoderPositionFactor;
+  }
+
+  private double readRightDistance() {
+    if (m_driveSim != null) {
+      return m_driveSim.getRightPositionMeters();
+    }
+    double rotations = (m_frontRightDriveEncoder.getPosition() + m_rearRightDriveEncoder.getPosition()) / 2;
+    return (DriveConstants.kRightDriveInverted ? -rotations : rotations) * ModuleConstants.kDriveEncoderPositionFactor;
+  }
+
+  // Drive encoder velocities are in motor RPM
+
+  private double readLeftVelocity() {
+    if (m_driveSim != null) {
+      return m_driveSim.getLeftVelocityMetersPerSecond();
+    }
+    double rpm = (m_frontLeftDriveEncoder.getVelocity() + m_rearLeftDriveEncoder.getVelocity()) / 2;
+    return (DriveConstants.kLeftDriveInverted ? -rpm : rpm) * ModuleConstants.kDriveEncoderVelocityFactor;
+  }
+
+  private double readRightVelocity() {
+    if (m_driveSim != null) {
+      return m_driveSim.getRightVelocityMetersPerSecond();
+    }
+    double rpm = (m_frontRightDriveEncoder.getVelocity() + m_rearRightDriveEncoder.getVelocity()) / 2;
+    return (DriveConstants.kRightDriveInverted ? -rpm : rpm) * ModuleConstants.kDriveEncoderVelocityFactor;
+  }
+
+  /** Records the input snapshot and the pose estimated from it. */
+  private void logInputs() {
+    long timestamp = (long) (m_inputs.timestampSeconds * 1e6);
+    m_frontLeftTurnPositionLog.record(timestamp, m_inputs.frontLeftTurnPosition);
+    m_frontRightTurnPositionLog.record(timestamp, m_inputs.frontRightTurnPosition);
+    m_rearLeftTurnPositionLog.record(timestamp, m_inputs.rearLeftTurnPosition);
+    m_rearRightTurnPositionLog.record(timestamp, m_inputs.rearRightTurnPosition);
+    m_leftDistanceLog.record(timestamp, m_inputs.leftDistance);
+    m_rightDistanceLog.record(timestamp, m_inputs.rightDistance);
+    m_leftVelocityLog.record(timestamp, m_inputs.leftVelocity);
+    m_rightVelocityLog.record(timestamp, m_inputs.rightVelocity);
+    m_gyroYawLog.record(timestamp, m_inputs.gyroYaw);
+    m_limelightXLog.record(timestamp, m_inputs.limelightX);
+    m_hasTargetLog.record(timestamp, m_inputs.hasTarget);
+    m_targetHeadingLog.record(timestamp, m_inputs.targetHeading);
+    m_targetDistanceLog.record(timestamp, m_inputs.targetDistance);
+
+    Pose2d pose = m_localizer.getPose();
+    m_poseXLog.record(timestamp, pose.getX());
+    m_poseYLog.record(timestamp, pose.getY());
+    m_poseRotationLog.record(timestamp, pose.getRotation().getRadians());
+  }
+
+  /**
+   * Records the outputs the commands applied this cycle, stamped with the inputs they were computed
+   * from. Call after the scheduler has run.
+   */
+  public void logOutputs() {
+    long timestamp = (long) (m_inputs.timestampSeconds * 1e6);
+    m_desiredAngleLog.record(timestamp, m_desiredAngle);
+    m_leftOutputLog.record(timestamp, m_leftDrive.get());
+    m_rightOutputLog.record(timestamp, m_rightDrive.get());
+  }
+
+  /**
+   * Returns the sensor snapshot for the current cycle.
+   *
+   * @return The drive inputs. Do not modify.
+   */
+  public TankDriveInputs getInputs() {
+    return m_inputs;
+  }
+
+  /**
+   * Returns the estimated field pose of the robot.
+   *
+   * @return The pose.
+   */
+  public Pose2d getPose() {
+    return m_localizer.getPose();
+  }
+
+  /**
+   * Resets the pose estimate to the given pose.
+   *
+   * @param pose The pose to reset to.
+   */
+  public void resetPose(Pose2d pose) {
+    m_localizer.resetPose(m_inputs, pose);
   }
 
   public void drive(double ySpeed, double rotSpeed, double swerveSpeed, double pov, boolean rateLimited) {
@@ -180,52 +428,148 @@ public class TankDriveSubsystem extends SubsystemBase {
 
   public void drive(double ySpeed, double rotSpeed, boolean rateLimited) {
     m_desiredAngle = 0;
-    
+
+    setSideOutputs(computeTeleopOutputs(ySpeed, rotSpeed, rateLimited, m_magLimiter, m_rotLimiter));
+  }
+
+  /**
+   * Computes the side outputs of arcade drive from the driver's request, rate limiting it first if
+   * asked.
+   *
+   * <p>This has no hardware access, so it can be benchmarked in isolation.
+   *
+   * @param ySpeed The requested forward speed.
+   * @param rotSpeed The requested rotation, counterclockwise positive.
+   * @param rateLimited Whether to pass the request through the slew rate limiters.
+   * @param magLimiter The forward speed's slew rate limiter.
+   * @param rotLimiter The rotation's slew rate limiter.
+   * @return The left and right percent outputs.
+   */
+  static WheelSpeeds computeTeleopOutputs(double ySpeed, double rotSpeed, boolean rateLimited,
+      SlewRateLimiter magLimiter, SlewRateLimiter rotLimiter) {
     if (rateLimited) {
-      m_driveTrain.arcadeDrive(
-        m_magLimiter.calculate(ySpeed),
-        m_rotLimiter.calculate(rotSpeed)
-      );
-    } else {
-      m_driveTrain.arcadeDrive(
-        ySpeed,
-        rotSpeed
-      );
+      ySpeed = magLimiter.calculate(ySpeed);
+      rotSpeed = rotLimiter.calculate(rotSpeed);
     }
+    return computeArcadeOutputs(ySpeed, rotSpeed);
+  }
+
+  /**
+   * Computes the side outputs that turn toward the vision target using the gyro, or stop if there
+   * is no target.
+   *
+   * @param inputs The sensor snapshot.
+   * @param controller The heading controller, with gains per degree of heading error.
+   * @return The left and right percent outputs.
+   */
+  static WheelSpeeds computeVisionOutputs(TankDriveInputs inputs, PIDController controller) {
+    if (!inputs.hasTarget) {
+      return computeArcadeOutputs(0, 0);
+    }
+
+    return computeArcadeOutputs(0, controller.calculate(
+      Math.toDegrees(inputs.gyroYaw),
+      Math.toDegrees(inputs.targetHeading)));
+  }
+
+  /**
+   * Computes arcade drive's side outputs, shaping both inputs with {@link #shapeArcadeInput(double)}.
+   *
+   * @param ySpeed The forward speed.
+   * @param rotSpeed The rotation, counterclockwise positive.
+   * @return The left and right percent outputs.
+   */
+  static WheelSpeeds computeArcadeOutputs(double ySpeed, double rotSpeed) {
+    return DifferentialDrive.arcadeDriveIK(shapeArcadeInput(ySpeed), shapeArcadeInput(rotSpeed), false);
+  }
+
+  /**
+   * Shapes an arcade drive input the way {@link DifferentialDrive#arcadeDrive(double, double)} does,
+   * with a deadband and squaring for finer control at low speeds. Turning in place, each side's
+   * output is the shaped rotation.
+   *
+   * @param input The requested speed or rotation, from -1 to 1.
+   * @return The shaped percent output.
+   */
+  public static double shapeArcadeInput(double input) {
+    double value = MathUtil.applyDeadband(MathUtil.clamp(input, -1, 1), DriveConstants.kArcadeDeadband);
+    return Math.copySign(value * value, value);
+  }
+
+  private void setSideOutputs(WheelSpeeds speeds) {
+    m_leftDrive.set(speeds.left);
+    m_rightDrive.set(speeds.right);
+    m_driveTrain.feed();
+  }
+
+  /**
+   * Drives each side at a wheel speed using the drive feedforward and a velocity feedback loop.
+   *
+   * @param leftMetersPerSecond The left wheel speed.
+   * @param rightMetersPerSecond The right wheel speed.
+   * @param leftAcceleration The left wheel acceleration in meters per second squared.
+   * @param rightAcceleration The right wheel acceleration in meters per second squared.
+   */
+  public void driveWheelSpeeds(double leftMetersPerSecond, double rightMetersPerSecond,
+      double leftAcceleration, double rightAcceleration) {
+    m_desiredAngle = 0;
+
+    m_leftDrive.setVoltage(
+      m_driveFeedforward.calculate(leftMetersPerSecond, leftAcceleration)
+        + m_leftVelocityController.calculate(m_inputs.leftVelocity, leftMetersPerSecond));
+    m_rightDrive.setVoltage(
+      m_driveFeedforward.calculate(rightMetersPerSecond, rightAcceleration)
+        + m_rightVelocityController.calculate(m_inputs.rightVelocity, rightMetersPerSecond));
+  }
+
+  /**
+   * Creates the capture that characterizes both sides of the drivetrain driving straight. It samples
+   * once per drive encoder status frame.
+   *
+   * @return The capture, in meters.
+   */
+  public SysIdCapture createSysIdCapture() {
+    return new SysIdCapture("Drive",
+      volts -> {
+        m_leftDrive.setVoltage(volts);
+        m_rightDrive.setVoltage(volts);
+      },
+      () -> (readLeftDistance() + readRightDistance()) / 2,
+      () -> (readLeftVelocity() + readRightVelocity()) / 2)
+      .withPeriod(CANConstants.kLoopFramePeriodMs / 1000.0);
   }
 
   public void swerveLeft(double speed) {
     m_desiredAngle = 3;
     
-    m_driveTrain.arcadeDrive(speed, 0);
+    setSideOutputs(computeArcadeOutputs(speed, 0));
   }
 
   public void swerveRight(double speed) {
     m_desiredAngle = -3;
     
-    m_driveTrain.arcadeDrive(speed, 0);
+    setSideOutputs(computeArcadeOutputs(speed, 0));
   }
 
   public void alignModulesEnabled(boolean enabled) {
+    if (enabled && !m_alignModules) {
+      // Re-send the turn references once alignment resumes
+      m_frontLeftTurnReference.reset();
+      m_frontRightTurnReference.reset();
+      m_rearLeftTurnReference.reset();
+      m_rearRightTurnReference.reset();
+    }
+
     m_alignModules = enabled;
   }
 
+  /**
+   * Turns toward the vision target using the gyro. Stops turning when there is no target.
+   */
   public void trackVisionTarget() {
-    double limelightX = m_limelightX.getDouble(0);
-
-    if (limelightX <= -10) { // Left fast-rotation zone
-      drive(0.4, 0.8, false);
-    } else if (limelightX >= 10) { // Right fast-rotation zone
-      drive(0.4, -0.8, false);
-    } else if (limelightX > -10 && limelightX < -1) { // Left slow-rotation zone
-      drive(0.5, 0.4, false);
-    } else if (limelightX < 10 && limelightX > 1) { // Right slow-rotation zone
-      drive(0.5, -0.4, false);
-    } else { // Target achieved
-      drive(0.5, 0, false);
-    }
+    m_desiredAngle = 0;
 
-    drive(0, m_visionPIDController.calculate(limelightX, 0), false);
+    setSideOutputs(computeVisionOutputs(m_inputs, m_visionPIDController));
   }
 
   public void resetEncoders() {
@@ -233,5 +577,10 @@ public class TankDriveSubsystem extends SubsystemBase {
     m_frontRightTurnEncoder.setPosition(0);
     m_rearLeftTurnEncoder.setPosition(0);
     m_rearRightTurnEncoder.setPosition(0);
+
+    m_inputs.frontLeftTurnPosition = 0;
+    m_inputs.frontRightTurnPosition = 0;
+    m_inputs.rearLeftTurnPosition = 0;
+    m_inputs.rearRightTurnPosition = 0;
   }
 }
\ No newline at end of file
@@ -1,29 +1,95 @@
 package frc.robot.subsystems;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Solenoid;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.SimConstants;
 import frc.robot.Constants.VacuumConstants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.SimBattery;
+import frc.robot.util.can.CANBusPlanner;
+import frc.robot.util.can.FilteredVictorSPX;
+import frc.robot.util.logging.LogReplay;
+import frc.robot.util.logging.LoggedSignal;
+import frc.robot.util.logging.SignalLogger;
+import frc.robot.util.telemetry.TelemetryBoolean;
 
 public class VacuumSubsystem extends SubsystemBase {
-  private VictorSPX m_vacuumMotor;
+  private FilteredVictorSPX m_vacuumMotor;
   private Solenoid m_upperSolenoid;
   private Solenoid m_lowerSolenoid;
 
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private final int m_profilerId = m_profiler.register("VacuumSubsystem.periodic()");
+
+  // Logging
+  private final SignalLogger m_logger = SignalLogger.getInstance();
+  private final LoggedSignal m_vacuumOutputLog = m_logger.addDouble("Vacuum/Motor Output");
+  private final LoggedSignal m_upperSolenoidLog = m_logger.addBoolean("Vacuum/Upper Solenoid");
+  private final LoggedSignal m_lowerSolenoidLog = m_logger.addBoolean("Vacuum/Lower Solenoid");
+  private final LoggedSignal m_simulatedPressureLog = m_logger.addDouble("Vacuum/Simulated Pressure");
+
+  // The time of this cycle's periodic(), which the outputs are stamped with
+  private long m_timestamp = 0;
+
+  // Simulated vacuum as a fraction of full vacuum, the real robot has no pressure sensor
+  private double m_simulatedPressure = 0;
+
+  // Telemetry
+  private final TelemetryBoolean m_upperSolenoidTelemetry = new TelemetryBoolean("Upper Solenoid");
+  private final TelemetryBoolean m_lowerSolenoidTelemetry = new TelemetryBoolean("Lower Solenoid");
+
   public VacuumSubsystem() {
-    m_vacuumMotor = new VictorSPX(VacuumConstants.kVacuumMotorId);
+    m_vacuumMotor = new FilteredVictorSPX(VacuumConstants.kVacuumMotorId);
+    CANBusPlanner.getInstance().addVictorSPX("Vacuum Motor", m_vacuumMotor);
     m_upperSolenoid = new Solenoid(PneumaticsModuleType.CTREPCM, VacuumConstants.kUpperSolenoidId);
     m_lowerSolenoid = new Solenoid(PneumaticsModuleType.CTREPCM, VacuumConstants.kLowerSolenoidId);
   }
 
   @Override
   public void periodic() {
-    SmartDashboard.putBoolean("Upper Solenoid", m_upperSolenoid.get());
-    SmartDashboard.putBoolean("Lower Solenoid", m_lowerSolenoid.get());
+    m_profiler.start(m_profilerId);
+
+    m_timestamp = RobotController.getFPGATime();
+
+    m_upperSolenoidTelemetry.set(m_upperSolenoid.get());
+    m_lowerSolenoidTelemetry.set(m_lowerSolenoid.get());
+
+    m_profiler.stop(m_profilerId);
+  }
+
+  /**
+   * Records the motor output and solenoid states the commands applied this cycle. Call after the
+   * scheduler has run.
+   */
+  public void logOutputs() {
+    m_vacuumOutputLog.record(m_timestamp, m_vacuumMotor.getLastOutput());
+    m_upperSolenoidLog.record(m_timestamp, m_upperSolenoid.get());
+    m_lowerSolenoidLog.record(m_timestamp, m_lowerSolenoid.get());
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    if (LogReplay.isActive()) {
+      return;
+    }
+
+    // The pump pulls toward full vacuum while running with both solenoids closed, an open solenoid vents it
+    boolean running = DriverStation.isEnabled() && m_vacuumMotor.getLastOutput() != 0;
+    boolean venting = m_upperSolenoid.get() || m_lowerSolenoid.get();
+    double target = running && !venting ? 1 : 0;
+    double timeConstant = venting
+      ? SimConstants.kVacuumVentTimeConstantSeconds
+      : SimConstants.kVacuumPumpTimeConstantSeconds;
+    m_simulatedPressure += (target - m_simulatedPressure)
+      * (1 - Math.exp(-SimConstants.kTimestepSeconds / timeConstant));
+
+    m_simulatedPressureLog.record(RobotController.getFPGATime(), m_simulatedPressure);
+    SimBattery.addCurrent(running ? SimConstants.kVacuumMotorCurrentAmps : 0);
   }
 
   public void vacuumOn() {
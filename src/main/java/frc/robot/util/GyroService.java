@@ -0,0 +1,243 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
+import com.kauailabs.navx.frc.AHRS;
+import com.kauailabs.navx.frc.ITimestampedDataSubscriber;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.SPI;
+import frc.robot.Constants.GyroConstants;
+
+/**
+ * Records every NavX update into a time-indexed history so any code can ask for the heading at a
+ * past time without reading the sensor again.
+ *
+ * <p>Samples arrive through the NavX data callback at the sensor's update rate and are stored in
+ * preallocated primitive ring buffers. Each is stamped with the time the NavX measured it, mapped
+ * onto the FPGA clock, so SPI and callback latency do not skew the history. The callback thread is the only writer, or the simulation in
+ * its place. Readers on any thread binary search the timestamps and interpolate, re-checking
+ * afterwards that the writer did not overwrite the samples they used.
+ *
+ * <p>Yaw is unwrapped, so it is continuous across +/-180 degrees and counterclockwise positive.
+ */
+public final class GyroService implements ITimestampedDataSubscriber {
+  private static GyroService instance;
+
+  private static final double kGravity = 9.80665;
+
+  private final AHRS m_navx;
+
+  // Ring buffers, written only by the NavX callback thread
+  private final double[] m_timestamps = new double[GyroConstants.kHistorySize];
+  private final double[] m_yaw = new double[GyroConstants.kHistorySize];
+  private final double[] m_yawRate = new double[GyroConstants.kHistorySize];
+  private final double[] m_accelX = new double[GyroConstants.kHistorySize];
+  private final double[] m_accelY = new double[GyroConstants.kHistorySize];
+  private final int m_mask = GyroConstants.kHistorySize - 1;
+
+  // Number of samples ever written, published after each sample is complete
+  private volatile long m_count = 0;
+
+  // Unwrapping state, callback thread only
+  private double m_lastRawYaw = 0;
+  private double m_unwrappedYaw = 0;
+
+  // Offset from the NavX's clock to the FPGA's, callback thread only
+  private double m_clockOffset = Double.NaN;
+  private double m_lastSensorTime;
+
+  private GyroService() {
+    if (Integer.bitCount(GyroConstants.kHistorySize) != 1) {
+      throw new IllegalArgumentException("Gyro history size must be a power of two");
+    }
+
+    m_navx = new AHRS(SPI.Port.kMXP, GyroConstants.kUpdateRateHz);
+    m_navx.registerCallback(this, null);
+  }
+
+  /**
+   * Returns the robot-wide gyro service, starting the NavX on first use.
+   *
+   * @return The gyro service.
+   */
+  public static synchronized GyroService getInstance() {
+    if (instance == null) {
+      instance = new GyroService();
+    }
+    return instance;
+  }
+
+  @Override
+  public void timestampedDataReceived(long systemTimestamp, long sensorTimestamp, AHRSUpdateBase update,
+      Object context) {
+    // The NavX reports clockwise positive degrees in [-180, 180]
+    double rawYaw = Math.toRadians(GyroConstants.kReversed ? update.yaw : -update.yaw);
+    double timestamp = toFPGATime(sensorTimestamp / 1e3, RobotController.getFPGATime() / 1e6);
+    addSample(timestamp, rawYaw, update.linear_accel_x * kGravity, update.linear_accel_y * kGravity);
+  }
+
+  /**
+   * Maps the time the NavX measured a sample onto the FPGA clock. Every sample arrives some latency
+   * after it was measured, so the smallest offset seen between the two clocks is the closest to the
+   * true one. The offset may grow only as fast as the clocks can drift apart.
+   *
+   * @param sensorTime The NavX timestamp in seconds.
+   * @param receiveTime The FPGA time the sample arrived, in seconds.
+   * @return The FPGA time the sample was measured, in seconds.
+   */
+  private double toFPGATime(double sensorTime, double receiveTime) {
+    double offset = receiveTime - sensorTime;
+    // Start over if the NavX restarted its clock, e.g. after a brownout
+    if (!Double.isNaN(m_clockOffset) && sensorTime > m_lastSensorTime) {
+      offset = Math.min(offset, m_clockOffset + (sensorTime - m_lastSensorTime) * GyroConstants.kMaxClockDrift);
+    }
+    m_clockOffset = offset;
+    m_lastSensorTime = sensorTime;
+
+    // A better offset can pull a sample back past the previous one, keep the history in order
+    long count = m_count;
+    double timestamp = sensorTime + offset;
+    return count == 0 ? timestamp : Math.max(timestamp, m_timestamps[(int) ((count - 1) & m_mask)]);
+  }
+
+  /**
+   * Records a sample from a simulated gyro, since the NavX callback does not run in simulation.
+   * Must always be called from the same thread.
+   *
+   * @param yawRadians The simulated yaw, counterclockwise positive.
+   */
+  public void addSimulatedSample(double yawRadians) {
+    addSample(RobotController.getFPGATime() / 1e6, MathUtil.angleModulus(yawRadians), 0, 0);
+  }
+
+  private void addSample(double timestamp, double rawYaw, double accelX, double accelY) {
+    long count = m_count;
+
+    double delta = rawYaw - m_lastRawYaw;
+    if (delta > Math.PI) {
+      delta -= 2 * Math.PI;
+    } else if (delta < -Math.PI) {
+      delta += 2 * Math.PI;
+    }
+    m_lastRawYaw = rawYaw;
+    m_unwrappedYaw = count == 0 ? rawYaw : m_unwrappedYaw + delta;
+
+    double yawRate = 0;
+    if (count > 0) {
+      double dt = timestamp - m_timestamps[(int) ((count - 1) & m_mask)];
+      if (dt > 0) {
+        yawRate = delta / dt;
+      }
+    }
+
+    int index = (int) (count & m_mask);
+    m_timestamps[index] = timestamp;
+    m_yaw[index] = m_unwrappedYaw;
+    m_yawRate[index] = yawRate;
+    m_accelX[index] = accelX;
+    m_accelY[index] = accelY;
+    m_count = count + 1;
+  }
+
+  private int latestIndex() {
+    return (int) ((m_count - 1) & m_mask);
+  }
+
+  /**
+   * Returns the most recent yaw.
+   *
+   * @return The yaw in radians, or 0 before the first update.
+   */
+  public double getYaw() {
+    return m_count == 0 ? 0 : m_yaw[latestIndex()];
+  }
+
+  /**
+   * Returns the most recent yaw rate.
+   *
+   * @return The yaw rate in radians per second.
+   */
+  public double getYawRate() {
+    return m_count == 0 ? 0 : m_yawRate[latestIndex()];
+  }
+
+  /**
+   * Returns the most recent linear acceleration along the robot's X axis, gravity removed.
+   *
+   * @return The acceleration in meters per second squared.
+   */
+  public double getAccelX() {
+    return m_count == 0 ? 0 : m_accelX[latestIndex()];
+  }
+
+  /**
+   * Returns the most recent linear acceleration along the robot's Y axis, gravity removed.
+   *
+   * @return The acceleration in meters per second squared.
+   */
+  public double getAccelY() {
+    return m_count == 0 ? 0 : m_accelY[latestIndex()];
+  }
+
+  /**
+   * Returns the yaw at a past time, interpolated between the two surrounding samples. Times
+   * outside the history are clamped to the oldest or newest sample.
+   *
+   * @param timestampSeconds The FPGA time in seconds.
+   * @return The yaw in radians.
+   */
+  public double getYawAt(double timestampSeconds) {
+    while (true) {
+      long count = m_count;
+      if (count == 0) {
+        return 0;
+      }
+
+      // Leave a margin so the writer cannot reach the oldest sample while it is being read
+      long oldest = Math.max(0, count - GyroConstants.kHistorySize + GyroConstants.kWriteMargin);
+      long newest = count - 1;
+      double yaw;
+
+      if (timestampSeconds <= m_timestamps[(int) (oldest & m_mask)]) {
+        yaw = m_yaw[(int) (oldest & m_mask)];
+      } else if (timestampSeconds >= m_timestamps[(int) (newest & m_mask)]) {
+        yaw = m_yaw[(int) (newest & m_mask)];
+      } else {
+        // Find the first sample after the requested time
+        long low = oldest;
+        long high = newest;
+        while (low < high) {
+          long mid = (low + high) >>> 1;
+          if (m_timestamps[(int) (mid & m_mask)] <= timestampSeconds) {
+            low = mid + 1;
+          } else {
+            high = mid;
+          }
+        }
+
+        int after = (int) (low & m_mask);
+        int before = (int) ((low - 1) & m_mask);
+        double t = (timestampSeconds - m_timestamps[before]) / (m_timestamps[after] - m_timestamps[before]);
+        yaw = m_yaw[before] + (m_yaw[after] - m_yaw[before]) * t;
+      }
+
+      // Retry if the writer lapped the samples that were read, or may be writing over the oldest.
+      // The fence keeps the array reads above from moving past the re-read of the count.
+      VarHandle.acquireFence();
+      if (m_count - oldest < GyroConstants.kHistorySize) {
+        return yaw;
+      }
+    }
+  }
+
+  public boolean isConnected() {
+    return m_navx.isConnected();
+  }
+}
@@ -0,0 +1,228 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.ProfilerConstants;
+
+/**
+ * Times every subsystem periodic and every scheduled command's execute each scheduler cycle.
+ *
+ * <p>Durations are kept in preallocated ring buffers of nanoseconds, one per entry, so recording a
+ * sample never allocates. Subsystems time themselves with {@link #start(int)}/{@link #stop(int)}.
+ * Commands are timed through the scheduler's execute hook: each command is charged the time since
+ * the previous mark, so the first command of a cycle also carries the trigger polling that happens
+ * between the subsystem and command phases of {@link CommandScheduler#run()}.
+ */
+public final class LoopProfiler {
+  private static LoopProfiler instance;
+
+  private static final long kLoopBudgetNanos = (long) (ProfilerConstants.kLoopBudgetSeconds * 1e9);
+
+  // Per-entry ring buffers and bookkeeping
+  private final String[] m_names = new String[ProfilerConstants.kMaxEntries];
+  private final long[][] m_durations = new long[ProfilerConstants.kMaxEntries][ProfilerConstants.kWindowSize];
+  private final int[] m_writeIndex = new int[ProfilerConstants.kMaxEntries];
+  private final int[] m_sampleCount = new int[ProfilerConstants.kMaxEntries];
+  private final long[] m_startTime = new long[ProfilerConstants.kMaxEntries];
+  private final long[] m_cycleTime = new long[ProfilerConstants.kMaxEntries];
+  private final int[] m_overruns = new int[ProfilerConstants.kMaxEntries];
+  private int m_entryCount = 0;
+
+  private final Map<Command, Integer> m_commandIds = new HashMap<>();
+
+  // Cycle state
+  private final int m_cycleId;
+  private long m_cycleStart;
+  private long m_lastMark;
+  private int m_cycleCount = 0;
+  private int m_overrunsSincePublish = 0;
+  private int m_lastCulpritId = -1;
+  private long m_lastCulpritNanos = 0;
+
+  // Preallocated publishing buffers
+  private final long[] m_sortScratch = new long[ProfilerConstants.kWindowSize];
+  private final double[] m_minMicros = new double[ProfilerConstants.kMaxEntries];
+  private final double[] m_meanMicros = new double[ProfilerConstants.kMaxEntries];
+  private final double[] m_p99Micros = new double[ProfilerConstants.kMaxEntries];
+  private final double[] m_maxMicros = new double[ProfilerConstants.kMaxEntries];
+  private final double[] m_overrunCounts = new double[ProfilerConstants.kMaxEntries];
+
+  private LoopProfiler() {
+    m_cycleId = register("CommandScheduler.run()");
+  }
+
+  /**
+   * Returns the robot-wide profiler instance.
+   *
+   * @return The profiler.
+   */
+  public static synchronized LoopProfiler getInstance() {
+    if (instance == null) {
+      instance = new LoopProfiler();
+    }
+    return instance;
+  }
+
+  /**
+   * Hooks the profiler into a scheduler so each command's execute is timed automatically.
+   *
+   * @param scheduler The scheduler to profile.
+   */
+  public void attachTo(CommandScheduler scheduler) {
+    scheduler.onCommandExecute(this::commandExecuted);
+  }
+
+  /**
+   * Registers a new profiled entry.
+   *
+   * @param name The name shown in the published summary.
+   * @return The handle to pass to {@link #start(int)} and {@link #stop(int)}.
+   */
+  public int register(String name) {
+    if (m_entryCount >= ProfilerConstants.kMaxEntries) {
+      DriverStation.reportWarning("LoopProfiler is full, not profiling " + name, false);
+      return -1;
+    }
+
+    m_names[m_entryCount] = name;
+    return m_entryCount++;
+  }
+
+  /**
+   * Marks the start of a profiled section.
+   *
+   * @param id The handle returned by {@link #register(String)}.
+   */
+  public void start(int id) {
+    if (id >= 0) {
+      m_startTime[id] = System.nanoTime();
+    }
+  }
+
+  /**
+   * Marks the end of a profiled section and records its duration.
+   *
+   * @param id The handle returned by {@link #register(String)}.
+   */
+  public void stop(int id) {
+    long now = System.nanoTime();
+    if (id >= 0) {
+      record(id, now - m_startTime[id]);
+    }
+    m_lastMark = now;
+  }
+
+  /** Call immediately before {@link CommandScheduler#run()}. */
+  public void beginCycle() {
+    m_cycleStart = System.nanoTime();
+    m_lastMark = m_cycleStart;
+    Arrays.fill(m_cycleTime, 0, m_entryCount, 0);
+  }
+
+  /** Call immediately after {@link CommandScheduler#run()}. */
+  public void endCycle() {
+    long cycleNanos = System.nanoTime() - m_cycleStart;
+    record(m_cycleId, cycleNanos);
+
+    if (cycleNanos > kLoopBudgetNanos) {
+      // Blame whichever entry consumed the most time this cycle
+      int culprit = -1;
+      long culpritNanos = 0;
+      for (int i = 0; i < m_entryCount; i++) {
+        if (i != m_cycleId && m_cycleTime[i] > culpritNanos) {
+          culprit = i;
+          culpritNanos = m_cycleTime[i];
+        }
+      }
+
+      m_overrunsSincePublish++;
+      if (culprit >= 0) {
+        m_overruns[culprit]++;
+        m_lastCulpritId = culprit;
+        m_lastCulpritNanos = culpritNanos;
+      }
+    }
+
+    if (++m_cycleCount >= ProfilerConstants.kPublishPeriodCycles) {
+      m_cycleCount = 0;
+      publish();
+    }
+  }
+
+  private void commandExecuted(Command command) {
+    Integer id = m_commandIds.get(command);
+    if (id == null) {
+      id = register(command.getName() + ".execute()");
+      m_commandIds.put(command, id);
+    }
+
+    long now = System.nanoTime();
+    if (id >= 0) {
+      record(id, now - m_lastMark);
+    }
+    m_lastMark = now;
+  }
+
+  private void record(int id, long nanos) {
+    m_durations[id][m_writeIndex[id]] = nanos;
+    m_writeIndex[id] = (m_writeIndex[id] + 1) % ProfilerConstants.kWindowSize;
+    if (m_sampleCount[id] < ProfilerConstants.kWindowSize) {
+      m_sampleCount[id]++;
+    }
+    m_cycleTime[id] += nanos;
+  }
+
+  private void publish() {
+    for (int i = 0; i < m_entryCount; i++) {
+      int count = m_sampleCount[i];
+      if (count == 0) {
+        continue;
+      }
+
+      long min = Long.MAX_VALUE;
+      long max = 0;
+      long sum = 0;
+      for (int j = 0; j < count; j++) {
+        long sample = m_durations[i][j];
+        min = Math.min(min, sample);
+        max = Math.max(max, sample);
+        sum += sample;
+      }
+
+      System.arraycopy(m_durations[i], 0, m_sortScratch, 0, count);
+      Arrays.sort(m_sortScratch, 0, count);
+      int p99Index = Math.max(0, (int) Math.ceil(0.99 * count) - 1);
+
+      m_minMicros[i] = min / 1e3;
+      m_meanMicros[i] = sum / (count * 1e3);
+      m_p99Micros[i] = m_sortScratch[p99Index] / 1e3;
+      m_maxMicros[i] = max / 1e3;
+      m_overrunCounts[i] = m_overruns[i];
+    }
+
+    SmartDashboard.putStringArray("Profiler/Names", Arrays.copyOf(m_names, m_entryCount));
+    SmartDashboard.putNumberArray("Profiler/Min (us)", Arrays.copyOf(m_minMicros, m_entryCount));
+    SmartDashboard.putNumberArray("Profiler/Mean (us)", Arrays.copyOf(m_meanMicros, m_entryCount));
+    SmartDashboard.putNumberArray("Profiler/P99 (us)", Arrays.copyOf(m_p99Micros, m_entryCount));
+    SmartDashboard.putNumberArray("Profiler/Max (us)", Arrays.copyOf(m_maxMicros, m_entryCount));
+    SmartDashboard.putNumberArray("Profiler/Overruns", Arrays.copyOf(m_overrunCounts, m_entryCount));
+
+    if (m_overrunsSincePublish > 0 && m_lastCulpritId >= 0) {
+      DriverStation.reportWarning(
+          m_overrunsSincePublish + " loop overrun(s), last culprit " + m_names[m_lastCulpritId]
+              + " (" + (m_lastCulpritNanos / 1e6) + " ms)",
+          false);
+    }
+    m_overrunsSincePublish = 0;
+  }
+}
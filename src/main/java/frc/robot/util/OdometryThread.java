@@ -0,0 +1,144 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples a fixed set of odometry sources on a dedicated notifier thread, faster than the robot
+ * loop.
+ *
+ * <p>Each sample is one row of timestamped values, one per source, stored in a preallocated
+ * single-producer, single-consumer ring buffer. The notifier is the only producer and the robot
+ * loop drains the rows with {@link #drain}. Neither side blocks or allocates; when the robot loop
+ * falls behind, the newest rows are dropped and counted.
+ */
+public final class OdometryThread {
+  private final List<DoubleSupplier> m_sources = new ArrayList<>();
+  private final double m_periodSeconds;
+  private final Notifier m_notifier;
+
+  // Allocated by start() once every source is known
+  private DoubleSupplier[] m_sourceArray;
+  private double[] m_timestamps;
+  private double[] m_samples;
+  private int m_mask;
+
+  // Written by the producer, read by the consumer, and vice versa
+  private volatile long m_head = 0;
+  private volatile long m_tail = 0;
+  private volatile long m_dropped = 0;
+
+  /**
+   * Creates a new OdometryThread.
+   *
+   * @param name The name of the notifier thread.
+   * @param frequencyHz How often every source is sampled.
+   */
+  public OdometryThread(String name, double frequencyHz) {
+    m_periodSeconds = 1.0 / frequencyHz;
+    m_notifier = new Notifier(this::sample);
+    m_notifier.setName(name);
+  }
+
+  /**
+   * Adds a source to sample. Sources must be added before {@link #start(int)}.
+   *
+   * @param source The source. It is called from the notifier thread.
+   * @return The column of this source in the rows returned by {@link #drain}.
+   */
+  public int addSource(DoubleSupplier source) {
+    if (m_sourceArray != null) {
+      throw new IllegalStateException("Odometry sources must be added before the thread starts");
+    }
+
+    m_sources.add(source);
+    return m_sources.size() - 1;
+  }
+
+  /**
+   * Returns the number of sources, which is the width of each drained row.
+   *
+   * @return The number of sources.
+   */
+  public int getSourceCount() {
+    return m_sources.size();
+  }
+
+  /**
+   * Allocates the buffer and starts sampling.
+   *
+   * @param capacity The number of rows buffered between drains.
+   */
+  public void start(int capacity) {
+    // Round up to a power of two so indices can be masked instead of divided
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    m_sourceArray = m_sources.toArray(new DoubleSupplier[0]);
+    m_timestamps = new double[size];
+    m_samples = new double[size * m_sourceArray.length];
+    m_mask = size - 1;
+
+    m_notifier.startPeriodic(m_periodSeconds);
+  }
+
+  /** Stops sampling. Rows already buffered can still be drained. */
+  public void stop() {
+    m_notifier.stop();
+  }
+
+  private void sample() {
+    long head = m_head;
+    if (head - m_tail > m_mask) {
+      m_dropped++;
+      return;
+    }
+
+    int index = (int) (head & m_mask);
+    int width = m_sourceArray.length;
+    m_timestamps[index] = Timer.getFPGATimestamp();
+    for (int i = 0; i < width; i++) {
+      m_samples[index * width + i] = m_sourceArray[i].getAsDouble();
+    }
+    m_head = head + 1;
+  }
+
+  /**
+   * Copies every pending row out of the buffer, oldest first. Called only from the robot loop.
+   *
+   * @param timestamps Receives the FPGA timestamp of each row, in seconds.
+   * @param samples Receives the rows, row-major, {@link #getSourceCount()} values per row.
+   * @return The number of rows copied, at most {@code timestamps.length}.
+   */
+  public int drain(double[] timestamps, double[] samples) {
+    if (m_sourceArray == null) {
+      return 0;
+    }
+
+    long tail = m_tail;
+    long head = m_head;
+    int width = m_sourceArray.length;
+    int count = 0;
+
+    while (tail < head && count < timestamps.length) {
+      int index = (int) (tail & m_mask);
+      timestamps[count] = m_timestamps[index];
+      System.arraycopy(m_samples, index * width, samples, count * width, width);
+      count++;
+      tail++;
+    }
+
+    m_tail = tail;
+    return count;
+  }
+
+  public long getDroppedCount() {
+    return m_dropped;
+  }
+}
@@ -0,0 +1,35 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+
+/**
+ * Sags the simulated battery voltage under the current drawn by every simulated mechanism.
+ *
+ * <p>Each subsystem adds its current draw from its simulationPeriodic(), and the robot applies the
+ * total once per cycle after the scheduler has run, so every model sees the same voltage next cycle.
+ */
+public final class SimBattery {
+  private static double totalCurrentAmps = 0;
+
+  private SimBattery() {}
+
+  /**
+   * Adds a mechanism's current draw to this cycle's total.
+   *
+   * @param amps The current in amps.
+   */
+  public static void addCurrent(double amps) {
+    totalCurrentAmps += amps;
+  }
+
+  /** Applies this cycle's total current to the simulated battery voltage and starts the next cycle. */
+  public static void update() {
+    RoboRioSim.setVInVoltage(BatterySim.calculateDefaultBatteryLoadedVoltage(totalCurrentAmps));
+    totalCurrentAmps = 0;
+  }
+}
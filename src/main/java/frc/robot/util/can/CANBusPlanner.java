@@ -0,0 +1,211 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.can;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrame;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import com.revrobotics.REVLibError;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.CANConstants;
+
+/**
+ * Plans the status frame rates of every motor controller on the CAN bus.
+ *
+ * <p>Subsystems declare which signals they actually read from each device and how often. When
+ * {@link #apply()} is called, each status frame is set to the fastest rate any of its signals needs,
+ * frames nobody reads are slowed down, and the resulting bus utilization is reported.
+ */
+public final class CANBusPlanner {
+  private static CANBusPlanner instance;
+
+  /** A value a controller reports in its status frames. */
+  public enum Signal {
+    kAppliedOutput,
+    kVelocity,
+    kPosition,
+    kAlternateEncoder,
+    kAnalog
+  }
+
+  /** A single device and the signals read from it. */
+  public static final class Device {
+    private final String m_name;
+    private final CANSparkMax m_sparkMax;
+    private final VictorSPX m_victor;
+    private final Map<Signal, Integer> m_signalPeriods = new EnumMap<>(Signal.class);
+
+    private Device(String name, CANSparkMax sparkMax, VictorSPX victor) {
+      m_name = name;
+      m_sparkMax = sparkMax;
+      m_victor = victor;
+    }
+
+    /**
+     * Declares a signal the code reads from this device.
+     *
+     * @param signal The signal.
+     * @param periodMs How often the code needs a fresh value.
+     * @return This device, for chaining.
+     */
+    public Device reads(Signal signal, int periodMs) {
+      m_signalPeriods.merge(signal, periodMs, Math::min);
+      return this;
+    }
+
+    /**
+     * Declares a signal the code reads once per robot loop.
+     *
+     * @param signal The signal.
+     * @return This device, for chaining.
+     */
+    public Device reads(Signal signal) {
+      return reads(signal, CANConstants.kLoopFramePeriodMs);
+    }
+
+    private int periodFor(int unusedPeriodMs, Signal... signals) {
+      int period = unusedPeriodMs;
+      for (Signal signal : signals) {
+        Integer signalPeriod = m_signalPeriods.get(signal);
+        if (signalPeriod != null) {
+          period = Math.min(period, signalPeriod);
+        }
+      }
+      return period;
+    }
+  }
+
+  private final List<Device> m_devices = new ArrayList<>();
+
+  private CANBusPlanner() {}
+
+  /**
+   * Returns the robot-wide planner instance.
+   *
+   * @return The planner.
+   */
+  public static synchronized CANBusPlanner getInstance() {
+    if (instance == null) {
+      instance = new CANBusPlanner();
+    }
+    return instance;
+  }
+
+  /**
+   * Adds a Spark Max to the plan.
+   *
+   * @param name A readable name for reports.
+   * @param motor The Spark Max.
+   * @return The device, to declare the signals read from it.
+   */
+  public Device addSparkMax(String name, CANSparkMax motor) {
+    Device device = new Device(name, motor, null);
+    m_devices.add(device);
+    return device;
+  }
+
+  /**
+   * Adds a Victor SPX to the plan.
+   *
+   * @param name A readable name for reports.
+   * @param motor The Victor SPX.
+   * @return The device, to declare the signals read from it.
+   */
+  public Device addVictorSPX(String name, VictorSPX motor) {
+    Device device = new Device(name, null, motor);
+    m_devices.add(device);
+    return device;
+  }
+
+  /** Applies the planned frame rates to every device and reports the expected bus load. */
+  public void apply() {
+    double totalFramesPerSecond = 0;
+
+    for (Device device : m_devices) {
+      double framesPerSecond;
+      if (device.m_sparkMax != null) {
+        framesPerSecond = applySparkMax(device);
+      } else {
+        framesPerSecond = applyVictorSPX(device);
+      }
+
+      totalFramesPerSecond += framesPerSecond;
+      DataLogManager.log("CAN plan: " + device.m_name + " " + Math.round(framesPerSecond) + " frames/s");
+    }
+
+    double utilization = totalFramesPerSecond * CANConstants.kBitsPerFrame / CANConstants.kBusBitRate;
+    DataLogManager.log("CAN plan: " + m_devices.size() + " devices, " + Math.round(totalFramesPerSecond)
+        + " frames/s, " + Math.round(utilization * 100) + "% expected utilization");
+
+    if (utilization > CANConstants.kTargetUtilization) {
+      DriverStation.reportWarning("Expected CAN utilization " + Math.round(utilization * 100)
+          + "% exceeds target of " + Math.round(CANConstants.kTargetUtilization * 100) + "%", false);
+    }
+  }
+
+  private static double applySparkMax(Device device) {
+    int unused = CANConstants.kUnusedSparkMaxFramePeriodMs;
+
+    // Status 0 carries faults as well as applied output, so it is never slowed down completely
+    int[] periods = {
+      device.periodFor(CANConstants.kSparkMaxStatus0MaxPeriodMs, Signal.kAppliedOutput),
+      device.periodFor(unused, Signal.kVelocity),
+      device.periodFor(unused, Signal.kPosition),
+      device.periodFor(unused, Signal.kAnalog),
+      device.periodFor(unused, Signal.kAlternateEncoder)
+    };
+    PeriodicFrame[] frames = {
+      PeriodicFrame.kStatus0,
+      PeriodicFrame.kStatus1,
+      PeriodicFrame.kStatus2,
+      PeriodicFrame.kStatus3,
+      PeriodicFrame.kStatus4
+    };
+
+    double framesPerSecond = 1000.0 / CANConstants.kSparkMaxControlFramePeriodMs;
+    for (int i = 0; i < frames.length; i++) {
+      REVLibError error = device.m_sparkMax.setPeriodicFramePeriod(frames[i], periods[i]);
+      if (error != REVLibError.kOk) {
+        DriverStation.reportWarning("Failed to set " + frames[i] + " on " + device.m_name + ": " + error, false);
+      }
+      framesPerSecond += 1000.0 / periods[i];
+    }
+    return framesPerSecond;
+  }
+
+  private static double applyVictorSPX(Device device) {
+    int unused = CANConstants.kUnusedVictorFramePeriodMs;
+
+    int[] periods = {
+      device.periodFor(unused, Signal.kAppliedOutput),
+      device.periodFor(unused, Signal.kPosition, Signal.kVelocity),
+      device.periodFor(unused, Signal.kAnalog)
+    };
+    StatusFrame[] frames = {
+      StatusFrame.Status_1_General,
+      StatusFrame.Status_2_Feedback0,
+      StatusFrame.Status_4_AinTempVbat
+    };
+
+    double framesPerSecond = 1000.0 / CANConstants.kVictorControlFramePeriodMs;
+    for (int i = 0; i < frames.length; i++) {
+      ErrorCode error = device.m_victor.setStatusFramePeriod(frames[i], periods[i]);
+      if (error != ErrorCode.OK) {
+        DriverStation.reportWarning("Failed to set " + frames[i] + " on " + device.m_name + ": " + error, false);
+      }
+      framesPerSecond += 1000.0 / periods[i];
+    }
+    return framesPerSecond;
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.can;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import frc.robot.Constants.CANConstants;
+
+/**
+ * Remembers the last output sent to a device and decides whether a new write is redundant.
+ *
+ * <p>A write is suppressed when both the control mode and value match the previous write, unless
+ * the keep-alive interval has elapsed since the last frame that was actually sent.
+ *
+ * <p>Every method synchronizes on the filter, so it can be shared with another thread, e.g. a limit
+ * switch interrupt. A caller that holds the filter's monitor across its send keeps the recorded
+ * output in step with the frames actually sent.
+ */
+public class CANOutputFilter {
+  // Shared by filters written from the robot loop and the arm's control notifier
+  private static final LongAdder totalSuppressed = new LongAdder();
+
+  private final long m_keepAliveNanos;
+  private boolean m_hasSent = false;
+  private int m_lastMode;
+  private double m_lastValue;
+  private long m_lastSendTime;
+  private long m_suppressed = 0;
+
+  /**
+   * Creates a new CANOutputFilter.
+   *
+   * @param keepAliveSeconds Identical outputs are re-sent at least this often.
+   */
+  public CANOutputFilter(double keepAliveSeconds) {
+    m_keepAliveNanos = (long) (keepAliveSeconds * 1e9);
+  }
+
+  /** Creates a new CANOutputFilter with the default keep-alive interval. */
+  public CANOutputFilter() {
+    this(CANConstants.kOutputKeepAliveSeconds);
+  }
+
+  /**
+   * Returns whether an output should be sent, and records it as sent if so.
+   *
+   * @param mode The integer value of the control mode.
+   * @param value The output value.
+   * @return True if the caller should send the frame.
+   */
+  public synchronized boolean shouldSend(int mode, double value) {
+    long now = System.nanoTime();
+
+    if (m_hasSent && mode == m_lastMode && value == m_lastValue && now - m_lastSendTime < m_keepAliveNanos) {
+      m_suppressed++;
+      totalSuppressed.increment();
+      return false;
+    }
+
+    record(mode, value, now);
+    return true;
+  }
+
+  /**
+   * Records an output the caller sent without asking the filter, e.g. an emergency stop.
+   *
+   * @param mode The integer value of the control mode.
+   * @param value The output value.
+   */
+  public synchronized void recordSent(int mode, double value) {
+    record(mode, value, System.nanoTime());
+  }
+
+  private void record(int mode, double value, long now) {
+    m_hasSent = true;
+    m_lastMode = mode;
+    m_lastValue = value;
+    m_lastSendTime = now;
+  }
+
+  /** Forgets the last output so the next write is always sent. */
+  public synchronized void reset() {
+    m_hasSent = false;
+  }
+
+  /**
+   * Returns the last value that was requested, whether or not its frame was suppressed.
+   *
+   * @return The last output value, or 0 if nothing was sent yet.
+   */
+  public synchronized double getLastValue() {
+    return m_hasSent ? m_lastValue : 0;
+  }
+
+  public synchronized long getSuppressedCount() {
+    return m_suppressed;
+  }
+
+  /**
+   * Returns the number of suppressed frames across every filter on the robot.
+   *
+   * @return The total suppressed frame count.
+   */
+  public static long getTotalSuppressedCount() {
+    return totalSuppressed.sum();
+  }
+}
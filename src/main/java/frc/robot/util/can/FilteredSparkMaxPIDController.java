@@ -0,0 +1,49 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.can;
+
+import com.revrobotics.CANSparkMax.ControlType;
+import com.revrobotics.SparkMaxPIDController;
+
+/** Wraps a {@link SparkMaxPIDController} so identical references are not re-sent every loop. */
+public class FilteredSparkMaxPIDController {
+  private final SparkMaxPIDController m_controller;
+  private final CANOutputFilter m_filter;
+
+  /**
+   * Creates a new FilteredSparkMaxPIDController.
+   *
+   * @param controller The Spark Max PID controller to send references to.
+   */
+  public FilteredSparkMaxPIDController(SparkMaxPIDController controller) {
+    m_controller = controller;
+    m_filter = new CANOutputFilter();
+  }
+
+  /**
+   * Sets the controller reference if it differs from the last one sent.
+   *
+   * @param value The reference value.
+   * @param controlType The control type of the reference.
+   */
+  public void setReference(double value, ControlType controlType) {
+    if (m_filter.shouldSend(controlType.value, value)) {
+      m_controller.setReference(value, controlType);
+    }
+  }
+
+  /** Forces the next reference to be sent, e.g. after the controller's encoder is reset. */
+  public void reset() {
+    m_filter.reset();
+  }
+
+  public double getLastReference() {
+    return m_filter.getLastValue();
+  }
+
+  public long getSuppressedCount() {
+    return m_filter.getSuppressedCount();
+  }
+}
@@ -0,0 +1,62 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.can;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.can.VictorSPX;
+
+/**
+ * A {@link VictorSPX} that skips writes identical to the last one it sent.
+ *
+ * <p>Each write holds the filter's monitor while it sends, so the last output it reports is always
+ * the last frame sent, even when another thread stops the motor.
+ */
+public class FilteredVictorSPX extends VictorSPX {
+  private final CANOutputFilter m_filter;
+
+  /**
+   * Creates a new FilteredVictorSPX.
+   *
+   * @param deviceNumber The CAN ID of the Victor SPX.
+   */
+  public FilteredVictorSPX(int deviceNumber) {
+    super(deviceNumber);
+    m_filter = new CANOutputFilter();
+  }
+
+  @Override
+  public void set(ControlMode mode, double outputValue) {
+    synchronized (m_filter) {
+      if (m_filter.shouldSend(mode.value, outputValue)) {
+        super.set(mode, outputValue);
+      }
+    }
+  }
+
+  /**
+   * Stops the motor now, bypassing the filter. Safe to call from a thread other than the motor's
+   * writers, e.g. a limit switch interrupt. It waits at most for a write already being sent, which
+   * then reads as the last output until the stop goes out after it.
+   */
+  public void stopImmediately() {
+    synchronized (m_filter) {
+      m_filter.recordSent(ControlMode.PercentOutput.value, 0);
+      super.set(ControlMode.PercentOutput, 0);
+    }
+  }
+
+  /**
+   * Returns the last commanded output without reading the controller's status frames.
+   *
+   * @return The last output value.
+   */
+  public double getLastOutput() {
+    return m_filter.getLastValue();
+  }
+
+  public long getSuppressedCount() {
+    return m_filter.getSuppressedCount();
+  }
+}
@@ -0,0 +1,168 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.can;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.IdleMode;
+import com.revrobotics.REVLibError;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxAlternateEncoder.Type;
+import com.revrobotics.SparkMaxPIDController;
+
+/**
+ * The desired persistent configuration of a Spark Max.
+ *
+ * <p>Unset values keep their factory defaults. The configuration can be reduced to a fingerprint
+ * so {@link SparkMaxConfigurator} can tell whether a controller needs to be rewritten.
+ */
+public class SparkMaxConfig {
+  private boolean m_inverted = false;
+  private IdleMode m_idleMode = IdleMode.kCoast;
+  private int m_alternateEncoderCountsPerRev = 0; // 0 uses the built-in hall sensor
+
+  private double m_p = 0;
+  private double m_i = 0;
+  private double m_d = 0;
+  private double m_ff = 0;
+  private double m_minOutput = -1;
+  private double m_maxOutput = 1;
+
+  private double m_positionConversionFactor = 1;
+  private double m_velocityConversionFactor = 1;
+
+  private boolean m_wrappingEnabled = false;
+  private double m_wrappingMinInput = 0;
+  private double m_wrappingMaxInput = 0;
+
+  public SparkMaxConfig setInverted(boolean inverted) {
+    m_inverted = inverted;
+    return this;
+  }
+
+  public SparkMaxConfig setIdleMode(IdleMode idleMode) {
+    m_idleMode = idleMode;
+    return this;
+  }
+
+  /**
+   * Uses a quadrature encoder on the data port as the feedback device.
+   *
+   * @param countsPerRev The counts per revolution of the alternate encoder.
+   * @return This config, for chaining.
+   */
+  public SparkMaxConfig setAlternateEncoder(int countsPerRev) {
+    m_alternateEncoderCountsPerRev = countsPerRev;
+    return this;
+  }
+
+  public SparkMaxConfig setPIDF(double p, double i, double d, double ff) {
+    m_p = p;
+    m_i = i;
+    m_d = d;
+    m_ff = ff;
+    return this;
+  }
+
+  public SparkMaxConfig setOutputRange(double min, double max) {
+    m_minOutput = min;
+    m_maxOutput = max;
+    return this;
+  }
+
+  public SparkMaxConfig setConversionFactors(double position, double velocity) {
+    m_positionConversionFactor = position;
+    m_velocityConversionFactor = velocity;
+    return this;
+  }
+
+  public SparkMaxConfig setPositionWrapping(double minInput, double maxInput) {
+    m_wrappingEnabled = true;
+    m_wrappingMinInput = minInput;
+    m_wrappingMaxInput = maxInput;
+    return this;
+  }
+
+  public double getP() {
+    return m_p;
+  }
+
+  public double getPositionConversionFactor() {
+    return m_positionConversionFactor;
+  }
+
+  /**
+   * Returns the feedback encoder this configuration uses.
+   *
+   * @param motor The Spark Max.
+   * @return Its alternate encoder if one is configured, otherwise its built-in encoder.
+   */
+  public RelativeEncoder getEncoder(CANSparkMax motor) {
+    if (m_alternateEncoderCountsPerRev > 0) {
+      return motor.getAlternateEncoder(Type.kQuadrature, m_alternateEncoderCountsPerRev);
+    }
+    return motor.getEncoder();
+  }
+
+  /**
+   * Returns a stable hash of every parameter in this configuration.
+   *
+   * @return The configuration fingerprint.
+   */
+  public long fingerprint() {
+    ByteBuffer buffer = ByteBuffer.allocate(128);
+    buffer.put((byte) (m_inverted ? 1 : 0));
+    buffer.putInt(m_idleMode.value);
+    buffer.putInt(m_alternateEncoderCountsPerRev);
+    buffer.putDouble(m_p).putDouble(m_i).putDouble(m_d).putDouble(m_ff);
+    buffer.putDouble(m_minOutput).putDouble(m_maxOutput);
+    buffer.putDouble(m_positionConversionFactor).putDouble(m_velocityConversionFactor);
+    buffer.put((byte) (m_wrappingEnabled ? 1 : 0));
+    buffer.putDouble(m_wrappingMinInput).putDouble(m_wrappingMaxInput);
+
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    return crc.getValue();
+  }
+
+  /**
+   * Writes every parameter to the controller. Does not burn flash.
+   *
+   * @param motor The Spark Max to configure.
+   * @return The first error reported by the controller, or {@link REVLibError#kOk}.
+   */
+  REVLibError apply(CANSparkMax motor) {
+    RelativeEncoder encoder = getEncoder(motor);
+    SparkMaxPIDController pidController = motor.getPIDController();
+
+    REVLibError error = REVLibError.kOk;
+    motor.setInverted(m_inverted);
+    error = firstError(error, motor.setIdleMode(m_idleMode));
+
+    error = firstError(error, encoder.setPositionConversionFactor(m_positionConversionFactor));
+    error = firstError(error, encoder.setVelocityConversionFactor(m_velocityConversionFactor));
+
+    error = firstError(error, pidController.setP(m_p));
+    error = firstError(error, pidController.setI(m_i));
+    error = firstError(error, pidController.setD(m_d));
+    error = firstError(error, pidController.setFF(m_ff));
+    error = firstError(error, pidController.setOutputRange(m_minOutput, m_maxOutput));
+    error = firstError(error, pidController.setFeedbackDevice(encoder));
+
+    error = firstError(error, pidController.setPositionPIDWrappingEnabled(m_wrappingEnabled));
+    if (m_wrappingEnabled) {
+      error = firstError(error, pidController.setPositionPIDWrappingMinInput(m_wrappingMinInput));
+      error = firstError(error, pidController.setPositionPIDWrappingMaxInput(m_wrappingMaxInput));
+    }
+
+    return error;
+  }
+
+  private static REVLibError firstError(REVLibError current, REVLibError next) {
+    return current != REVLibError.kOk ? current : next;
+  }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.can;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.REVLibError;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Preferences;
+
+/**
+ * Applies {@link SparkMaxConfig}s to a group of Spark Maxes, skipping the ones already configured.
+ *
+ * <p>The fingerprint of the last configuration burned to each controller is stored in
+ * {@link Preferences} by CAN ID. A controller is only factory reset, rewritten and burned when its
+ * stored fingerprint differs, or when a spot check of its live parameters disagrees (e.g. a
+ * controller was swapped). Independent controllers are configured concurrently.
+ */
+public class SparkMaxConfigurator {
+  private static final String kPreferencesPrefix = "SparkMaxConfig/";
+
+  private final List<CANSparkMax> m_motors = new ArrayList<>();
+  private final List<SparkMaxConfig> m_configs = new ArrayList<>();
+
+  /**
+   * Queues a controller to be configured by {@link #configureAll()}.
+   *
+   * @param motor The Spark Max.
+   * @param config Its desired configuration.
+   */
+  public void add(CANSparkMax motor, SparkMaxConfig config) {
+    m_motors.add(motor);
+    m_configs.add(config);
+  }
+
+  /** Configures every queued controller in parallel and waits for all of them to finish. */
+  public void configureAll() {
+    if (m_motors.isEmpty()) {
+      return;
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < m_motors.size(); i++) {
+      CANSparkMax motor = m_motors.get(i);
+      SparkMaxConfig config = m_configs.get(i);
+      tasks.add(() -> {
+        configure(motor, config);
+        return null;
+      });
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    try {
+      executor.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdown();
+    }
+
+    m_motors.clear();
+    m_configs.clear();
+  }
+
+  private static void configure(CANSparkMax motor, SparkMaxConfig config) {
+    long startTime = System.nanoTime();
+    int id = motor.getDeviceId();
+    String key = kPreferencesPrefix + id;
+    long fingerprint = config.fingerprint();
+
+    if (Preferences.getLong(key, 0) == fingerprint && matchesDevice(motor, config)) {
+      DataLogManager.log("Spark Max " + id + ": configuration unchanged, skipped in "
+          + elapsedMillis(startTime) + " ms");
+      return;
+    }
+
+    // Factory reset to get the controller to a known state before configuration
+    REVLibError error = motor.restoreFactoryDefaults();
+    if (error == REVLibError.kOk) {
+      error = config.apply(motor);
+    }
+    if (error == REVLibError.kOk) {
+      error = motor.burnFlash();
+    }
+
+    if (error == REVLibError.kOk) {
+      Preferences.setLong(key, fingerprint);
+      DataLogManager.log("Spark Max " + id + ": configured and burned in " + elapsedMillis(startTime) + " ms");
+    } else {
+      // Apply what we can without persisting it, and retry the full configuration next boot
+      Preferences.remove(key);
+      config.apply(motor);
+      DriverStation.reportWarning("Spark Max " + id + " configuration failed: " + error, false);
+    }
+  }
+
+  /** Spot checks a few parameters read back from the controller against the desired config. */
+  private static boolean matchesDevice(CANSparkMax motor, SparkMaxConfig config) {
+    return (float) motor.getPIDController().getP() == (float) config.getP()
+        && (float) config.getEncoder(motor).getPositionConversionFactor()
+            == (float) config.getPositionConversionFactor();
+  }
+
+  private static long elapsedMillis(long startTime) {
+    return (System.nanoTime() - startTime) / 1_000_000;
+  }
+}
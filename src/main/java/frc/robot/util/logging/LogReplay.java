@@ -0,0 +1,148 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.logging;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+/**
+ * A recorded WPILOG loaded into memory for deterministic replay.
+ *
+ * <p>While a replay is loaded, subsystems read their inputs from the log through
+ * {@link LoggedSignal#replayDouble()} and {@link LoggedSignal#replayBoolean()} instead of from
+ * hardware, at the time set by {@link #setTime(long)}.
+ */
+public final class LogReplay {
+  private static LogReplay instance;
+
+  private final Map<String, ReplayedSeries> m_series = new HashMap<>();
+  private long m_startTime = Long.MAX_VALUE;
+  private long m_endTime = Long.MIN_VALUE;
+  private long m_time;
+
+  private LogReplay(String path) throws IOException {
+    DataLogReader reader = new DataLogReader(path);
+    if (!reader.isValid()) {
+      throw new IOException(path + " is not a valid WPILOG file");
+    }
+
+    Map<Integer, ReplayedSeries> seriesById = new HashMap<>();
+    Map<Integer, String> typeById = new HashMap<>();
+
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        ReplayedSeries series = m_series.computeIfAbsent(start.name, name -> new ReplayedSeries());
+        seriesById.put(start.entry, series);
+        typeById.put(start.entry, start.type);
+      } else if (!record.isControl()) {
+        ReplayedSeries series = seriesById.get(record.getEntry());
+        double[] value = series != null ? decode(record, typeById.get(record.getEntry())) : null;
+        if (value != null) {
+          series.add(record.getTimestamp(), value);
+        }
+      }
+    }
+
+    for (ReplayedSeries series : m_series.values()) {
+      series.freeze();
+      m_startTime = Math.min(m_startTime, series.getFirstTimestamp());
+      m_endTime = Math.max(m_endTime, series.getLastTimestamp());
+    }
+    m_time = m_startTime;
+  }
+
+  /**
+   * Loads a log and makes it the active replay.
+   *
+   * @param path The path of the WPILOG file.
+   * @return The loaded replay.
+   * @throws IOException If the file cannot be read.
+   */
+  public static synchronized LogReplay load(String path) throws IOException {
+    instance = new LogReplay(path);
+    return instance;
+  }
+
+  public static boolean isActive() {
+    return instance != null;
+  }
+
+  public static LogReplay getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the recorded series for an entry.
+   *
+   * @param name The log entry name.
+   * @return The series, or null if the log has no such entry.
+   */
+  public ReplayedSeries getSeries(String name) {
+    return m_series.get(name);
+  }
+
+  public long getStartTime() {
+    return m_startTime;
+  }
+
+  public long getEndTime() {
+    return m_endTime;
+  }
+
+  public long getTime() {
+    return m_time;
+  }
+
+  public void setTime(long timestampMicros) {
+    m_time = timestampMicros;
+  }
+
+  private static double[] decode(DataLogRecord record, String type) {
+    switch (type) {
+      case "double":
+        return new double[] {record.getDouble()};
+      case "float":
+        return new double[] {record.getFloat()};
+      case "int64":
+        return new double[] {record.getInteger()};
+      case "boolean":
+        return new double[] {record.getBoolean() ? 1 : 0};
+      case "double[]":
+        return record.getDoubleArray();
+      case "float[]": {
+        float[] floats = record.getFloatArray();
+        double[] values = new double[floats.length];
+        for (int i = 0; i < floats.length; i++) {
+          values[i] = floats[i];
+        }
+        return values;
+      }
+      case "int64[]": {
+        long[] longs = record.getIntegerArray();
+        double[] values = new double[longs.length];
+        for (int i = 0; i < longs.length; i++) {
+          values[i] = longs[i];
+        }
+        return values;
+      }
+      case "boolean[]": {
+        boolean[] booleans = record.getBooleanArray();
+        double[] values = new double[booleans.length];
+        for (int i = 0; i < booleans.length; i++) {
+          values[i] = booleans[i] ? 1 : 0;
+        }
+        return values;
+      }
+      default:
+        // Strings and raw entries are not replayed
+        return null;
+    }
+  }
+}
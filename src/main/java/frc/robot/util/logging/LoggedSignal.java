@@ -0,0 +1,120 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.logging;
+
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+
+/**
+ * A single logged signal backed by a preallocated single-producer, single-consumer ring buffer.
+ *
+ * <p>Only one thread may call {@link #record}. Recording never allocates or blocks; when the
+ * buffer is full the sample is dropped and counted instead.
+ */
+public final class LoggedSignal {
+  private final String m_name;
+  private final long[] m_timestamps;
+  private final double[] m_values;
+  private final int m_mask;
+
+  // Written by the producer, read by the consumer, and vice versa
+  private volatile long m_head = 0;
+  private volatile long m_tail = 0;
+  private volatile long m_dropped = 0;
+
+  private final DoubleLogEntry m_doubleEntry;
+  private final BooleanLogEntry m_booleanEntry;
+
+  private ReplayedSeries m_replaySeries;
+
+  LoggedSignal(DataLog log, String name, boolean isBoolean, int capacity) {
+    m_name = name;
+
+    // Round up to a power of two so indices can be masked instead of divided
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    m_timestamps = new long[size];
+    m_values = new double[size];
+    m_mask = size - 1;
+
+    m_doubleEntry = isBoolean ? null : new DoubleLogEntry(log, name);
+    m_booleanEntry = isBoolean ? new BooleanLogEntry(log, name) : null;
+  }
+
+  /**
+   * Records a numeric sample.
+   *
+   * @param timestampMicros The FPGA time the sample was taken, in microseconds.
+   * @param value The sample.
+   */
+  public void record(long timestampMicros, double value) {
+    long head = m_head;
+    if (head - m_tail > m_mask) {
+      m_dropped++;
+      return;
+    }
+
+    int index = (int) (head & m_mask);
+    m_timestamps[index] = timestampMicros;
+    m_values[index] = value;
+    m_head = head + 1;
+  }
+
+  /**
+   * Records a boolean sample.
+   *
+   * @param timestampMicros The FPGA time the sample was taken, in microseconds.
+   * @param value The sample.
+   */
+  public void record(long timestampMicros, boolean value) {
+    record(timestampMicros, value ? 1.0 : 0.0);
+  }
+
+  /**
+   * Returns this signal's recorded value at the current replay time.
+   *
+   * @return The replayed value, or 0 if the log has not recorded one yet.
+   */
+  public double replayDouble() {
+    LogReplay replay = LogReplay.getInstance();
+    if (m_replaySeries == null) {
+      m_replaySeries = replay.getSeries(m_name);
+    }
+
+    double[] value = m_replaySeries != null ? m_replaySeries.valueAt(replay.getTime()) : null;
+    return value != null && value.length > 0 ? value[0] : 0;
+  }
+
+  /**
+   * Returns this signal's recorded value at the current replay time.
+   *
+   * @return The replayed value, or false if the log has not recorded one yet.
+   */
+  public boolean replayBoolean() {
+    return replayDouble() != 0;
+  }
+
+  public long getDroppedCount() {
+    return m_dropped;
+  }
+
+  /** Writes every pending sample to the data log. Called only from the logger thread. */
+  void drain() {
+    long tail = m_tail;
+    long head = m_head;
+
+    while (tail < head) {
+      int index = (int) (tail & m_mask);
+      if (m_doubleEntry != null) {
+        m_doubleEntry.append(m_values[index], m_timestamps[index]);
+      } else {
+        m_booleanEntry.append(m_values[index] != 0, m_timestamps[index]);
+      }
+      tail++;
+    }
+
+    m_tail = tail;
+  }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every recorded value of one log entry, in timestamp order.
+ *
+ * <p>Scalars are stored as one-element arrays. Lookups assume time only moves forward, so each one
+ * advances a cursor instead of searching.
+ */
+public final class ReplayedSeries {
+  private final List<Long> m_timestampList = new ArrayList<>();
+  private final List<double[]> m_valueList = new ArrayList<>();
+
+  private long[] m_timestamps;
+  private double[][] m_values;
+  private int m_cursor = 0;
+
+  void add(long timestampMicros, double[] value) {
+    m_timestampList.add(timestampMicros);
+    m_valueList.add(value);
+  }
+
+  void freeze() {
+    m_timestamps = new long[m_timestampList.size()];
+    for (int i = 0; i < m_timestamps.length; i++) {
+      m_timestamps[i] = m_timestampList.get(i);
+    }
+    m_values = m_valueList.toArray(new double[0][]);
+    m_timestampList.clear();
+    m_valueList.clear();
+  }
+
+  long getFirstTimestamp() {
+    return m_timestamps.length > 0 ? m_timestamps[0] : Long.MAX_VALUE;
+  }
+
+  long getLastTimestamp() {
+    return m_timestamps.length > 0 ? m_timestamps[m_timestamps.length - 1] : Long.MIN_VALUE;
+  }
+
+  /**
+   * Returns the most recent value recorded at or before a time.
+   *
+   * @param timestampMicros The replay time, in microseconds.
+   * @return The value, or null if nothing was recorded yet.
+   */
+  public double[] valueAt(long timestampMicros) {
+    if (m_cursor > 0 && m_timestamps[m_cursor - 1] > timestampMicros) {
+      // Time went backwards, start over
+      m_cursor = 0;
+    }
+    while (m_cursor < m_timestamps.length && m_timestamps[m_cursor] <= timestampMicros) {
+      m_cursor++;
+    }
+    return m_cursor > 0 ? m_values[m_cursor - 1] : null;
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.logging;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.LoggingConstants;
+
+/**
+ * Records primitive signal samples at loop rate or faster and writes them to WPILOG.
+ *
+ * <p>Control code records into per-signal ring buffers without allocating. A background thread
+ * drains the buffers into {@link DataLogManager}'s log, so file I/O never happens on the control
+ * thread. Joystick and Driver Station data are logged natively by {@link DriverStation}.
+ */
+public final class SignalLogger {
+  private static SignalLogger instance;
+
+  private final DataLog m_log;
+  private final CopyOnWriteArrayList<LoggedSignal> m_signals = new CopyOnWriteArrayList<>();
+  private final IntegerLogEntry m_droppedEntry;
+  private final Thread m_thread;
+  private volatile long m_dropped = 0;
+  private final Object m_drainLock = new Object();
+
+  private SignalLogger() {
+    m_log = DataLogManager.getLog();
+    DriverStation.startDataLog(m_log);
+    m_droppedEntry = new IntegerLogEntry(m_log, "Logger/Dropped Samples");
+
+    m_thread = new Thread(this::run, "SignalLogger");
+    m_thread.setDaemon(true);
+    m_thread.setPriority(Thread.MIN_PRIORITY);
+    m_thread.start();
+  }
+
+  /**
+   * Returns the robot-wide logger instance, starting the data log on first use.
+   *
+   * @return The logger.
+   */
+  public static synchronized SignalLogger getInstance() {
+    if (instance == null) {
+      instance = new SignalLogger();
+    }
+    return instance;
+  }
+
+  /**
+   * Adds a numeric signal sized for loop-rate recording.
+   *
+   * @param name The log entry name, e.g. "Arm/Raise Position".
+   * @return The signal to record into.
+   */
+  public LoggedSignal addDouble(String name) {
+    return addDouble(name, LoggingConstants.kDefaultBufferSize);
+  }
+
+  /**
+   * Adds a numeric signal.
+   *
+   * @param name The log entry name, e.g. "Arm/Raise Position".
+   * @param capacity How many samples may be buffered between drains.
+   * @return The signal to record into.
+   */
+  public LoggedSignal addDouble(String name, int capacity) {
+    LoggedSignal signal = new LoggedSignal(m_log, name, false, capacity);
+    m_signals.add(signal);
+    return signal;
+  }
+
+  /**
+   * Adds a boolean signal sized for loop-rate recording.
+   *
+   * @param name The log entry name, e.g. "Arm/Raise Limit Switch".
+   * @return The signal to record into.
+   */
+  public LoggedSignal addBoolean(String name) {
+    LoggedSignal signal = new LoggedSignal(m_log, name, true, LoggingConstants.kDefaultBufferSize);
+    m_signals.add(signal);
+    return signal;
+  }
+
+  /**
+   * Returns how many samples were dropped because a buffer was full, as of the last drain.
+   *
+   * @return The total dropped sample count.
+   */
+  public long getDroppedCount() {
+    return m_dropped;
+  }
+
+  /**
+   * Drains every buffer on the calling thread. Loops that run faster than real time, like replay,
+   * call this after each step so the buffers never fill between background drains.
+   */
+  public void drain() {
+    drainAll();
+  }
+
+  /** Drains every buffer and flushes the log to disk, e.g. before a replay exits. */
+  public void flush() {
+    drainAll();
+    m_log.flush();
+  }
+
+  private void drainAll() {
+    synchronized (m_drainLock) {
+      long dropped = 0;
+      for (LoggedSignal signal : m_signals) {
+        signal.drain();
+        dropped += signal.getDroppedCount();
+      }
+
+      if (dropped != m_dropped) {
+        m_droppedEntry.append(dropped);
+        m_dropped = dropped;
+      }
+    }
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      drainAll();
+
+      try {
+        Thread.sleep(LoggingConstants.kDrainPeriodMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,264 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.sysid;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.SysIdConstants;
+
+/**
+ * Runs the characterization tests on one mechanism and captures the applied voltage, position and
+ * velocity on a dedicated notifier thread, every {@link SysIdConstants#kCapturePeriodSeconds} by
+ * default.
+ *
+ * <p>The notifier applies each test's voltage and records one row per period into a buffer
+ * preallocated for every test, so capturing does not allocate. A test ends at its timeout or when
+ * the mechanism reaches the end of its travel, after which the mechanism is held until the next
+ * test starts. {@link #save()} writes the rows to a CSV file on a background thread for
+ * {@link SysIdFitter}.
+ *
+ * <p>Sensors read over CAN only change when a status frame arrives, so those mechanisms sample at
+ * their status frame period with {@link #withPeriod(double)}. Sampling faster would only repeat
+ * rows and flood the bus with voltage writes. The voltage is only written when it changes, and the
+ * fitter drops any repeated rows.
+ */
+public final class SysIdCapture {
+  private final String m_name;
+  private final DoubleConsumer m_voltageSetter;
+  private final DoubleSupplier m_position;
+  private final DoubleSupplier m_velocity;
+  private final Notifier m_notifier;
+  private boolean m_gravity = false;
+  private boolean m_armGravity = false;
+  private double m_armZeroRadians;
+  private double m_armRadiansPerUnit;
+  private DoubleSupplier m_holdVoltage = () -> 0;
+  private double m_periodSeconds = SysIdConstants.kCapturePeriodSeconds;
+  private double m_minPosition = Double.NEGATIVE_INFINITY;
+  private double m_maxPosition = Double.POSITIVE_INFINITY;
+
+  // One row per sample, filled by the notifier
+  private final byte[] m_tests = new byte[SysIdConstants.kMaxSamples];
+  private final double[] m_timestamps = new double[SysIdConstants.kMaxSamples];
+  private final double[] m_voltages = new double[SysIdConstants.kMaxSamples];
+  private final double[] m_positions = new double[SysIdConstants.kMaxSamples];
+  private final double[] m_velocities = new double[SysIdConstants.kMaxSamples];
+  private int m_count = 0;
+
+  // The running test, null between tests
+  private final Object m_lock = new Object();
+  private volatile SysIdTest m_test;
+  private double m_testStartTime;
+  private double m_lastVolts;
+
+  /**
+   * Creates a new SysIdCapture.
+   *
+   * @param name The mechanism's name, which names the capture file and the fitted gains.
+   * @param voltageSetter Applies a voltage to the mechanism. It is called from the notifier thread.
+   * @param position The mechanism's position. It is called from the notifier thread.
+   * @param velocity The mechanism's velocity. It is called from the notifier thread.
+   */
+  public SysIdCapture(String name, DoubleConsumer voltageSetter, DoubleSupplier position, DoubleSupplier velocity) {
+    m_name = name;
+    m_voltageSetter = voltageSetter;
+    m_position = position;
+    m_velocity = velocity;
+    m_notifier = new Notifier(this::sample);
+    m_notifier.setName("SysId " + name);
+  }
+
+  /**
+   * Fits a constant gravity term, for mechanisms that are always pulled the same way.
+   *
+   * @return This capture, for chaining.
+   */
+  public SysIdCapture withGravity() {
+    m_gravity = true;
+    return this;
+  }
+
+  /**
+   * Fits a gravity term that goes as the cosine of the mechanism's angle, for a joint that rotates
+   * through a range of angles, as {@link edu.wpi.first.math.controller.ArmFeedforward} expects.
+   *
+   * @param zeroRadians The angle above horizontal at position 0.
+   * @param radiansPerUnit The radians turned per unit of position.
+   * @return This capture, for chaining.
+   */
+  public SysIdCapture withArmGravity(double zeroRadians, double radiansPerUnit) {
+    m_armGravity = true;
+    m_armZeroRadians = zeroRadians;
+    m_armRadiansPerUnit = radiansPerUnit;
+    return this;
+  }
+
+  /**
+   * Samples at a longer period, e.g. the status frame period of a mechanism read over CAN.
+   *
+   * @param periodSeconds The sample period.
+   * @return This capture, for chaining.
+   */
+  public SysIdCapture withPeriod(double periodSeconds) {
+    m_periodSeconds = periodSeconds;
+    return this;
+  }
+
+  /**
+   * Holds the mechanism between tests instead of letting it go, e.g. against gravity, so each test
+   * starts where the last one ended rather than at the bottom of the travel.
+   *
+   * @param holdVoltage The voltage that holds the mechanism in place. It is called from the notifier
+   *     thread.
+   * @return This capture, for chaining.
+   */
+  public SysIdCapture withHoldVoltage(DoubleSupplier holdVoltage) {
+    m_holdVoltage = holdVoltage;
+    return this;
+  }
+
+  /**
+   * Ends each test before the mechanism leaves its travel.
+   *
+   * @param minPosition The lowest position a reverse test may reach.
+   * @param maxPosition The highest position a forward test may reach.
+   * @return This capture, for chaining.
+   */
+  public SysIdCapture withTravel(double minPosition, double maxPosition) {
+    m_minPosition = minPosition;
+    m_maxPosition = maxPosition;
+    return this;
+  }
+
+  public String getName() {
+    return m_name;
+  }
+
+  /** Discards the rows of any earlier run. */
+  public void clear() {
+    synchronized (m_lock) {
+      m_count = 0;
+    }
+  }
+
+  /**
+   * Starts a test.
+   *
+   * @param test The test.
+   */
+  public void start(SysIdTest test) {
+    synchronized (m_lock) {
+      m_test = test;
+      m_testStartTime = Timer.getFPGATimestamp();
+      m_lastVolts = Double.NaN;
+    }
+    m_notifier.startPeriodic(m_periodSeconds);
+  }
+
+  /**
+   * Returns whether a test is running.
+   *
+   * @return True until the running test has ended or been stopped.
+   */
+  public boolean isRunning() {
+    return m_test != null;
+  }
+
+  /** Stops the running test and the mechanism. */
+  public void stop() {
+    m_notifier.stop();
+    synchronized (m_lock) {
+      m_test = null;
+      m_voltageSetter.accept(0);
+    }
+  }
+
+  private void sample() {
+    synchronized (m_lock) {
+      SysIdTest test = m_test;
+      if (test == null) {
+        return;
+      }
+
+      double now = Timer.getFPGATimestamp();
+      double elapsed = now - m_testStartTime;
+      double position = m_position.getAsDouble();
+      boolean pastTravel = test.direction > 0 ? position >= m_maxPosition : position <= m_minPosition;
+      if (elapsed >= test.getTimeoutSeconds() || pastTravel || m_count == m_timestamps.length) {
+        m_voltageSetter.accept(m_holdVoltage.getAsDouble());
+        m_test = null;
+        return;
+      }
+
+      double volts = test.voltageAt(elapsed);
+      if (volts != m_lastVolts) {
+        m_voltageSetter.accept(volts);
+        m_lastVolts = volts;
+      }
+
+      m_tests[m_count] = (byte) test.ordinal();
+      m_timestamps[m_count] = now;
+      m_voltages[m_count] = volts;
+      m_positions[m_count] = position;
+      m_velocities[m_count] = m_velocity.getAsDouble();
+      m_count++;
+    }
+  }
+
+  /**
+   * Writes the captured rows to {@code sysid/<name>.csv} under the operating directory on a
+   * background thread.
+   */
+  public void save() {
+    int count;
+    byte[] tests;
+    double[] timestamps;
+    double[] voltages;
+    double[] positions;
+    double[] velocities;
+    synchronized (m_lock) {
+      count = m_count;
+      tests = Arrays.copyOf(m_tests, count);
+      timestamps = Arrays.copyOf(m_timestamps, count);
+      voltages = Arrays.copyOf(m_voltages, count);
+      positions = Arrays.copyOf(m_positions, count);
+      velocities = Arrays.copyOf(m_velocities, count);
+    }
+
+    Path path = Filesystem.getOperatingDirectory().toPath()
+      .resolve(SysIdConstants.kCaptureDirectory)
+      .resolve(m_name.replace(' ', '_') + ".csv");
+    Thread thread = new Thread(() -> {
+      try {
+        Files.createDirectories(path.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+          writer.println("# " + m_name + (m_gravity ? ", gravity" : "")
+            + (m_armGravity ? ", arm gravity, " + m_armZeroRadians + ", " + m_armRadiansPerUnit : ""));
+          writer.println("test,timestamp,voltage,position,velocity");
+          for (int i = 0; i < count; i++) {
+            writer.println(SysIdTest.values()[tests[i]] + "," + timestamps[i] + "," + voltages[i] + ","
+              + positions[i] + "," + velocities[i]);
+          }
+        }
+        DataLogManager.log("Saved " + count + " " + m_name + " characterization samples to " + path);
+      } catch (IOException e) {
+        DriverStation.reportError("Failed to save " + m_name + " characterization: " + e.getMessage(), false);
+      }
+    }, "SysId Writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+}
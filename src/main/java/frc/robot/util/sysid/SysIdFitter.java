@@ -0,0 +1,179 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.sysid;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.ejml.data.SingularMatrixException;
+import org.ejml.simple.SimpleMatrix;
+
+import frc.robot.Constants.SysIdConstants;
+
+/**
+ * Fits feedforward gains to every characterization capture in a directory with ordinary least
+ * squares and writes them as {@link SysIdGains} JSON. Run on the desktop by the {@code fitSysId}
+ * Gradle task after copying the captures off the robot.
+ *
+ * <p>Each sample contributes {@code V = kS * sgn(v) + kV * v + kA * a}, plus {@code kG} for captures
+ * with gravity, or {@code kG * cos(angle)} for captures with arm gravity. Acceleration is the central difference of the velocity within a test, after dropping
+ * rows repeated between CAN status frames.
+ */
+public final class SysIdFitter {
+  private SysIdFitter() {}
+
+  /**
+   * Fits the captures.
+   *
+   * @param args The capture directory and the output directory.
+   * @throws IOException If a capture cannot be read or the gains cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: SysIdFitter <capture directory> <output directory>");
+    }
+
+    Path captureDirectory = Paths.get(args[0]);
+    Path outputDirectory = Paths.get(args[1]);
+    Files.createDirectories(outputDirectory);
+
+    try (DirectoryStream<Path> captures = Files.newDirectoryStream(captureDirectory, "*.csv")) {
+      for (Path capture : captures) {
+        String name = capture.getFileName().toString().replaceFirst("\\.csv$", "");
+        // One bad capture should not stop the rest from being fitted
+        try {
+          fit(capture, outputDirectory.resolve(name + ".json"));
+        } catch (RuntimeException e) {
+          System.out.println(capture.getFileName() + ": skipped, " + e);
+        }
+      }
+    }
+  }
+
+  private static void fit(Path capture, Path output) throws IOException {
+    List<String> lines = Files.readAllLines(capture);
+    String[] header = lines.get(0).split(", ");
+    boolean gravity = header.length > 1 && header[1].equals("gravity");
+    boolean armGravity = header.length > 3 && header[1].equals("arm gravity");
+    double armZeroRadians = armGravity ? Double.parseDouble(header[2]) : 0;
+    double armRadiansPerUnit = armGravity ? Double.parseDouble(header[3]) : 0;
+
+    // Parse the rows, skipping the header and any row a stale status frame repeated
+    int rowCount = lines.size() - 2;
+    String[] tests = new String[rowCount];
+    double[] timestamps = new double[rowCount];
+    double[] voltages = new double[rowCount];
+    double[] positions = new double[rowCount];
+    double[] velocities = new double[rowCount];
+    int count = 0;
+    double lastPosition = Double.NaN;
+    double lastVelocity = Double.NaN;
+    double maxSpeed = 0;
+    for (int line = 2; line < lines.size(); line++) {
+      String[] fields = lines.get(line).split(",");
+      double position = Double.parseDouble(fields[3]);
+      double velocity = Double.parseDouble(fields[4]);
+      boolean sameTest = count > 0 && fields[0].equals(tests[count - 1]);
+      if (sameTest && position == lastPosition && velocity == lastVelocity) {
+        continue;
+      }
+
+      tests[count] = fields[0];
+      timestamps[count] = Double.parseDouble(fields[1]);
+      voltages[count] = Double.parseDouble(fields[2]);
+      positions[count] = position;
+      velocities[count] = velocity;
+      lastPosition = position;
+      lastVelocity = velocity;
+      maxSpeed = Math.max(maxSpeed, Math.abs(velocity));
+      count++;
+    }
+
+    // Accumulate the normal equations
+    int terms = gravity || armGravity ? 4 : 3;
+    double[][] xtx = new double[terms][terms];
+    double[][] xty = new double[terms][1];
+    double[] x = new double[terms];
+    double sumY = 0;
+    double sumYSquared = 0;
+    int samples = 0;
+    int forwardSamples = 0;
+    int reverseSamples = 0;
+    double minSpeed = SysIdConstants.kFitMinVelocityFraction * maxSpeed;
+    for (int i = 1; i < count - 1; i++) {
+      if (!tests[i - 1].equals(tests[i]) || !tests[i + 1].equals(tests[i])
+          || Math.abs(velocities[i]) < minSpeed) {
+        continue;
+      }
+
+      x[0] = Math.signum(velocities[i]);
+      x[1] = velocities[i];
+      x[2] = (velocities[i + 1] - velocities[i - 1]) / (timestamps[i + 1] - timestamps[i - 1]);
+      if (gravity) {
+        x[3] = 1;
+      } else if (armGravity) {
+        x[3] = Math.cos(armZeroRadians + armRadiansPerUnit * positions[i]);
+      }
+
+      double y = voltages[i];
+      for (int row = 0; row < terms; row++) {
+        for (int column = 0; column < terms; column++) {
+          xtx[row][column] += x[row] * x[column];
+        }
+        xty[row][0] += x[row] * y;
+      }
+      sumY += y;
+      sumYSquared += y * y;
+      samples++;
+      if (velocities[i] > 0) {
+        forwardSamples++;
+      } else {
+        reverseSamples++;
+      }
+    }
+
+    if (samples < terms) {
+      System.out.println(capture.getFileName() + ": too few moving samples to fit");
+      return;
+    }
+
+    // Moving one way only, sgn(v) is constant and cannot be told apart from kG, e.g. when a
+    // mechanism fell back down between tests and the reverse tests never moved it
+    if (forwardSamples == 0 || reverseSamples == 0) {
+      System.out.println(capture.getFileName() + ": skipped, the mechanism only moved "
+        + (forwardSamples == 0 ? "in reverse" : "forward"));
+      return;
+    }
+
+    SimpleMatrix coefficients;
+    try {
+      coefficients = new SimpleMatrix(xtx).solve(new SimpleMatrix(xty));
+    } catch (SingularMatrixException e) {
+      System.out.println(capture.getFileName() + ": skipped, the samples cannot separate the gains");
+      return;
+    }
+    if (coefficients.hasUncountable()) {
+      System.out.println(capture.getFileName() + ": skipped, the fitted gains are not finite");
+      return;
+    }
+    double residual = sumYSquared - coefficients.dot(new SimpleMatrix(xty));
+    double total = sumYSquared - sumY * sumY / samples;
+    double rSquared = 1 - residual / total;
+
+    SysIdGains gains = new SysIdGains(
+      coefficients.get(0),
+      coefficients.get(1),
+      coefficients.get(2),
+      terms == 4 ? coefficients.get(3) : 0);
+    gains.write(output, rSquared, samples);
+
+    System.out.println(capture.getFileName() + ": kS=" + gains.getS() + " kV=" + gains.getV() + " kA="
+      + gains.getA() + " kG=" + gains.getG() + " (r^2 " + rSquared + ", " + samples + " samples)");
+  }
+}
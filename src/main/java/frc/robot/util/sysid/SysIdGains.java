@@ -0,0 +1,111 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.sysid;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.SysIdConstants;
+
+/**
+ * A mechanism's feedforward gains, {@code V = kS * sgn(v) + kV * v + kA * a + kG}, in volts and the
+ * mechanism's own position units. For an arm, kG is the voltage that holds it horizontal and is
+ * scaled by the cosine of its angle.
+ *
+ * <p>{@link SysIdFitter} writes them as JSON to {@code src/main/deploy/sysid}, and the subsystems load
+ * them at startup, falling back to their estimated constants until the mechanism is characterized.
+ */
+public final class SysIdGains {
+  private final double m_kS;
+  private final double m_kV;
+  private final double m_kA;
+  private final double m_kG;
+
+  /**
+   * Creates a new SysIdGains.
+   *
+   * @param kS The voltage that overcomes static friction.
+   * @param kV The voltage per unit per second.
+   * @param kA The voltage per unit per second squared.
+   * @param kG The voltage that holds against gravity.
+   */
+  public SysIdGains(double kS, double kV, double kA, double kG) {
+    m_kS = kS;
+    m_kV = kV;
+    m_kA = kA;
+    m_kG = kG;
+  }
+
+  /**
+   * Loads a mechanism's fitted gains from the deploy directory.
+   *
+   * @param name The mechanism's name, as given to its {@link SysIdCapture}.
+   * @param fallback The gains to use if the mechanism has not been characterized.
+   * @return The fitted gains, or the fallback if there are none or they cannot be read.
+   */
+  public static SysIdGains load(String name, SysIdGains fallback) {
+    Path path = Filesystem.getDeployDirectory().toPath()
+      .resolve(SysIdConstants.kGainsDirectory)
+      .resolve(name.replace(' ', '_') + ".json");
+    if (!Files.exists(path)) {
+      return fallback;
+    }
+
+    try {
+      JsonNode json = new ObjectMapper().readTree(path.toFile());
+      return new SysIdGains(
+        json.get("kS").asDouble(),
+        json.get("kV").asDouble(),
+        json.get("kA").asDouble(),
+        json.get("kG").asDouble());
+    } catch (IOException | RuntimeException e) {
+      DriverStation.reportWarning("Failed to load " + name + " feedforward gains: " + e.getMessage(), false);
+      return fallback;
+    }
+  }
+
+  /**
+   * Writes the gains as JSON, along with how well they fit.
+   *
+   * @param path The file to write.
+   * @param rSquared The fraction of the voltage the fit explains.
+   * @param samples The number of samples fitted.
+   * @throws IOException If the file cannot be written.
+   */
+  void write(Path path, double rSquared, int samples) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode json = mapper.createObjectNode();
+    json.put("kS", m_kS);
+    json.put("kV", m_kV);
+    json.put("kA", m_kA);
+    json.put("kG", m_kG);
+    json.put("rSquared", rSquared);
+    json.put("samples", samples);
+    mapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), json);
+  }
+
+  public double getS() {
+    return m_kS;
+  }
+
+  public double getV() {
+    return m_kV;
+  }
+
+  public double getA() {
+    return m_kA;
+  }
+
+  public double getG() {
+    return m_kG;
+  }
+}
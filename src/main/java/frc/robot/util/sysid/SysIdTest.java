@@ -0,0 +1,45 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.sysid;
+
+import frc.robot.Constants.SysIdConstants;
+
+/** The voltage tests run on each mechanism, in the order they are run. */
+public enum SysIdTest {
+  kQuasistaticForward(true, 1),
+  kQuasistaticReverse(true, -1),
+  kDynamicForward(false, 1),
+  kDynamicReverse(false, -1);
+
+  public final boolean quasistatic;
+  public final double direction;
+
+  SysIdTest(boolean quasistatic, double direction) {
+    this.quasistatic = quasistatic;
+    this.direction = direction;
+  }
+
+  /**
+   * Returns the voltage to apply part way through the test.
+   *
+   * @param elapsedSeconds The time since the test started.
+   * @return The voltage.
+   */
+  public double voltageAt(double elapsedSeconds) {
+    double magnitude = quasistatic
+      ? SysIdConstants.kQuasistaticRampVoltsPerSecond * elapsedSeconds
+      : SysIdConstants.kDynamicStepVolts;
+    return magnitude * direction;
+  }
+
+  /**
+   * Returns how long the test runs for if the mechanism does not reach the end of its travel first.
+   *
+   * @return The timeout in seconds.
+   */
+  public double getTimeoutSeconds() {
+    return quasistatic ? SysIdConstants.kQuasistaticTimeoutSeconds : SysIdConstants.kDynamicTimeoutSeconds;
+  }
+}
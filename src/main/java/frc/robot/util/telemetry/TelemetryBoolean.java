@@ -0,0 +1,43 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.telemetry;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+
+/** A boolean telemetry value that is only sent when it changes. */
+public class TelemetryBoolean extends TelemetrySignal {
+  private final BooleanPublisher m_publisher;
+  private boolean m_published = false;
+  private boolean m_lastValue;
+
+  /**
+   * Creates a new TelemetryBoolean.
+   *
+   * @param key The SmartDashboard key.
+   * @param divider Only every Nth update is considered.
+   * @param verbosity The verbosity level this signal belongs to.
+   */
+  public TelemetryBoolean(String key, int divider, TelemetryVerbosity verbosity) {
+    super(divider, verbosity);
+    m_publisher = isEnabled() ? kTable.getBooleanTopic(key).publish() : null;
+  }
+
+  /** Creates a new competition-level TelemetryBoolean that publishes every change. */
+  public TelemetryBoolean(String key) {
+    this(key, 1, TelemetryVerbosity.kCompetition);
+  }
+
+  public void set(boolean value) {
+    if (!shouldSample()) {
+      return;
+    }
+
+    if (!m_published || value != m_lastValue) {
+      m_publisher.set(value);
+      m_lastValue = value;
+      m_published = true;
+    }
+  }
+}
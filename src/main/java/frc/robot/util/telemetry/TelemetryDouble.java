@@ -0,0 +1,45 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+
+/** A numeric telemetry value that is only sent when it moves past its deadband. */
+public class TelemetryDouble extends TelemetrySignal {
+  private final DoublePublisher m_publisher;
+  private final double m_deadband;
+  private double m_lastValue = Double.NaN;
+
+  /**
+   * Creates a new TelemetryDouble.
+   *
+   * @param key The SmartDashboard key.
+   * @param deadband The minimum change before a new value is sent.
+   * @param divider Only every Nth update is considered.
+   * @param verbosity The verbosity level this signal belongs to.
+   */
+  public TelemetryDouble(String key, double deadband, int divider, TelemetryVerbosity verbosity) {
+    super(divider, verbosity);
+    m_deadband = deadband;
+    m_publisher = isEnabled() ? kTable.getDoubleTopic(key).publish() : null;
+  }
+
+  /** Creates a new competition-level TelemetryDouble that publishes every change. */
+  public TelemetryDouble(String key) {
+    this(key, 0, 1, TelemetryVerbosity.kCompetition);
+  }
+
+  public void set(double value) {
+    if (!shouldSample()) {
+      return;
+    }
+
+    // NaN never compares, so the first value is always sent
+    if (!(Math.abs(value - m_lastValue) <= m_deadband)) {
+      m_publisher.set(value);
+      m_lastValue = value;
+    }
+  }
+}
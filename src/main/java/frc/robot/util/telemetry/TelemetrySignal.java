@@ -0,0 +1,50 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.telemetry;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.TelemetryConstants;
+
+/**
+ * Base class for a single published telemetry value.
+ *
+ * <p>Signals publish to the SmartDashboard table so existing dashboard layouts keep working. A
+ * signal whose verbosity is above {@link TelemetryConstants#kVerbosity} never creates a publisher,
+ * and a signal with a rate divider of N only considers every Nth update.
+ */
+abstract class TelemetrySignal {
+  protected static final NetworkTable kTable = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+
+  private final boolean m_enabled;
+  private final int m_divider;
+  private int m_updateCount = 0;
+
+  protected TelemetrySignal(int divider, TelemetryVerbosity verbosity) {
+    m_enabled = verbosity.compareTo(TelemetryConstants.kVerbosity) <= 0;
+    m_divider = Math.max(1, divider);
+  }
+
+  protected boolean isEnabled() {
+    return m_enabled;
+  }
+
+  /**
+   * Returns whether this update should be considered for publishing.
+   *
+   * @return True if the signal is enabled and this update lands on the rate divider.
+   */
+  protected boolean shouldSample() {
+    if (!m_enabled) {
+      return false;
+    }
+
+    if (++m_updateCount >= m_divider) {
+      m_updateCount = 0;
+      return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.telemetry;
+
+import edu.wpi.first.networktables.StringPublisher;
+
+/** A string telemetry value that is only sent when it changes. */
+public class TelemetryString extends TelemetrySignal {
+  private final StringPublisher m_publisher;
+  private String m_lastValue;
+
+  /**
+   * Creates a new TelemetryString.
+   *
+   * @param key The SmartDashboard key.
+   * @param divider Only every Nth update is considered.
+   * @param verbosity The verbosity level this signal belongs to.
+   */
+  public TelemetryString(String key, int divider, TelemetryVerbosity verbosity) {
+    super(divider, verbosity);
+    m_publisher = isEnabled() ? kTable.getStringTopic(key).publish() : null;
+  }
+
+  /** Creates a new competition-level TelemetryString that publishes every change. */
+  public TelemetryString(String key) {
+    this(key, 1, TelemetryVerbosity.kCompetition);
+  }
+
+  public void set(String value) {
+    if (!shouldSample()) {
+      return;
+    }
+
+    if (!value.equals(m_lastValue)) {
+      m_publisher.set(value);
+      m_lastValue = value;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.telemetry;
+
+/** How much telemetry is sent over NetworkTables. */
+public enum TelemetryVerbosity {
+  /** Only signals the drive team needs during a match. */
+  kCompetition,
+  /** Everything, including tuning and diagnostic signals. */
+  kDebug
+}
@@ -0,0 +1,46 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.trajectory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compiles every PathPlanner path in a directory into a {@link SampledTrajectory} table. Run at
+ * build time by the {@code compilePaths} Gradle task.
+ */
+public final class PathCompiler {
+  private PathCompiler() {}
+
+  /**
+   * Compiles the paths.
+   *
+   * @param args The PathPlanner directory and the output directory.
+   * @throws IOException If a path cannot be read or a table cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: PathCompiler <pathplanner directory> <output directory>");
+    }
+
+    Path sourceDirectory = Paths.get(args[0]);
+    Path outputDirectory = Paths.get(args[1]);
+    Files.createDirectories(outputDirectory);
+
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(sourceDirectory, "*.path")) {
+      for (Path path : paths) {
+        String name = path.getFileName().toString().replaceFirst("\\.path$", "");
+        SampledTrajectory trajectory = PathPlannerLoader.load(path);
+        trajectory.write(outputDirectory.resolve(name + SampledTrajectory.kFileExtension));
+
+        System.out.println("Compiled " + name + ": " + trajectory.length() + " samples, "
+          + trajectory.getTotalTimeSeconds() + " s");
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.trajectory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.spline.Spline.ControlVector;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator.ControlVectorList;
+import edu.wpi.first.math.trajectory.constraint.CentripetalAccelerationConstraint;
+import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * Loads PathPlanner {@code .path} files from the deploy directory as tank drive trajectories.
+ *
+ * <p>Each PathPlanner segment is a cubic Bezier curve from an anchor through its next control point
+ * and the following anchor's previous control point. The anchors become spline control vectors
+ * whose first derivative is the Bezier tangent, and the path is split at every reversal waypoint
+ * into segments that start and end at rest.
+ *
+ * <p>Generating splines on the roboRIO is slow, so the {@code compilePaths} Gradle task runs
+ * {@link PathCompiler} at build time and deploys the resampled tables to {@code deploy/paths}.
+ */
+public final class PathPlannerLoader {
+  private PathPlannerLoader() {}
+
+  /**
+   * Loads a path from the deploy directory, memory mapping its compiled table when one was deployed
+   * and generating it from the PathPlanner file otherwise.
+   *
+   * @param name The path name, without the {@code .path} extension.
+   * @return The resampled trajectory.
+   * @throws IOException If the path cannot be loaded.
+   */
+  public static SampledTrajectory load(String name) throws IOException {
+    Path deployDirectory = Filesystem.getDeployDirectory().toPath();
+    Path compiled = deployDirectory.resolve("paths").resolve(name + SampledTrajectory.kFileExtension);
+    if (Files.exists(compiled)) {
+      return SampledTrajectory.map(compiled);
+    }
+
+    // Simulation deploys straight from src/main/deploy, which has no compiled tables
+    DriverStation.reportWarning(name + " was not compiled, generating it at startup", false);
+    return load(deployDirectory.resolve("pathplanner").resolve(name + ".path"));
+  }
+
+  /**
+   * Generates and resamples a PathPlanner file.
+   *
+   * @param path The {@code .path} file.
+   * @return The resampled trajectory.
+   * @throws IOException If the file cannot be read or parsed.
+   */
+  public static SampledTrajectory load(Path path) throws IOException {
+    JsonNode waypoints = new ObjectMapper().readTree(path.toFile()).get("waypoints");
+    if (waypoints == null || waypoints.size() < 2) {
+      throw new IOException(path + " has fewer than two waypoints");
+    }
+
+    List<Trajectory> segments = new ArrayList<>();
+    ControlVectorList controlVectors = new ControlVectorList();
+    boolean reversed = false;
+
+    for (int i = 0; i < waypoints.size(); i++) {
+      JsonNode waypoint = waypoints.get(i);
+      boolean isLast = i == waypoints.size() - 1;
+      boolean isReversal = waypoint.path("isReversal").asBoolean(false) && !isLast && i > 0;
+
+      // Arriving at a reversal uses the incoming tangent, leaving it the outgoing one
+      JsonNode incoming = isLast || isReversal ? waypoint.get("prevControl") : null;
+      controlVectors.add(controlVector(waypoint, incoming, waypoints, i, reversed));
+
+      if (isReversal || isLast) {
+        segments.add(generate(controlVectors, reversed));
+
+        if (isReversal) {
+          reversed = !reversed;
+          controlVectors = new ControlVectorList();
+          controlVectors.add(controlVector(waypoint, null, waypoints, i, reversed));
+        }
+      }
+    }
+
+    return SampledTrajectory.resample(segments, AutoConstants.kTrajectorySampleSeconds);
+  }
+
+  /**
+   * Builds the control vector for an anchor. The tangent is three times the offset to the control
+   * point, which is the derivative of the cubic Bezier curve at the anchor.
+   */
+  private static ControlVector controlVector(JsonNode waypoint, JsonNode incoming, JsonNode waypoints, int index,
+      boolean reversed) {
+    JsonNode anchor = waypoint.get("anchorPoint");
+    double x = anchor.get("x").asDouble();
+    double y = anchor.get("y").asDouble();
+
+    JsonNode next = waypoint.get("nextControl");
+    double dx;
+    double dy;
+    if (incoming != null && !incoming.isNull()) {
+      dx = 3 * (x - incoming.get("x").asDouble());
+      dy = 3 * (y - incoming.get("y").asDouble());
+    } else if (next != null && !next.isNull()) {
+      dx = 3 * (next.get("x").asDouble() - x);
+      dy = 3 * (next.get("y").asDouble() - y);
+    } else {
+      // No control point, aim at the neighbouring anchor
+      JsonNode neighbour = waypoints.get(index > 0 ? index - 1 : index + 1).get("anchorPoint");
+      double sign = index > 0 ? 1 : -1;
+      dx = sign * (x - neighbour.get("x").asDouble());
+      dy = sign * (y - neighbour.get("y").asDouble());
+    }
+
+    // The generator expects the direction the robot faces, which is backwards on a reversed segment
+    if (reversed) {
+      dx = -dx;
+      dy = -dy;
+    }
+
+    return new ControlVector(new double[] {x, dx, 0}, new double[] {y, dy, 0});
+  }
+
+  private static Trajectory generate(ControlVectorList controlVectors, boolean reversed) {
+    return TrajectoryGenerator.generateTrajectory(controlVectors, createConfig(reversed));
+  }
+
+  /**
+   * Creates the trajectory configuration shared by every tank drive trajectory.
+   *
+   * @param reversed Whether the robot drives backwards.
+   * @return The configuration.
+   */
+  static TrajectoryConfig createConfig(boolean reversed) {
+    return new TrajectoryConfig(
+      AutoConstants.kMaxSpeedMetersPerSecond,
+      AutoConstants.kMaxAccelerationMetersPerSecondSquared)
+      .setKinematics(new DifferentialDriveKinematics(DriveConstants.kTrackWidth))
+      .addConstraint(new CentripetalAccelerationConstraint(
+        AutoConstants.kMaxCentripetalAccelerationMetersPerSecondSquared))
+      .setReversed(reversed);
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * The Ramsete control law evaluated on primitives against a {@link SampledTrajectory}, producing
+ * wheel speeds for the tank drive without allocating.
+ */
+public final class RamseteFollower {
+  private double m_leftSpeed;
+  private double m_rightSpeed;
+  private double m_leftAcceleration;
+  private double m_rightAcceleration;
+
+  /**
+   * Computes the wheel speeds that track a sample of a trajectory.
+   *
+   * @param trajectory The trajectory.
+   * @param index The sample to track.
+   * @param pose The robot's current pose.
+   */
+  public void calculate(SampledTrajectory trajectory, int index, Pose2d pose) {
+    double heading = pose.getRotation().getRadians();
+
+    // Pose error in the robot's frame
+    double dx = trajectory.getX(index) - pose.getX();
+    double dy = trajectory.getY(index) - pose.getY();
+    double errorX = Math.cos(heading) * dx + Math.sin(heading) * dy;
+    double errorY = -Math.sin(heading) * dx + Math.cos(heading) * dy;
+    double errorHeading = MathUtil.angleModulus(trajectory.getHeading(index) - heading);
+
+    double velocityRef = trajectory.getVelocity(index);
+    double angularVelocityRef = trajectory.getAngularVelocity(index);
+
+    // Ramsete control law
+    double k = 2 * AutoConstants.kRamseteZeta
+      * Math.sqrt(angularVelocityRef * angularVelocityRef + AutoConstants.kRamseteB * velocityRef * velocityRef);
+    double velocity = velocityRef * Math.cos(errorHeading) + k * errorX;
+    double angularVelocity = angularVelocityRef + k * errorHeading
+      + AutoConstants.kRamseteB * velocityRef * sinc(errorHeading) * errorY;
+
+    // Differential drive inverse kinematics
+    double halfTrackWidth = DriveConstants.kTrackWidth / 2;
+    m_leftSpeed = velocity - angularVelocity * halfTrackWidth;
+    m_rightSpeed = velocity + angularVelocity * halfTrackWidth;
+
+    // The feedforward follows the reference, so its wheel accelerations come straight from the trajectory
+    double acceleration = trajectory.getAcceleration(index);
+    double angularAcceleration = trajectory.getAngularAcceleration(index);
+    m_leftAcceleration = acceleration - angularAcceleration * halfTrackWidth;
+    m_rightAcceleration = acceleration + angularAcceleration * halfTrackWidth;
+  }
+
+  private static double sinc(double x) {
+    return Math.abs(x) < 1e-9 ? 1 - x * x / 6 : Math.sin(x) / x;
+  }
+
+  /**
+   * Returns the left wheel speed from the last calculation.
+   *
+   * @return The left wheel speed in meters per second.
+   */
+  public double getLeftSpeed() {
+    return m_leftSpeed;
+  }
+
+  /**
+   * Returns the right wheel speed from the last calculation.
+   *
+   * @return The right wheel speed in meters per second.
+   */
+  public double getRightSpeed() {
+    return m_rightSpeed;
+  }
+
+  /**
+   * Returns the left wheel's feedforward acceleration from the last calculation.
+   *
+   * @return The left wheel acceleration in meters per second squared.
+   */
+  public double getLeftAcceleration() {
+    return m_leftAcceleration;
+  }
+
+  /**
+   * Returns the right wheel's feedforward acceleration from the last calculation.
+   *
+   * @return The right wheel acceleration in meters per second squared.
+   */
+  public double getRightAcceleration() {
+    return m_rightAcceleration;
+  }
+}
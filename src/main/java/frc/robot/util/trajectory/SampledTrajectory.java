@@ -0,0 +1,238 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * A trajectory resampled at a fixed time step into a dense table of fixed-size records.
+ *
+ * <p>{@link Trajectory#sample(double)} binary searches its states and allocates an interpolated
+ * state on every call. Resampling once ahead of time turns each cycle's setpoint lookup into an
+ * index, and every accessor reads a double straight out of the table.
+ *
+ * <p>The table uses the same layout in memory and on disk, so compiled trajectories are memory
+ * mapped rather than parsed:
+ *
+ * <pre>
+ * Header (32 bytes): int magic, int version, int record count, int fields per record,
+ *                    double time step (s), long CRC32 of the records
+ * Record (56 bytes): double x (m), y (m), heading (rad), velocity (m/s),
+ *                    acceleration (m/s^2), angular velocity (rad/s),
+ *                    angular acceleration (rad/s^2)
+ * </pre>
+ */
+public final class SampledTrajectory {
+  public static final String kFileExtension = ".traj";
+
+  private static final int kMagic = 0x5452414A; // "TRAJ"
+  private static final int kVersion = 2;
+  private static final int kHeaderBytes = 32;
+  private static final int kFieldsPerRecord = 7;
+  private static final int kRecordBytes = kFieldsPerRecord * Double.BYTES;
+  private static final int kChecksumOffset = 24;
+
+  // Field offsets within a record
+  private static final int kX = 0;
+  private static final int kY = 8;
+  private static final int kHeading = 16;
+  private static final int kVelocity = 24;
+  private static final int kAcceleration = 32;
+  private static final int kAngularVelocity = 40;
+  private static final int kAngularAcceleration = 48;
+
+  private final ByteBuffer m_table;
+  private final double m_dtSeconds;
+  private final int m_length;
+
+  private SampledTrajectory(ByteBuffer table) {
+    m_table = table;
+    m_length = table.getInt(8);
+    m_dtSeconds = table.getDouble(16);
+  }
+
+  /**
+   * Resamples trajectories that are driven back to back into a single fixed-step trajectory.
+   *
+   * @param segments The trajectories, in the order they are driven.
+   * @param dtSeconds The time step.
+   * @return The resampled trajectory.
+   */
+  public static SampledTrajectory resample(List<Trajectory> segments, double dtSeconds) {
+    double totalTime = 0;
+    for (Trajectory segment : segments) {
+      totalTime += segment.getTotalTimeSeconds();
+    }
+
+    int length = (int) Math.ceil(totalTime / dtSeconds) + 1;
+    ByteBuffer table = ByteBuffer.allocate(kHeaderBytes + length * kRecordBytes);
+    table.putInt(0, kMagic);
+    table.putInt(4, kVersion);
+    table.putInt(8, length);
+    table.putInt(12, kFieldsPerRecord);
+    table.putDouble(16, dtSeconds);
+
+    int segmentIndex = 0;
+    double segmentStart = 0;
+    for (int i = 0; i < length; i++) {
+      double time = Math.min(i * dtSeconds, totalTime);
+
+      // Advance to the segment containing this time
+      while (segmentIndex < segments.size() - 1
+          && time > segmentStart + segments.get(segmentIndex).getTotalTimeSeconds()) {
+        segmentStart += segments.get(segmentIndex).getTotalTimeSeconds();
+        segmentIndex++;
+      }
+
+      Trajectory.State state = segments.get(segmentIndex).sample(time - segmentStart);
+      int record = kHeaderBytes + i * kRecordBytes;
+      table.putDouble(record + kX, state.poseMeters.getX());
+      table.putDouble(record + kY, state.poseMeters.getY());
+      table.putDouble(record + kHeading, state.poseMeters.getRotation().getRadians());
+      table.putDouble(record + kVelocity, state.velocityMetersPerSecond);
+      table.putDouble(record + kAcceleration, state.accelerationMetersPerSecondSq);
+      table.putDouble(record + kAngularVelocity, state.velocityMetersPerSecond * state.curvatureRadPerMeter);
+    }
+
+    // The states carry no rate of change of curvature, so difference the angular velocities
+    for (int i = 0; i < length; i++) {
+      int previous = Math.max(i - 1, 0);
+      int next = Math.min(i + 1, length - 1);
+      double angularAcceleration = next == previous ? 0
+        : (table.getDouble(kHeaderBytes + next * kRecordBytes + kAngularVelocity)
+          - table.getDouble(kHeaderBytes + previous * kRecordBytes + kAngularVelocity))
+          / ((next - previous) * dtSeconds);
+      table.putDouble(kHeaderBytes + i * kRecordBytes + kAngularAcceleration, angularAcceleration);
+    }
+
+    table.putLong(kChecksumOffset, checksum(table, length));
+    return new SampledTrajectory(table);
+  }
+
+  /**
+   * Writes the table to a file that {@link #map(Path)} can load.
+   *
+   * @param file The file to write.
+   * @throws IOException If the file cannot be written.
+   */
+  public void write(Path file) throws IOException {
+    ByteBuffer table = m_table.duplicate();
+    table.clear();
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (table.hasRemaining()) {
+        channel.write(table);
+      }
+    }
+  }
+
+  /**
+   * Memory maps a table written by {@link #write(Path)}.
+   *
+   * @param file The file to map.
+   * @return The trajectory, reading its samples directly from the mapping.
+   * @throws IOException If the file cannot be mapped or is not a valid table.
+   */
+  public static SampledTrajectory map(Path file) throws IOException {
+    MappedByteBuffer table;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      table = channel.map(FileChannel.MapMode.READ_ONLY, 0, Files.size(file));
+    }
+
+    if (table.capacity() < kHeaderBytes || table.getInt(0) != kMagic) {
+      throw new IOException(file + " is not a compiled trajectory");
+    }
+    if (table.getInt(4) != kVersion || table.getInt(12) != kFieldsPerRecord) {
+      throw new IOException(file + " was compiled by an incompatible version");
+    }
+
+    int length = table.getInt(8);
+    if (length < 1 || table.capacity() != kHeaderBytes + (long) length * kRecordBytes) {
+      throw new IOException(file + " is truncated");
+    }
+    if (table.getLong(kChecksumOffset) != checksum(table, length)) {
+      throw new IOException(file + " is corrupt, the checksum does not match");
+    }
+
+    return new SampledTrajectory(table);
+  }
+
+  private static long checksum(ByteBuffer table, int length) {
+    ByteBuffer records = table.duplicate();
+    records.position(kHeaderBytes);
+    records.limit(kHeaderBytes + length * kRecordBytes);
+
+    CRC32 crc = new CRC32();
+    crc.update(records);
+    return crc.getValue();
+  }
+
+  private double get(int index, int field) {
+    return m_table.getDouble(kHeaderBytes + index * kRecordBytes + field);
+  }
+
+  /**
+   * Returns the index of the sample nearest to a time.
+   *
+   * @param timeSeconds The time since the start of the trajectory.
+   * @return The sample index, clamped to the trajectory.
+   */
+  public int indexAt(double timeSeconds) {
+    int index = (int) Math.round(timeSeconds / m_dtSeconds);
+    return Math.max(0, Math.min(index, m_length - 1));
+  }
+
+  public int length() {
+    return m_length;
+  }
+
+  public double getTotalTimeSeconds() {
+    return (m_length - 1) * m_dtSeconds;
+  }
+
+  public Pose2d getInitialPose() {
+    return new Pose2d(getX(0), getY(0), new Rotation2d(getHeading(0)));
+  }
+
+  public double getX(int index) {
+    return get(index, kX);
+  }
+
+  public double getY(int index) {
+    return get(index, kY);
+  }
+
+  public double getHeading(int index) {
+    return get(index, kHeading);
+  }
+
+  public double getVelocity(int index) {
+    return get(index, kVelocity);
+  }
+
+  public double getAcceleration(int index) {
+    return get(index, kAcceleration);
+  }
+
+  public double getAngularVelocity(int index) {
+    return get(index, kAngularVelocity);
+  }
+
+  public double getAngularAcceleration(int index) {
+    return get(index, kAngularAcceleration);
+  }
+}
@@ -0,0 +1,73 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.trajectory;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import frc.robot.Constants.AutoConstants;
+
+/**
+ * Generates tank drive trajectories on a background thread so the robot loop never waits for
+ * spline generation.
+ *
+ * <p>Requests are answered through a {@link CompletableFuture} that the caller polls. Only the newest
+ * request matters: making a new one cancels the previous future, and a superseded request that has
+ * not started yet is skipped by the worker.
+ */
+public final class TrajectoryPlanner {
+  private final ExecutorService m_executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "Trajectory Planner");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private CompletableFuture<SampledTrajectory> m_pending;
+  private volatile long m_latestRequest = 0;
+
+  /**
+   * Requests a trajectory from the robot's current state to a goal, superseding any earlier
+   * request.
+   *
+   * @param start The robot's current pose.
+   * @param startVelocity The robot's current speed in meters per second, so the trajectory
+   *     continues from the plan being driven instead of starting at rest.
+   * @param goal The goal pose.
+   * @return The future trajectory. It completes exceptionally if the request is superseded.
+   */
+  public CompletableFuture<SampledTrajectory> plan(Pose2d start, double startVelocity, Pose2d goal) {
+    cancel();
+
+    long request = ++m_latestRequest;
+    m_pending = CompletableFuture.supplyAsync(() -> {
+      if (request != m_latestRequest) {
+        throw new CancellationException("Superseded by a newer request");
+      }
+
+      TrajectoryConfig config = PathPlannerLoader.createConfig(false)
+        .setStartVelocity(Math.max(0, Math.min(startVelocity, AutoConstants.kMaxSpeedMetersPerSecond)));
+      Trajectory trajectory = TrajectoryGenerator.generateTrajectory(start, List.of(), goal, config);
+      return SampledTrajectory.resample(List.of(trajectory), AutoConstants.kTrajectorySampleSeconds);
+    }, m_executor);
+
+    return m_pending;
+  }
+
+  /** Cancels the pending request, if any. */
+  public void cancel() {
+    if (m_pending != null) {
+      m_latestRequest++;
+      m_pending.cancel(false);
+      m_pending = null;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.LinearSystem;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.TuningConstants;
+import frc.robot.subsystems.ProfiledJoint;
+
+/**
+ * Moves one arm joint between two presets with the arm's own {@link ProfiledJoint}, on the arm's
+ * control notifier period.
+ *
+ * <p>Gravity is assumed to be cancelled by the joint's holding output, so the plant is the motor
+ * and mechanism alone, the same physics the arm simulation uses.
+ */
+class ArmMoveScenario implements TuningScenario {
+  private final String m_name;
+  private final double m_a;
+  private final double m_b;
+  private final double m_countsPerUnit;
+  private final double m_maxVelocity;
+  private final double m_maxAcceleration;
+  private final double m_start;
+  private final double m_goal;
+  private final double m_tolerance;
+  private final double[] m_currentGains;
+  private final double[] m_maxGains;
+
+  /**
+   * Creates a new ArmMoveScenario.
+   *
+   * @param name The scenario's name.
+   * @param system The joint's position system, driven by voltage.
+   * @param countsPerUnit Encoder counts per unit of the system's position, signed so positive output
+   *     moves toward positive counts.
+   * @param maxVelocity The profile's maximum velocity in counts per second.
+   * @param maxAcceleration The profile's maximum acceleration in counts per second squared.
+   * @param start The position the move starts from in counts.
+   * @param goal The position the move ends at in counts.
+   * @param tolerance How close to the goal counts as there.
+   * @param kP The current proportional gain.
+   * @param kV The current velocity feedforward.
+   * @param maxP The largest proportional gain to try.
+   * @param maxV The largest velocity feedforward to try.
+   */
+  ArmMoveScenario(String name, LinearSystem<?, ?, ?> system, double countsPerUnit, double maxVelocity,
+      double maxAcceleration, double start, double goal, double tolerance, double kP, double kV,
+      double maxP, double maxV) {
+    m_name = name;
+    m_a = system.getA(1, 1);
+    m_b = system.getB(1, 0);
+    m_countsPerUnit = countsPerUnit;
+    m_maxVelocity = maxVelocity;
+    m_maxAcceleration = maxAcceleration;
+    m_start = start;
+    m_goal = goal;
+    m_tolerance = tolerance;
+    m_currentGains = new double[] {kP, kV};
+    m_maxGains = new double[] {maxP, maxV};
+  }
+
+  @Override
+  public String getName() {
+    return m_name;
+  }
+
+  @Override
+  public String[] getGainNames() {
+    return new String[] {"kP", "kV"};
+  }
+
+  @Override
+  public double[] getCurrentGains() {
+    return m_currentGains;
+  }
+
+  @Override
+  public double[] getMaxGains() {
+    return m_maxGains;
+  }
+
+  @Override
+  public TuningResult simulate(double[] gains) {
+    double dt = ArmConstants.kControlPeriodSeconds;
+    DiscretePlant plant = new DiscretePlant(m_a, m_b, m_countsPerUnit, dt);
+    plant.reset(m_start);
+    TuningResult.Recorder recorder = new TuningResult.Recorder(m_start, m_goal, m_tolerance);
+
+    // The presets are within the joint's travel, so the goal needs no limits
+    try (ProfiledJoint joint = new ProfiledJoint(m_maxVelocity, m_maxAcceleration, gains[0], gains[1],
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, m_tolerance)) {
+      joint.setGoal(m_goal, m_start, 0);
+
+      int steps = (int) Math.round((joint.getProfileSeconds() + TuningConstants.kArmSettleSeconds) / dt);
+      for (int i = 1; i <= steps; i++) {
+        double output = MathUtil.clamp(joint.calculate(plant.getPosition(), (i - 1) * dt), -1, 1);
+
+        plant.update(output * TuningConstants.kNominalVoltage);
+        recorder.record(i * dt, plant.getPosition(), output, dt);
+      }
+    }
+    return recorder.finish(gains);
+  }
+}
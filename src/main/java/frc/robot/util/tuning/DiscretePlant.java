@@ -0,0 +1,68 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+/**
+ * A mechanism's position and velocity driven by voltage, modelled as {@code v' = a * v + b * u}.
+ *
+ * <p>The model is stepped with its exact discretization, solved in closed form so a run needs no
+ * matrix exponential and does not allocate. Positions are in whatever units the controller under
+ * test works in.
+ */
+class DiscretePlant {
+  private final double m_a01;
+  private final double m_a11;
+  private final double m_b0;
+  private final double m_b1;
+
+  private double m_position = 0;
+  private double m_velocity = 0;
+
+  /**
+   * Creates a new DiscretePlant.
+   *
+   * @param a The continuous velocity decay, from the plant's A matrix.
+   * @param b The continuous voltage gain, from the plant's B matrix.
+   * @param scale The controller's position units per unit of the plant's position.
+   * @param dtSeconds The period the plant is stepped at.
+   */
+  DiscretePlant(double a, double b, double scale, double dtSeconds) {
+    double decay = Math.exp(a * dtSeconds);
+    double integral = (decay - 1) / a;
+
+    m_a01 = integral;
+    m_a11 = decay;
+    m_b0 = scale * b * (integral - dtSeconds) / a;
+    m_b1 = scale * b * integral;
+  }
+
+  /**
+   * Puts the mechanism at rest.
+   *
+   * @param position The position.
+   */
+  void reset(double position) {
+    m_position = position;
+    m_velocity = 0;
+  }
+
+  /**
+   * Steps the mechanism one period with a constant voltage applied.
+   *
+   * @param volts The voltage.
+   */
+  void update(double volts) {
+    m_position += m_a01 * m_velocity + m_b0 * volts;
+    m_velocity = m_a11 * m_velocity + m_b1 * volts;
+  }
+
+  double getPosition() {
+    return m_position;
+  }
+
+  double getVelocity() {
+    return m_velocity;
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.ModuleConstants;
+import frc.robot.Constants.SimConstants;
+import frc.robot.Constants.TuningConstants;
+
+/**
+ * Sweeps the controller gains of every tuning scenario across headless simulations on all cores and
+ * reports the Pareto-best gain sets, trading settle time against overshoot and effort. Run by the
+ * {@code tuneGains} Gradle task.
+ *
+ * <p>Each scenario's front is printed next to the score of the gains the robot currently uses and
+ * written to a CSV file named after the scenario.
+ */
+public final class GainTuner {
+  private GainTuner() {}
+
+  /**
+   * Tunes the gains.
+   *
+   * @param args The output directory.
+   * @throws IOException If a result file cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: GainTuner <output directory>");
+    }
+
+    Path outputDirectory = Paths.get(args[0]);
+    Files.createDirectories(outputDirectory);
+
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    System.out.println("Tuning on " + pool.getParallelism() + " threads");
+
+    for (TuningScenario scenario : createScenarios()) {
+      long startNanos = System.nanoTime();
+      List<TuningResult> front = new ArrayList<>(pool.invoke(new SweepTask(scenario)));
+      front.sort(Comparator.comparingDouble(TuningResult::getSettleTime));
+      double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+      String[] gainNames = scenario.getGainNames();
+      System.out.println();
+      System.out.println(scenario.getName() + ": " + SweepTask.gridSize(gainNames.length) + " runs in "
+        + String.format("%.2f", wallSeconds) + " s, " + front.size() + " on the Pareto front");
+      System.out.println("  current " + format(gainNames, scenario.simulate(scenario.getCurrentGains())));
+      for (TuningResult result : front) {
+        System.out.println("          " + format(gainNames, result));
+      }
+
+      write(outputDirectory.resolve(scenario.getName().replace(' ', '_') + ".csv"), gainNames, front);
+    }
+  }
+
+  private static List<TuningScenario> createScenarios() {
+    List<TuningScenario> scenarios = new ArrayList<>();
+
+    // The swerve modules' alternate encoders read module radians, the tank drive's turn motors
+    // report motor rotations
+    scenarios.add(new ModuleTurnScenario("Swerve Module Turn", 1,
+      ModuleConstants.kTurnP, ModuleConstants.kTurnD,
+      TuningConstants.kModuleTurnMaxP, TuningConstants.kModuleTurnMaxD));
+    scenarios.add(new ModuleTurnScenario("Tank Module Turn", TuningConstants.kTurnGearing / (2 * Math.PI),
+      DriveConstants.kP, DriveConstants.kD,
+      TuningConstants.kTankTurnMaxP, TuningConstants.kTankTurnMaxD));
+
+    scenarios.add(new VisionAlignScenario());
+
+    scenarios.add(new ArmMoveScenario("Arm Raise",
+      LinearSystemId.createSingleJointedArmSystem(
+        DCMotor.getCIM(1),
+        SingleJointedArmSim.estimateMOI(SimConstants.kRaiseArmLengthMeters, SimConstants.kRaiseArmMassKg),
+        SimConstants.kRaiseGearing),
+      SimConstants.kRaiseCountsPerRadian,
+      ArmConstants.kRaiseMaxVelocity, ArmConstants.kRaiseMaxAcceleration,
+      ArmConstants.kStowRaisePosition, ArmConstants.kHighRaisePosition, ArmConstants.kRaiseTolerance,
+      ArmConstants.kRaiseP, ArmConstants.kRaiseV,
+      TuningConstants.kRaiseMaxP, TuningConstants.kRaiseMaxV));
+    scenarios.add(new ArmMoveScenario("Arm Extension",
+      LinearSystemId.createElevatorSystem(
+        DCMotor.getVex775Pro(1),
+        SimConstants.kExtensionCarriageMassKg,
+        SimConstants.kExtensionDrumRadiusMeters,
+        SimConstants.kExtensionGearing),
+      SimConstants.kExtensionCountsPerMeter,
+      ArmConstants.kExtensionMaxVelocity, ArmConstants.kExtensionMaxAcceleration,
+      ArmConstants.kStowExtensionPosition, ArmConstants.kHighExtensionPosition, ArmConstants.kExtensionTolerance,
+      ArmConstants.kExtensionP, ArmConstants.kExtensionV,
+      TuningConstants.kExtensionMaxP, TuningConstants.kExtensionMaxV));
+
+    return scenarios;
+  }
+
+  private static String format(String[] gainNames, TuningResult result) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < gainNames.length; i++) {
+      builder.append(gainNames[i]).append('=').append(String.format("%.6g", result.getGains()[i])).append(' ');
+    }
+    builder.append(String.format("settle %.3f s, overshoot %.1f%%, effort %.3f",
+      result.getSettleTime(), result.getOvershoot() * 100, result.getEffort()));
+    return builder.toString();
+  }
+
+  private static void write(Path path, String[] gainNames, List<TuningResult> front) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+      writer.println(String.join(",", gainNames) + ",settle_seconds,overshoot,effort");
+      for (TuningResult result : front) {
+        for (double gain : result.getGains()) {
+          writer.print(gain + ",");
+        }
+        writer.println(result.getSettleTime() + "," + result.getOvershoot() + "," + result.getEffort());
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import frc.robot.Constants.TuningConstants;
+
+/**
+ * Turns a module a quarter turn with the Spark Max's onboard position loop.
+ *
+ * <p>The loop is run the way the Spark Max runs it, once per millisecond with the derivative taken
+ * per loop rather than per second, on a NEO turning the module's inertia.
+ */
+class ModuleTurnScenario implements TuningScenario {
+  private final String m_name;
+  private final double m_unitsPerRadian;
+  private final double[] m_currentGains;
+  private final double[] m_maxGains;
+  private final double m_a;
+  private final double m_b;
+
+  /**
+   * Creates a new ModuleTurnScenario.
+   *
+   * @param name The scenario's name.
+   * @param unitsPerRadian The controller's position units per radian of module rotation.
+   * @param kP The current proportional gain.
+   * @param kD The current derivative gain.
+   * @param maxP The largest proportional gain to try.
+   * @param maxD The largest derivative gain to try.
+   */
+  ModuleTurnScenario(String name, double unitsPerRadian, double kP, double kD, double maxP, double maxD) {
+    m_name = name;
+    m_unitsPerRadian = unitsPerRadian;
+    m_currentGains = new double[] {kP, kD};
+    m_maxGains = new double[] {maxP, maxD};
+
+    LinearSystem<?, ?, ?> system = LinearSystemId.createDCMotorSystem(
+      DCMotor.getNEO(1), TuningConstants.kTurnMomentOfInertia, TuningConstants.kTurnGearing);
+    m_a = system.getA(1, 1);
+    m_b = system.getB(1, 0);
+  }
+
+  @Override
+  public String getName() {
+    return m_name;
+  }
+
+  @Override
+  public String[] getGainNames() {
+    return new String[] {"kP", "kD"};
+  }
+
+  @Override
+  public double[] getCurrentGains() {
+    return m_currentGains;
+  }
+
+  @Override
+  public double[] getMaxGains() {
+    return m_maxGains;
+  }
+
+  @Override
+  public TuningResult simulate(double[] gains) {
+    double dt = TuningConstants.kSparkMaxPeriodSeconds;
+    double goal = TuningConstants.kTurnStepRadians * m_unitsPerRadian;
+    DiscretePlant plant = new DiscretePlant(m_a, m_b, m_unitsPerRadian, dt);
+    TuningResult.Recorder recorder =
+      new TuningResult.Recorder(0, goal, TuningConstants.kTurnToleranceRadians * m_unitsPerRadian);
+
+    double lastError = goal;
+    int steps = (int) Math.round(TuningConstants.kTurnSimSeconds / dt);
+    for (int i = 1; i <= steps; i++) {
+      double error = goal - plant.getPosition();
+      double output = MathUtil.clamp(gains[0] * error + gains[1] * (error - lastError), -1, 1);
+      lastError = error;
+
+      plant.update(output * TuningConstants.kNominalVoltage);
+      recorder.record(i * dt, plant.getPosition(), output, dt);
+    }
+    return recorder.finish(gains);
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import frc.robot.Constants.TuningConstants;
+
+/**
+ * Simulates a range of a scenario's gain grid and returns the range's Pareto front.
+ *
+ * <p>Ranges larger than {@link TuningConstants#kRunsPerTask} are split in half and forked, and the
+ * halves' fronts are merged as they join, so only front candidates are ever kept.
+ */
+class SweepTask extends RecursiveTask<List<TuningResult>> {
+  private static final long serialVersionUID = 1L;
+
+  private final TuningScenario m_scenario;
+  private final double[] m_maxGains;
+  private final int m_start;
+  private final int m_end;
+
+  /**
+   * Creates a new SweepTask over a scenario's whole grid.
+   *
+   * @param scenario The scenario.
+   */
+  SweepTask(TuningScenario scenario) {
+    this(scenario, scenario.getMaxGains(), 0, gridSize(scenario.getMaxGains().length));
+  }
+
+  private SweepTask(TuningScenario scenario, double[] maxGains, int start, int end) {
+    m_scenario = scenario;
+    m_maxGains = maxGains;
+    m_start = start;
+    m_end = end;
+  }
+
+  /**
+   * Returns the number of runs in a grid.
+   *
+   * @param gainCount The number of gains swept.
+   * @return The number of runs.
+   */
+  static int gridSize(int gainCount) {
+    int size = 1;
+    for (int i = 0; i < gainCount; i++) {
+      size *= TuningConstants.kGridSteps;
+    }
+    return size;
+  }
+
+  @Override
+  protected List<TuningResult> compute() {
+    if (m_end - m_start <= TuningConstants.kRunsPerTask) {
+      List<TuningResult> results = new ArrayList<>(m_end - m_start);
+      for (int index = m_start; index < m_end; index++) {
+        results.add(m_scenario.simulate(gainsAt(index)));
+      }
+      return TuningResult.paretoFront(results);
+    }
+
+    int middle = (m_start + m_end) >>> 1;
+    SweepTask lower = new SweepTask(m_scenario, m_maxGains, m_start, middle);
+    SweepTask upper = new SweepTask(m_scenario, m_maxGains, middle, m_end);
+    lower.fork();
+    List<TuningResult> results = new ArrayList<>(upper.compute());
+    results.addAll(lower.join());
+    return TuningResult.paretoFront(results);
+  }
+
+  private double[] gainsAt(int index) {
+    // Each gain is one digit of the index in base kGridSteps. The first step is 0, which is often
+    // the best kI or kD.
+    double[] gains = new double[m_maxGains.length];
+    for (int i = 0; i < gains.length; i++) {
+      int step = index % TuningConstants.kGridSteps;
+      gains[i] = m_maxGains[i] * step / (TuningConstants.kGridSteps - 1);
+      index /= TuningConstants.kGridSteps;
+    }
+    return gains;
+  }
+}
@@ -0,0 +1,155 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The score of one simulated move: how long it took to settle, how far it overshot and how much
+ * output it used. Lower is better on every score.
+ */
+class TuningResult {
+  private final double[] m_gains;
+  private final double m_settleTime;
+  private final double m_overshoot;
+  private final double m_effort;
+
+  /**
+   * Creates a new TuningResult.
+   *
+   * @param gains The gains that were simulated.
+   * @param settleTime The seconds until the move stayed within tolerance, infinite if it never did.
+   * @param overshoot The furthest the move went past its goal, as a fraction of the move.
+   * @param effort The integral of the squared percent output over the move.
+   */
+  TuningResult(double[] gains, double settleTime, double overshoot, double effort) {
+    m_gains = gains;
+    m_settleTime = settleTime;
+    m_overshoot = overshoot;
+    m_effort = effort;
+  }
+
+  double[] getGains() {
+    return m_gains;
+  }
+
+  double getSettleTime() {
+    return m_settleTime;
+  }
+
+  double getOvershoot() {
+    return m_overshoot;
+  }
+
+  double getEffort() {
+    return m_effort;
+  }
+
+  boolean isSettled() {
+    return m_settleTime != Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Returns whether this result is at least as good as another on every score and better on one.
+   *
+   * @param other The other result.
+   * @return True if this result dominates the other.
+   */
+  boolean dominates(TuningResult other) {
+    return m_settleTime <= other.m_settleTime
+      && m_overshoot <= other.m_overshoot
+      && m_effort <= other.m_effort
+      && (m_settleTime < other.m_settleTime || m_overshoot < other.m_overshoot || m_effort < other.m_effort);
+  }
+
+  /**
+   * Returns the settled results that no other result dominates.
+   *
+   * @param results The results.
+   * @return The Pareto front.
+   */
+  static List<TuningResult> paretoFront(List<TuningResult> results) {
+    List<TuningResult> front = new ArrayList<>();
+    for (TuningResult result : results) {
+      if (!result.isSettled()) {
+        continue;
+      }
+
+      boolean dominated = false;
+      for (TuningResult other : results) {
+        if (other.isSettled() && other.dominates(result)) {
+          dominated = true;
+          break;
+        }
+      }
+      if (!dominated) {
+        front.add(result);
+      }
+    }
+    return front;
+  }
+
+  /**
+   * Accumulates a step response sample by sample and scores it.
+   */
+  static class Recorder {
+    private final double m_start;
+    private final double m_goal;
+    private final double m_tolerance;
+
+    private double m_lastOutsideTime = 0;
+    private boolean m_outside = true;
+    private double m_maxOvershoot = 0;
+    private double m_effort = 0;
+
+    /**
+     * Creates a new Recorder.
+     *
+     * @param start The position the move starts from.
+     * @param goal The position the move ends at.
+     * @param tolerance How close to the goal counts as settled.
+     */
+    Recorder(double start, double goal, double tolerance) {
+      m_start = start;
+      m_goal = goal;
+      m_tolerance = tolerance;
+    }
+
+    /**
+     * Records the state at the end of a period.
+     *
+     * @param timeSeconds The time since the move started.
+     * @param position The position.
+     * @param output The percent output applied over the period.
+     * @param dtSeconds The period.
+     */
+    void record(double timeSeconds, double position, double output, double dtSeconds) {
+      double error = position - m_goal;
+      m_outside = Math.abs(error) > m_tolerance;
+      if (m_outside) {
+        m_lastOutsideTime = timeSeconds;
+      }
+
+      // Overshoot is only past the goal in the direction of travel
+      m_maxOvershoot = Math.max(m_maxOvershoot, error * Math.signum(m_goal - m_start));
+      m_effort += output * output * dtSeconds;
+    }
+
+    /**
+     * Scores the recorded move.
+     *
+     * @param gains The gains that were simulated.
+     * @return The result.
+     */
+    TuningResult finish(double[] gains) {
+      return new TuningResult(
+        gains,
+        m_outside ? Double.POSITIVE_INFINITY : m_lastOutsideTime,
+        m_maxOvershoot / Math.abs(m_goal - m_start),
+        m_effort);
+    }
+  }
+}
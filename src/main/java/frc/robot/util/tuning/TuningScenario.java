@@ -0,0 +1,44 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+/**
+ * A closed-loop move simulated headless to score a set of controller gains.
+ *
+ * <p>Runs are simulated concurrently, so {@link #simulate(double[])} must keep all of its state
+ * local to the call.
+ */
+interface TuningScenario {
+  String getName();
+
+  /**
+   * Returns the names of the gains, in the order {@link #simulate(double[])} takes them.
+   *
+   * @return The gain names.
+   */
+  String[] getGainNames();
+
+  /**
+   * Returns the gains the robot currently uses.
+   *
+   * @return The current gains.
+   */
+  double[] getCurrentGains();
+
+  /**
+   * Returns the largest value each gain is swept to. Sweeps start just above zero.
+   *
+   * @return The maximum gains.
+   */
+  double[] getMaxGains();
+
+  /**
+   * Simulates one move with a set of gains.
+   *
+   * @param gains The gains.
+   * @return The scored response.
+   */
+  TuningResult simulate(double[] gains);
+}
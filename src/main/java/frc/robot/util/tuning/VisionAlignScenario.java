@@ -0,0 +1,88 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util.tuning;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.ModuleConstants;
+import frc.robot.Constants.SimConstants;
+import frc.robot.Constants.TuningConstants;
+import frc.robot.subsystems.TankDriveSubsystem;
+
+/**
+ * Turns the tank drive in place toward a vision target the way
+ * {@code TankDriveSubsystem.trackVisionTarget()} does.
+ *
+ * <p>The heading controller runs once per robot loop on the gyro heading in degrees and its output
+ * is shaped by {@link TankDriveSubsystem#shapeArcadeInput(double)}. Only the drivetrain's turning
+ * mode is modelled, with both sides driven equally and oppositely.
+ */
+class VisionAlignScenario implements TuningScenario {
+  private final double m_a;
+  private final double m_b;
+
+  /** Creates a new VisionAlignScenario. */
+  VisionAlignScenario() {
+    LinearSystem<?, ?, ?> system = LinearSystemId.createDrivetrainVelocitySystem(
+      DCMotor.getNEO(2),
+      SimConstants.kRobotMassKg,
+      ModuleConstants.kWheelDiameterMeters / 2,
+      DriveConstants.kTrackWidth / 2,
+      SimConstants.kRobotMomentOfInertia,
+      ModuleConstants.kDriveMotorRatio);
+
+    // Turning in place is the difference of the two sides' responses
+    m_a = system.getA(0, 0) - system.getA(0, 1);
+    m_b = system.getB(0, 0) - system.getB(0, 1);
+  }
+
+  @Override
+  public String getName() {
+    return "Vision Align";
+  }
+
+  @Override
+  public String[] getGainNames() {
+    return new String[] {"kVisionP", "kVisionD"};
+  }
+
+  @Override
+  public double[] getCurrentGains() {
+    return new double[] {AutoConstants.kVisionP, AutoConstants.kVisionD};
+  }
+
+  @Override
+  public double[] getMaxGains() {
+    return new double[] {TuningConstants.kVisionMaxP, TuningConstants.kVisionMaxD};
+  }
+
+  @Override
+  public TuningResult simulate(double[] gains) {
+    double dt = SimConstants.kTimestepSeconds;
+    double goal = TuningConstants.kVisionStepDegrees;
+
+    // Wheel speed to heading rate in degrees
+    double degreesPerMeter = Math.toDegrees(2 / DriveConstants.kTrackWidth);
+    DiscretePlant plant = new DiscretePlant(m_a, m_b, degreesPerMeter, dt);
+    TuningResult.Recorder recorder = new TuningResult.Recorder(0, goal, TuningConstants.kVisionToleranceDegrees);
+
+    PIDController controller = new PIDController(gains[0], 0, gains[1], dt);
+    controller.enableContinuousInput(-180, 180);
+
+    int steps = (int) Math.round(TuningConstants.kVisionSimSeconds / dt);
+    for (int i = 1; i <= steps; i++) {
+      double output = TankDriveSubsystem.shapeArcadeInput(controller.calculate(plant.getPosition(), goal));
+
+      plant.update(output * TuningConstants.kNominalVoltage);
+      recorder.record(i * dt, plant.getPosition(), output, dt);
+    }
+    controller.close();
+    return recorder.finish(gains);
+  }
+}
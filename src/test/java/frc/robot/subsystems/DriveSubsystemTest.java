@@ -0,0 +1,54 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.OdometryConstants;
+import frc.robot.util.GyroService;
+
+/**
+ * Runs the swerve odometry thread against modules on simulated Spark Maxes. The modules stay still,
+ * so the pose only turns with the simulated gyro, and only if the thread's samples reach the
+ * estimator.
+ */
+class DriveSubsystemTest {
+  private static final double kTolerance = 1e-6;
+  // Long enough for the odometry thread to sample several times
+  private static final long kSampleWaitMillis = (long) (20 * 1000 / OdometryConstants.kFrequencyHz);
+
+  private static GyroService gyro;
+  private static DriveSubsystem drive;
+
+  @BeforeAll
+  static void setup() {
+    // The Spark Maxes and the notifier need the HAL, which runs in simulation on the desktop
+    HAL.initialize(500, 0);
+    gyro = GyroService.getInstance();
+    gyro.addSimulatedSample(0);
+    drive = new DriveSubsystem();
+  }
+
+  @Test
+  void poseFollowsGyroSamples() throws InterruptedException {
+    double[] yaws = {0.3, 1.2, 2.9, -2.9, -0.4};
+    for (double yaw : yaws) {
+      gyro.addSimulatedSample(yaw);
+      Thread.sleep(kSampleWaitMillis);
+      drive.periodic();
+
+      Pose2d pose = drive.getPose();
+      assertEquals(0, pose.getX(), kTolerance);
+      assertEquals(0, pose.getY(), kTolerance);
+      assertEquals(0, MathUtil.angleModulus(pose.getRotation().getRadians() - yaw), kTolerance);
+    }
+  }
+}
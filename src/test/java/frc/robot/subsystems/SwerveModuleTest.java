@@ -0,0 +1,95 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.ModuleConstants;
+import frc.robot.util.can.SparkMaxConfigurator;
+
+class SwerveModuleTest {
+  // Clear of the drivetrain's IDs, since every test class shares the simulated CAN bus
+  private static final int kDriveMotorId = 31;
+  private static final int kTurnMotorId = 32;
+  private static final int kWarmupCycles = 20_000;
+  private static final int kMeasuredCycles = 10_000;
+  private static final double kCountRadians = ModuleConstants.kTurnEncoderPositionFactor
+    / ModuleConstants.kTurnEncoderCountsPerRev;
+
+  private static SwerveModule module;
+
+  @BeforeAll
+  static void setup() {
+    // The Spark Maxes need the HAL, which runs in simulation on the desktop
+    HAL.initialize(500, 0);
+    module = new SwerveModule(kDriveMotorId, kTurnMotorId, Math.PI / 2, false, new SparkMaxConfigurator());
+  }
+
+  @Test
+  void cycleDoesNotAllocate() {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    // Let the JIT compile the cycle, then take the cost of reading the counter itself
+    runCycles(kWarmupCycles);
+    long counterStart = threads.getThreadAllocatedBytes(threadId);
+    long counterEnd = threads.getThreadAllocatedBytes(threadId);
+
+    long start = threads.getThreadAllocatedBytes(threadId);
+    runCycles(kMeasuredCycles);
+    long end = threads.getThreadAllocatedBytes(threadId);
+
+    assertEquals(counterEnd - counterStart, end - start,
+      "bytes allocated by " + kMeasuredCycles + " module cycles");
+  }
+
+  private static void runCycles(int cycles) {
+    double angle = Math.toRadians(135);
+    for (int i = 0; i < cycles; i++) {
+      // Alternate sides so the module both turns and reverses, and every reference is sent
+      angle = -angle;
+      module.setDesiredState(2.0, angle, angle);
+      module.getState();
+      module.getPosition();
+    }
+  }
+
+  @Test
+  void rotationAtWrapsNegativeAngles() {
+    assertRotation(-Math.PI / 2, SwerveModule.rotationAt(-Math.PI / 2));
+    assertRotation(-0.25, SwerveModule.rotationAt(-0.25));
+    assertRotation(-3.0, SwerveModule.rotationAt(-3.0));
+    assertSame(SwerveModule.rotationAt(3 * Math.PI / 2), SwerveModule.rotationAt(-Math.PI / 2));
+  }
+
+  @Test
+  void rotationAtWrapsAnglesPastOneTurn() {
+    assertRotation(0.5, SwerveModule.rotationAt(2 * Math.PI + 0.5));
+    assertRotation(1.0, SwerveModule.rotationAt(6 * Math.PI + 1.0));
+    assertRotation(-0.25, SwerveModule.rotationAt(-4 * Math.PI - 0.25));
+    assertSame(SwerveModule.rotationAt(0), SwerveModule.rotationAt(2 * Math.PI));
+  }
+
+  @Test
+  void rotationAtRoundsToTheNearestCount() {
+    assertSame(SwerveModule.rotationAt(0), SwerveModule.rotationAt(0.4 * kCountRadians));
+    assertSame(SwerveModule.rotationAt(0), SwerveModule.rotationAt(-0.4 * kCountRadians));
+    assertSame(SwerveModule.rotationAt(kCountRadians), SwerveModule.rotationAt(0.6 * kCountRadians));
+  }
+
+  private static void assertRotation(double expectedRadians, Rotation2d rotation) {
+    assertEquals(0, MathUtil.angleModulus(rotation.getRadians() - expectedRadians), kCountRadians / 2);
+  }
+}